@@ -0,0 +1,121 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The limits on the load an {@link App} takes.
+ *
+ * <p>Accepted connections wait for a free thread in a queue of limited
+ * size, and a connection that finds the queue full is answered with
+ * 503 at once, instead of waiting in the kernel until the client gives
+ * up. Requests beyond the maximum in flight are answered with 503 too,
+ * which matters when every connection has its own thread. When the
+ * number of open connections reaches the high-water mark, the server
+ * stops accepting until some of them are closed.</p>
+ *
+ * <p>The object is shared by all threads of the server, and the limits
+ * are kept by semaphores, without locks.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Admission {
+
+    private final int queue;
+    private final int retry;
+    private final Semaphore inflight;
+    private final Semaphore open;
+
+    public Admission() {
+        this(Integer.MAX_VALUE, 1024, Integer.MAX_VALUE);
+    }
+
+    public Admission(final int inflight, final int queue, final int high) {
+        this(inflight, queue, high, 1);
+    }
+
+    public Admission(final int inflight, final int queue, final int high,
+        final int retry) {
+        if (inflight < 1 || queue < 1 || high < 1) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "Limits must be positive, %d, %d and %d given", inflight, queue, high
+                )
+            );
+        }
+        this.queue = queue;
+        this.retry = retry;
+        this.inflight = new Semaphore(inflight);
+        this.open = new Semaphore(high);
+    }
+
+    /**
+     * How many accepted connections may wait for a thread.
+     */
+    public int queue() {
+        return this.queue;
+    }
+
+    /**
+     * In how many seconds a refused client should try again.
+     */
+    public String retry() {
+        return Integer.toString(this.retry);
+    }
+
+    /**
+     * Wait until one more connection may be open.
+     * @param millis How long to wait
+     * @return TRUE if it may, and then it must be closed later
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean opened(final long millis) throws InterruptedException {
+        return this.open.tryAcquire(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A connection, admitted by {@link #opened(long)}, is closed.
+     */
+    public void closed() {
+        this.open.release();
+    }
+
+    /**
+     * May one more request be answered now?
+     * @return TRUE if it may, and then it must be finished later
+     */
+    public boolean started() {
+        return this.inflight.tryAcquire();
+    }
+
+    /**
+     * A request, admitted by {@link #started()}, is answered.
+     */
+    public void finished() {
+        this.inflight.release();
+    }
+}
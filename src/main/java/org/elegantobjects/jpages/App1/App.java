@@ -23,64 +23,499 @@
  */
 package org.elegantobjects.jpages.App1;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * The app.
  *
+ * <p>By default connections are accepted by the thread that starts
+ * the app and served by a fixed pool of threads, see {@link Admission}.
+ * With a {@link ThreadFactory} instead of a pool size, every accepted
+ * socket gets a thread of its own, with no cap; pass
+ * {@link VirtualThreads} to make those threads cheap.</p>
+ *
+ * <p>With {@link Listeners} for a few sockets, the same port is listened
+ * on by a few of them and every extra one gets an acceptor thread of its
+ * own, so connections are accepted on a few cores at once.</p>
+ *
+ * <p>Responses are printed into a buffer and sent when the page is
+ * done, with a Content-Length. A {@link StreamingPage} asked over
+ * HTTP/1.1, even inside a {@link PageWithCompression} or a
+ * {@link PageWithContentType}, is the exception: it gets a
+ * {@link ChunkedOutput} and goes to the client while it's printed.</p>
+ *
+ * <p>A client that starts with the preface of HTTP/2, or asks to
+ * upgrade to it, is served by {@link Http2}: its requests come as
+ * streams over the one connection, each answered by a thread of the
+ * factory of the app, which is {@link Thread} for a pool.</p>
+ *
+ * <p>Connections are cut off when they miss their {@link Timeouts}:
+ * every connection has one {@link Deadline}, armed for each stage it
+ * goes through, and all of them are watched by one {@link Wheel}, with
+ * no timer thread or socket timeout per connection.</p>
+ *
  * @author Yegor Bugayenko (yegor256@gmail.com)
  * @since 0.1
  */
 public final class App {
 
+    /**
+     * How much of an unread body is skipped to keep the connection.
+     */
+    private static final long DRAIN = 65536L;
+
+    private static final String BUSY = "503 Service Unavailable";
+
+    /**
+     * Size of the buffers a connection reads into and prints into.
+     */
+    private static final int BUFFER = 16384;
+
+    /**
+     * The status when the stage of an {@link AsyncPage} fails.
+     */
+    private static final String FAILED = "500 Internal Server Error";
+
+    private static final byte[] CONTINUE =
+        "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
     private final Page page;
+    private final int threads;
+    private final ThreadFactory factory;
+    private final Metrics metrics;
+    private final Admission admission;
+    private final Listeners listeners;
+    private final Timeouts timeouts;
+    private final Buffers buffers;
+    private final Http2 http2;
+    private final AtomicReference<Running> running;
 
     public App(final Page page) {
+        this(page, 10);
+    }
+
+    public App(final Page page, final int threads) {
+        this(page, threads, new Metrics());
+    }
+
+    public App(final Page page, final int threads, final Metrics metrics) {
+        this(page, threads, metrics, new Admission());
+    }
+
+    public App(final Page page, final int threads, final Metrics metrics,
+        final Admission admission) {
+        this(page, threads, metrics, admission, new Listeners());
+    }
+
+    public App(final Page page, final int threads, final Metrics metrics,
+        final Admission admission, final Listeners listeners) {
+        this(page, threads, metrics, admission, listeners, new Timeouts());
+    }
+
+    public App(final Page page, final int threads, final Metrics metrics,
+        final Admission admission, final Listeners listeners, final Timeouts timeouts) {
+        this(page, App.pool(threads), Thread::new, metrics, admission, listeners, timeouts);
+    }
+
+    public App(final Page page, final ThreadFactory factory) {
+        this(page, factory, new Metrics());
+    }
+
+    public App(final Page page, final ThreadFactory factory, final Metrics metrics) {
+        this(page, factory, metrics, new Admission());
+    }
+
+    public App(final Page page, final ThreadFactory factory, final Metrics metrics,
+        final Admission admission) {
+        this(page, factory, metrics, admission, new Listeners());
+    }
+
+    public App(final Page page, final ThreadFactory factory, final Metrics metrics,
+        final Admission admission, final Listeners listeners) {
+        this(page, factory, metrics, admission, listeners, new Timeouts());
+    }
+
+    public App(final Page page, final ThreadFactory factory, final Metrics metrics,
+        final Admission admission, final Listeners listeners, final Timeouts timeouts) {
+        this(page, 0, factory, metrics, admission, listeners, timeouts);
+    }
+
+    private App(final Page page, final int threads, final ThreadFactory factory,
+        final Metrics metrics, final Admission admission, final Listeners listeners,
+        final Timeouts timeouts) {
         this.page = page;
+        this.threads = threads;
+        this.factory = factory;
+        this.metrics = metrics;
+        this.admission = admission;
+        this.listeners = listeners;
+        this.timeouts = timeouts;
+        // Two buffers per request in flight, as many as workers
+        this.buffers = new Buffers(
+            App.BUFFER, threads > 0 ? threads * 2 : 256, metrics
+        );
+        this.http2 = new Http2(page, metrics, admission, factory, timeouts);
+        this.running = new AtomicReference<>();
+    }
+
+    /**
+     * The size of the pool, checked before anything is made for it.
+     */
+    private static int pool(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                String.format("At least one thread is required, %d given", threads)
+            );
+        }
+        return threads;
     }
 
     public void start(final int port) throws IOException, InterruptedException {
+        if (this.threads == 0) {
+            this.startPerConnection(port);
+            return;
+        }
+
         final List<Thread> pool = new ArrayList<>(0);
+        final BlockingQueue<Socket> waiting = new ArrayBlockingQueue<>(this.admission.queue());
+        // Tells a worker that no more connections will come
+        final Socket last = new Socket();
 
-        try (final ServerSocket server = new ServerSocket(port)) {
-            server.setSoTimeout(1000);
+        final Running run = new Running(this.listeners.open(port, this.admission.queue()));
+        try {
+            this.running.set(run);
 
-            for (int i = 0; i < 10; ++i) {
-                final Thread t = new Thread(
-                        () -> {
-                            try {
+            try {
+                for (int i = 0; i < this.threads; ++i) {
+                    final Thread t = this.factory.newThread(
+                            () -> {
                                 while (true) {
-                                    if (isInterrupted()) break;
-
-                                    try (final Socket socket = server.accept()) {
-                                        this.process(socket);
-                                    } catch (final SocketTimeoutException ex) {
-                                        continue;
+                                    final Socket socket;
+                                    try {
+                                        socket = waiting.take();
+                                    } catch (final InterruptedException ex) {
+                                        Thread.currentThread().interrupt();
+                                        break;
+                                    }
+                                    if (socket == last) {
+                                        break;
                                     }
+                                    this.serve(socket, run);
                                 }
-                            } catch (IOException e) {
-                                throw new IllegalStateException(e);
                             }
+                    );
+                    pool.add(t);
+                    run.threads.add(t);
+                }
+                for (int i = 0; i < pool.size(); ++i) {
+                    pool.get(i).start();
+                }
+
+                // Connections are accepted here and wait for a free thread;
+                // when too many are waiting, the client learns it at once
+                this.listen(
+                    run,
+                    socket -> {
+                        if (!waiting.offer(socket)) {
+                            this.reject(socket, run);
                         }
+                    }
+                );
+            } finally {
+                final boolean interrupted = Thread.interrupted();
+                if (!run.stopping) {
+                    for (int i = 0; i < pool.size(); ++i) {
+                        pool.get(i).interrupt();
+                    }
+                }
+                // Connections in the queue are served before the workers go,
+                // unless stop() gives up on them and interrupts the workers;
+                // the mark also lets go of a worker whose page swallowed
+                // the interrupt and went back to wait for more
+                int left = pool.size();
+                while (left > 0 && App.alive(pool)) {
+                    if (waiting.offer(last, 100L, TimeUnit.MILLISECONDS)) {
+                        --left;
+                    }
+                }
+                for (int i = 0; i < pool.size(); ++i) {
+                    pool.get(i).join();
+                }
+                for (final Socket socket : waiting) {
+                    if (socket != last) {
+                        socket.close();
+                        this.admission.closed();
+                    }
+                }
+                this.exit(run);
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } finally {
+            run.close();
+        }
+    }
+
+    /**
+     * The port the server listens on, which is known only after
+     * {@link #start(int)} is called, even with zero for any free port.
+     * @return The port, or zero if the server is not started yet
+     */
+    public int port() {
+        final Running run = this.running.get();
+        if (run == null) {
+            return 0;
+        }
+        return run.servers.get(0).getLocalPort();
+    }
+
+    private static boolean alive(final List<Thread> pool) {
+        for (final Thread thread : pool) {
+            if (thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stop the server that was started by {@link #start(int)}.
+     *
+     * <p>The listeners are closed at once and idle persistent connections
+     * right after it. Requests in flight are answered and then their
+     * connections are closed, and those still running when the time is over
+     * are cut off: their sockets are closed and their threads interrupted.
+     * The method returns when all workers are gone.</p>
+     *
+     * @param timeout How long to wait for requests in flight
+     * @throws IOException If fails to close something
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void stop(final Duration timeout) throws IOException, InterruptedException {
+        final Running run = this.running.get();
+        if (run == null) {
+            return;
+        }
+        run.stopping = true;
+        run.close();
+        for (final Socket socket : run.idle) {
+            if (run.idle.remove(socket)) {
+                socket.close();
+            }
+        }
+        if (!run.exited.await(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            for (final Socket socket : run.open) {
+                socket.close();
+            }
+            for (final Thread thread : run.threads) {
+                thread.interrupt();
+            }
+            run.exited.await();
+        }
+    }
+
+    private void startPerConnection(final int port) throws IOException, InterruptedException {
+        final Running run = new Running(this.listeners.open(port, this.admission.queue()));
+        try {
+            this.running.set(run);
+
+            try {
+                this.listen(
+                    run,
+                    socket -> {
+                        final Thread thread = this.factory.newThread(
+                                () -> {
+                                    try {
+                                        this.serve(socket, run);
+                                    } finally {
+                                        run.threads.remove(Thread.currentThread());
+                                    }
+                                }
+                        );
+                        run.threads.add(thread);
+                        thread.start();
+                    }
                 );
-                pool.add(t);
+                if (run.stopping) {
+                    for (final Thread thread : run.threads) {
+                        thread.join();
+                    }
+                }
+            } finally {
+                this.exit(run);
+            }
+        } finally {
+            run.close();
+        }
+    }
+
+    /**
+     * Accept connections on all listeners and hand them over, until
+     * stopped or interrupted. The calling thread takes the first listener
+     * and every other one gets an acceptor thread of its own.
+     */
+    private void listen(final Running run, final Consumer<Socket> handler)
+        throws IOException, InterruptedException {
+        final List<Thread> acceptors = new ArrayList<>(0);
+        for (int idx = 1; idx < run.servers.size(); ++idx) {
+            final ServerSocket server = run.servers.get(idx);
+            final Thread thread = new Thread(
+                () -> {
+                    try {
+                        this.listen(server, run, handler);
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (final IOException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                },
+                "acceptor-" + idx
+            );
+            acceptors.add(thread);
+            thread.start();
+        }
+        try {
+            this.listen(run.servers.get(0), run, handler);
+        } finally {
+            final boolean interrupted = Thread.interrupted();
+            for (final Thread thread : acceptors) {
+                thread.interrupt();
+            }
+            for (final Thread thread : acceptors) {
+                thread.join();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void listen(final ServerSocket server, final Running run,
+        final Consumer<Socket> handler) throws IOException, InterruptedException {
+        while (!run.stopping && !isInterrupted()) {
+            final Socket socket = this.accept(server, run);
+            if (socket != null) {
+                handler.accept(socket);
             }
-            for (int i = 0; i < pool.size(); ++i) {
-                pool.get(i).start();
+        }
+    }
+
+    /**
+     * Accept a connection, unless there are too many open already.
+     * @return The connection or NULL if there is none yet
+     */
+    private Socket accept(final ServerSocket server, final Running run)
+        throws IOException, InterruptedException {
+        // Past the high-water mark new connections wait in the backlog
+        if (!this.admission.opened(1000L)) {
+            return null;
+        }
+        Socket socket = null;
+        try {
+            socket = server.accept();
+            run.open.add(socket);
+        } catch (final SocketTimeoutException ex) {
+            this.metrics.timeout();
+        } catch (final SocketException ex) {
+            // The listener is closed by stop()
+            if (!run.stopping) {
+                throw ex;
             }
-            for (int i = 0; i < pool.size(); ++i) {
-                pool.get(i).join();
+        } finally {
+            if (socket == null) {
+                this.admission.closed();
             }
         }
+        return socket;
+    }
+
+    /**
+     * Serve the connection and close it.
+     */
+    private void serve(final Socket socket, final Running run) {
+        try (final Socket closing = socket) {
+            this.process(closing, run);
+        } catch (final IOException ex) {
+            // The client is gone, the thread is free for the next one
+        } catch (final RuntimeException ex) {
+            // The connection is dropped, the thread must live on
+        } finally {
+            run.idle.remove(socket);
+            run.open.remove(socket);
+            this.admission.closed();
+        }
+    }
+
+    /**
+     * The connection missed its deadline; its thread learns it when
+     * the socket it waits on is closed.
+     */
+    private void expire(final Socket socket) {
+        this.metrics.timeout();
+        App.close(socket);
+    }
+
+    private static void close(final Socket socket) {
+        try {
+            socket.close();
+        } catch (final IOException ex) {
+            // It's closed anyway
+        }
+    }
+
+    /**
+     * Tell the client that the server is busy and close the connection.
+     */
+    private void reject(final Socket socket, final Running run) {
+        this.metrics.refused();
+        try (final Socket closing = socket) {
+            App.refuse(closing.getOutputStream(), App.BUSY, this.retry());
+            closing.shutdownOutput();
+        } catch (final IOException ex) {
+            // The client is gone already
+        } finally {
+            run.open.remove(socket);
+            this.admission.closed();
+        }
+    }
+
+    /**
+     * The server is gone, stop() may return.
+     */
+    private void exit(final Running run) {
+        run.wheel.close();
+        this.running.compareAndSet(run, null);
+        run.exited.countDown();
+    }
+
+    private String retry() {
+        return String.format("Retry-After: %s\r\n", this.admission.retry());
     }
 
     private boolean isInterrupted() {
@@ -91,21 +526,264 @@ public final class App {
         return false;
     }
 
-    private void process(final Socket socket) throws IOException {
+    private void process(final Socket socket, final Running run) throws IOException {
+        this.metrics.opened();
+        try {
+            this.talk(socket, run);
+        } finally {
+            this.metrics.closed();
+        }
+    }
+
+    /**
+     * Answer requests, one after another, as long as the client keeps
+     * the connection. Buffers are taken from the pool for a request and
+     * returned when it's answered, so a connection that waits for the
+     * next request holds none.
+     */
+    private void talk(final Socket socket, final Running run) throws IOException {
+        final Deadline deadline = run.wheel.deadline(() -> this.expire(socket));
+        // What is read and not parsed yet, kept while requests are pipelined
+        ByteBuffer buffer = null;
         try (final InputStream input = socket.getInputStream();
-             final OutputStream output = socket.getOutputStream()) {
-            final byte[] buffer = new byte[10000];
+             final OutputStream output = new BufferedOutputStream(
+                 new Timed(socket.getOutputStream(), deadline, this.timeouts.write())
+             )) {
+            final RequestHead head = new RequestHead();
+
+            // One request after another, as long as the client keeps the
+            // connection; pipelined requests are answered in order
+            while (!isInterrupted()) {
+                head.reset();
+                if (buffer == null || !buffer.hasRemaining()) {
+                    if (buffer != null) {
+                        this.buffers.release(buffer);
+                        buffer = null;
+                    }
+                    // With nothing pipelined the connection waits for the
+                    // next request, and stop() may close it; whoever takes it
+                    // out of the idle set first decides
+                    run.idle.add(socket);
+                    if (run.stopping && run.idle.remove(socket)) {
+                        return;
+                    }
+                    deadline.arm(this.timeouts.idle());
+                    // The first byte is waited for without a buffer
+                    final int first = input.read();
+                    if (!run.idle.remove(socket) || first < 0) {
+                        return;
+                    }
+                    buffer = this.buffers.borrow();
+                    buffer.array()[0] = (byte) first;
+                    buffer.limit(1);
+                }
+                // However slowly the rest of the head comes
+                deadline.arm(this.timeouts.head());
+                // Only the parser is timed, not the wait for the bytes
+                long parsing = 0L;
+                try {
+                    while (true) {
+                        final long start = System.nanoTime();
+                        final boolean done = head.parse(buffer);
+                        parsing += System.nanoTime() - start;
+                        if (done) {
+                            break;
+                        }
+                        buffer.clear();
+                        final int read = input.read(buffer.array(), 0, buffer.capacity());
+                        if (read < 0) {
+                            return;
+                        }
+                        buffer.limit(read);
+                    }
+                } catch (final BadRequest ex) {
+                    this.metrics.refused();
+                    App.refuse(output, ex.status(), "");
+                    return;
+                }
+                this.metrics.parse().record(parsing);
+                final boolean upgrade = Http2.upgrade(head);
+                if (upgrade || Http2.preface(head)) {
+                    deadline.disarm();
+                    // The session reads with a buffer of its own, like its
+                    // frames, and the one of the pool goes back right away
+                    final ByteBuffer rest = ByteBuffer.allocate(buffer.capacity());
+                    rest.put(buffer).flip();
+                    this.buffers.release(buffer);
+                    buffer = null;
+                    this.http2(socket, run, head, upgrade, new Wire(rest, input), output);
+                    return;
+                }
+                if (!this.answer(run, deadline, head, new Wire(buffer, input), output)) {
+                    return;
+                }
+            }
+        } finally {
+            deadline.disarm();
+            if (buffer != null) {
+                this.buffers.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Answer the request, with a buffer of the pool to print into.
+     * @return TRUE if the connection may be kept for the next request
+     */
+    private boolean answer(final Running run, final Deadline deadline,
+        final RequestHead head, final InputStream wire, final OutputStream output)
+        throws IOException {
+        // The body, if any, is timed only while it's waited for
+        deadline.disarm();
+        boolean alive = head.persistent() && !run.stopping;
+        final InputStream body;
+        try {
+            body = head.body(new TimedBody(wire, deadline, this.timeouts.body()));
+        } catch (final BadRequest ex) {
+            this.metrics.refused();
+            App.refuse(output, ex.status(), "");
+            return false;
+        }
+        if ("100-continue".equalsIgnoreCase(head.header("Expect"))) {
+            output.write(App.CONTINUE);
+            output.flush();
+        }
+        if (!this.admission.started()) {
+            this.metrics.refused();
+            App.refuse(output, App.BUSY, this.retry());
+            return false;
+        }
+        this.metrics.started();
+        final ByteBuffer response = this.buffers.borrow();
+        final ByteBufferOutput bytes = new ByteBufferOutput(response);
+        try {
+            final long start = System.nanoTime();
+            final Page target = new Session(this.page, this.metrics)
+                .with(head, body);
+            final Output framed;
+            if (StreamingPage.streams(target)
+                && "HTTP/1.1".equals(head.header("X-Protocol"))) {
+                // Chunks go to the socket while the page prints them
+                framed = new ChunkedOutput(bytes, output);
+            } else {
+                framed = new OutputWithLength(bytes);
+            }
+            final Output printed;
+            try {
+                printed = App.printed(
+                    target,
+                    framed.with("Connection", alive ? "keep-alive" : "close")
+                );
+            } catch (final ExecutionException ex) {
+                App.refuse(output, App.FAILED, "");
+                return false;
+            } catch (final UncheckedIOException ex) {
+                throw ex.getCause();
+            } catch (final RuntimeException ex) {
+                // Chunks already sent are cut off by closing instead
+                if (!(framed instanceof ChunkedOutput)) {
+                    App.refuse(output, App.FAILED, "");
+                }
+                return false;
+            }
+            final long printing = System.nanoTime();
+            this.metrics.page().record(printing - start);
+            printed.writeTo(output);
+            long writing = System.nanoTime() - printing;
+
+            // Whatever the page didn't read is skipped, unless it's
+            // too much to be worth keeping the connection for
+            alive = alive && App.drained(body);
+            deadline.disarm();
 
-            final int total = input.read(buffer);
-            final String request = new String(Arrays.copyOfRange(buffer, 0, total));
+            // Hold the bytes back while more pipelined requests wait
+            if (wire.available() == 0 || !alive) {
+                final long flushing = System.nanoTime();
+                output.flush();
+                writing += System.nanoTime() - flushing;
+            }
+            this.metrics.write().record(writing);
+        } finally {
+            try {
+                // The file of a body that never went out is let go
+                // before the buffer goes back to the pool
+                bytes.close();
+            } finally {
+                this.buffers.release(response);
+                this.metrics.finished();
+                this.admission.finished();
+            }
+        }
+        return alive;
+    }
 
-            new Session(this.page)
-                    .with(request)
-                    .printTo(new SimpleTextOutput(""))
-                    .writeTo(output);
+    /**
+     * Speak HTTP/2 till the end of the connection; its deadline is left
+     * to writes, and reads get one of their own, since they go on in
+     * parallel with them.
+     */
+    private void http2(final Socket socket, final Running run, final RequestHead head,
+        final boolean upgrade, final InputStream input, final OutputStream output)
+        throws IOException {
+        final Deadline reading = run.wheel.deadline(() -> this.expire(socket));
+        try {
+            this.http2.serve(
+                input, output, upgrade ? head : null, reading,
+                () -> {
+                    run.idle.add(socket);
+                    if (run.stopping && run.idle.remove(socket)) {
+                        App.close(socket);
+                    }
+                },
+                () -> run.idle.remove(socket),
+                () -> run.stopping
+            );
+            output.flush();
+        } finally {
+            reading.disarm();
         }
     }
 
+    private static void refuse(final OutputStream output, final String status,
+        final String headers) throws IOException {
+        output.write(
+            String.format(
+                "HTTP/1.1 %s\r\n%sConnection: close\r\nContent-Length: 0\r\n\r\n",
+                status, headers
+            ).getBytes(StandardCharsets.US_ASCII)
+        );
+        output.flush();
+    }
+
+    /**
+     * Print the page, waiting for it if it's an {@link AsyncPage}.
+     */
+    static Output printed(final Page page, final Output output)
+        throws IOException, ExecutionException {
+        if (!(page instanceof AsyncPage)) {
+            return page.printTo(output);
+        }
+        try {
+            return ((AsyncPage) page).printAsync(output).toCompletableFuture().get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while the page was printed");
+        }
+    }
+
+    static boolean drained(final InputStream body) throws IOException {
+        final byte[] skip = new byte[4096];
+        long left = App.DRAIN;
+        while (left > 0L) {
+            final int read = body.read(skip, 0, (int) Math.min(skip.length, left));
+            if (read < 0) {
+                return true;
+            }
+            left -= read;
+        }
+        return body.read() < 0;
+    }
+
     public static void main(final String... args) throws IOException {
         final Page timePage = new Page() {
             @Override
@@ -121,23 +799,30 @@ public final class App {
             }
         };
 
+        final Metrics metrics = new Metrics();
         final App app = new App(
             new PageWithRoutes(
-                "/robots.txt",
-                new TextPage("Kill all humans!"), // success
-                new PageWithRoutes(               // failure
-                    "/debug",
-                    new KeyValuePage(),           // success
-                    new PageWithRoutes(           // failure
-                        "/time",
-                        timePage,                 // success
-                        new PageWithContentType(  // failure
-                                new HtmlTextPage("Hi, <b>Bobby</b>!"),
-                                "text/html"
+                "/metrics",
+                new MetricsPage(metrics),             // success
+                new PageWithRoutes(                   // failure
+                    "/robots.txt",
+                    new CachedPage(new TextPage("Kill all humans!")), // success
+                    new PageWithRoutes(               // failure
+                        "/debug",
+                        new KeyValuePage(),           // success
+                        new PageWithRoutes(           // failure
+                            "/time",
+                            new CachedPage(timePage, Duration.ofSeconds(1L)), // success
+                            new PageWithContentType(  // failure
+                                    new HtmlTextPage("Hi, <b>Bobby</b>!"),
+                                    "text/html"
+                            )
                         )
                     )
                 )
-            )
+            ),
+            10,
+            metrics
         );
 
         try {
@@ -148,4 +833,123 @@ public final class App {
         }
     }
 
+    /**
+     * The body of a request, where every read must get its bytes in time,
+     * while the page may take as long as it needs between the reads.
+     */
+    private static final class TimedBody extends InputStream {
+
+        private final InputStream origin;
+        private final Deadline deadline;
+        private final long nanos;
+
+        TimedBody(final InputStream origin, final Deadline deadline, final long nanos) {
+            this.origin = origin;
+            this.deadline = deadline;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final long before = this.deadline.push(this.nanos);
+            try {
+                return this.origin.read();
+            } finally {
+                this.deadline.restore(before);
+            }
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int off, final int len)
+            throws IOException {
+            final long before = this.deadline.push(this.nanos);
+            try {
+                return this.origin.read(bytes, off, len);
+            } finally {
+                this.deadline.restore(before);
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            return this.origin.available();
+        }
+    }
+
+    /**
+     * The stream to the socket, where every write must be done in time.
+     */
+    private static final class Timed extends OutputStream {
+
+        private final OutputStream origin;
+        private final Deadline deadline;
+        private final long nanos;
+
+        Timed(final OutputStream origin, final Deadline deadline, final long nanos) {
+            this.origin = origin;
+            this.deadline = deadline;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public void write(final int data) throws IOException {
+            final long before = this.deadline.push(this.nanos);
+            try {
+                this.origin.write(data);
+            } finally {
+                this.deadline.restore(before);
+            }
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int off, final int len)
+            throws IOException {
+            final long before = this.deadline.push(this.nanos);
+            try {
+                this.origin.write(bytes, off, len);
+            } finally {
+                this.deadline.restore(before);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.origin.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.origin.close();
+        }
+    }
+
+    /**
+     * The state of a started server, shared with stop().
+     */
+    private static final class Running {
+
+        private final List<ServerSocket> servers;
+        private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+        private final Set<Socket> idle = ConcurrentHashMap.newKeySet();
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private final Wheel wheel = new Wheel();
+        private final CountDownLatch exited = new CountDownLatch(1);
+        private volatile boolean stopping;
+
+        Running(final List<ServerSocket> sockets) throws IOException {
+            this.servers = sockets;
+            for (final ServerSocket server : sockets) {
+                server.setSoTimeout(1000);
+            }
+        }
+
+        /**
+         * Close all the listeners.
+         */
+        void close() throws IOException {
+            for (final ServerSocket server : this.servers) {
+                server.close();
+            }
+        }
+    }
 }
@@ -2,16 +2,10 @@ package org.elegantobjects.jpages.App1;
 
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
-import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.elegantobjects.jpages.LibraryApp.common.util.log.ILog;
+import org.elegantobjects.jpages.LibraryApp.domain.Context;
 
 public final class App1 extends IOException {
 
@@ -27,181 +21,73 @@ public final class App1 extends IOException {
         void print(String name, String value) throws IOException;
     }
 
-    private final Session session;
+    // The resources are served by the App engine, with its threads and keep-alive
+    private final transient App app;
 
     public App1(Session session) {
-        this.session = session;
+        this(session, 10);
     }
 
-    public static class Session {
-
-        private final Resource resource;
-        private Map<String, String> params;
-
-        public Session(Resource resource) {
-            this.resource = resource;
-        }
-
-        String request(String request) {
-            String[] lines = request.split("\r\n");
-
-            params = parseRequest(lines);
-            parseRequestMethodQueryAndProtocol(lines, params);
-            populateResourceWith(params);
-
-            // Make the request & return the response
-            try {
-                final StringBuilder builder = new StringBuilder();
-                final StringBuilderOutput output1 = new StringBuilderOutput(builder);
-                final StringOutput output = new StringOutput("");
-
-                // Make the request - simple echo for now
-                resource.printTo(output);
-
-                //return builder.toString();
-                return output.toString();
-            } catch (IOException e) {
-                throw new IllegalStateException(e);
-            }
-        }
-
-        public String toString() {
-            return params.entrySet().stream()
-                .map(entry ->
-                    entry.getKey() + "=" + entry.getValue())
-                .reduce("", (a, b) -> a + "\n" + b);
-        }
-
-        private Map<String, String> parseRequest(String[] lines) {
-            Map<String, String> params = new HashMap<>();
-
-            for (String line : lines) {
-                String[] parts = line.split(":");
-                if (parts.length == 2) {
-                    params.put(parts[0].trim(), parts[1].trim());
-                }
-            }
-
-            return params;
-        }
-
-        private void parseRequestMethodQueryAndProtocol(
-                String[] lines,
-                Map<String, String> params
-        ) {
-            String[] parts = lines[0].split(" ");
-            params.put("X-Method", parts[0]);
-            params.put("X-Query", parts[1]);
-            params.put("X-Protocol", parts[2]);
-        }
+    public App1(Session session, int threads) {
+        this.app = new App(session.page(), threads);
+    }
 
-        private void populateResourceWith(Map<String, String> params) {
-            for (Map.Entry<String, String> entry : params.entrySet()) {
-                resource.define(entry.getKey(), entry.getValue());
-            }
-        }
+    // The events are pushed to whoever asks for "/events", the resources serve the rest;
+    // every subscriber keeps a thread while it's connected, so there is no pool to run out of
+    public App1(Session session, Events events) {
+        this.app = new App(
+            new PageWithRoutes("/events", events.page(), session.page()),
+            new VirtualThreads()
+        );
     }
 
-    static class StringBuilderOutput implements Output {
-        private StringBuilder builder = new StringBuilder();
+    // The library whose repos publish every book and library they save to the events
+    public static Context context(ILog log, Events events) {
+        return Context.setupProductionInstance(
+            log,
+            book -> events.publish("book", book),
+            library -> events.publish("library", library)
+        );
+    }
 
-        public StringBuilderOutput(StringBuilder builder) {
-            this.builder = builder;
-        }
+    public static class Session {
 
-        public String toString() {
-            return this.builder.toString();
-        }
+        private final Supplier<Resource> resources;
 
-        @Override
-        public void print(final String name, final String value) {
-            // For first line, add the status
-            if (builder.length() == 0) {
-                builder.append("HTTP/1.1 200 OK\r\n");
-            }
-
-            // If body, add blank line
-            if (name.equals("X-Body")) {
-                builder.append("\r\n")
-                        .append(value);
-            } else {
-                // add a header
-                builder.append(name)
-                        .append(": ")
-                        .append(value)
-                        .append("\r\n");
-            }
+        // The resource is shared by all requests, so it has to be thread-safe
+        public Session(Resource resource) {
+            this(() -> resource);
         }
-    }
-
-    static class StringOutput implements Output {
-        private String string = "";
 
-        public StringOutput(String string) {
-            this.string = string;
+        // Every request gets a new resource from the factory
+        public Session(Supplier<Resource> factory) {
+            this.resources = factory;
         }
 
-
-        public String toString() {
-            return this.string;
+        String request(String request) {
+            // Nothing is kept between requests, every one gets its own page
+            return new org.elegantobjects.jpages.App1.Session(this.page())
+                .with(request)
+                .printTo(new ByteBufferOutput())
+                .toString();
         }
 
-        @Override
-        public void print(final String name, final String value) {
-            // For first line, add the status
-            if (string.length() == 0) {
-                string += "HTTP/1.1 200 OK\r\n";
-            }
-
-            // If body, add blank line
-            if (name.equals("X-Body")) {
-                string += "\r\n" + value;
-            } else {
-                // add a header
-                string += name + ": " + value + "\r\n";
-            }
+        Page page() {
+            return new ResourcePage(this.resources);
         }
     }
 
-
-    // Start the server
+    // Start the server, it runs until interrupted or stopped
     public void start(int port) throws IOException {
-        try (ServerSocket server = new ServerSocket(port)) {
-            server.setSoTimeout(1000);
-
-            // Handle a single request
-            while (true) {
-                try (Socket socket = server.accept()) {
-                    if (Thread.currentThread().isInterrupted()) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-
-                    InputStream input = socket.getInputStream();
-                    OutputStream output = socket.getOutputStream();
-                    final byte[] buffer = new byte[1024];
-
-                    // Get the request
-                    int length = input.read(buffer);
-                    String request = new String(Arrays.copyOfRange(buffer, 0, length));
-
-                    // Make the request
-                    String response = this.session.request(request);
-
-                    // Send the response
-                    output.write(response.getBytes());
-
-                } catch (final SocketTimeoutException ex) {
-                    break;
-                } catch (IOException e) {
-                    throw new IllegalStateException(e);
-                } catch (Exception e) {
-                    // breaks the loop
-                    // break; // todo is this a better way to break the loop?
-                    throw e;
-                }
-
-            }
+        try {
+            this.app.start(port);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+
+    // Stop the server, waiting for requests in flight
+    public void stop(Duration timeout) throws IOException, InterruptedException {
+        this.app.stop(timeout);
+    }
+}
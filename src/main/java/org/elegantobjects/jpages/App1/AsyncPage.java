@@ -0,0 +1,47 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The page that prints itself later.
+ *
+ * <p>A page that waits for a database, a repository or another server
+ * returns a stage instead of blocking. {@link SelectorApp} leaves the
+ * connection aside until the stage completes and writes the response
+ * then, so its loop keeps serving others. {@link App} simply waits
+ * for it on the worker thread. A few lookups may run in parallel and
+ * be combined in one page with
+ * {@link CompletionStage#thenCombine}.</p>
+ *
+ * <p>The output given must be printed into and returned by the stage,
+ * the same way {@link Page#printTo(Output)} does it.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public interface AsyncPage extends Page {
+    CompletionStage<Output> printAsync(Output output);
+}
@@ -0,0 +1,115 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The pool of byte buffers, all of the same size.
+ *
+ * <p>The pool is a slab of slots, each empty or holding a buffer, and
+ * both {@link #borrow()} and {@link #release(ByteBuffer)} take the
+ * first suitable slot with a CAS, starting from a place that depends
+ * on the thread, so threads rarely meet on one slot. Nothing is locked
+ * and, once the pool is warm, nothing is allocated. When the pool is
+ * empty a new buffer is allocated, and when it's full a released
+ * buffer is left to the GC; {@link Metrics} count both, along with the
+ * buffers borrowed and not returned yet, which must be zero when no
+ * connection is open, or there is a leak.</p>
+ *
+ * <p>Buffers are on the heap, since blocking streams read into and
+ * write from arrays. With assertions on, as in tests, a buffer
+ * returned twice is caught.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Buffers {
+
+    private final int size;
+    private final AtomicReferenceArray<ByteBuffer> slab;
+    private final Metrics metrics;
+
+    /**
+     * Ctor.
+     * @param bytes Size of every buffer
+     * @param count How many buffers to keep at most
+     * @param mtx Where to count them
+     */
+    public Buffers(final int bytes, final int count, final Metrics mtx) {
+        this.size = bytes;
+        this.slab = new AtomicReferenceArray<>(count);
+        this.metrics = mtx;
+    }
+
+    /**
+     * Take a buffer, empty and ready to be written into.
+     * @return The buffer, to be released when not needed any more
+     */
+    public ByteBuffer borrow() {
+        final int length = this.slab.length();
+        final int start = Buffers.start(length);
+        for (int step = 0; step < length; ++step) {
+            final int idx = (start + step) % length;
+            final ByteBuffer buffer = this.slab.get(idx);
+            if (buffer != null && this.slab.compareAndSet(idx, buffer, null)) {
+                this.metrics.borrowed(true);
+                buffer.clear();
+                return buffer;
+            }
+        }
+        this.metrics.borrowed(false);
+        return ByteBuffer.allocate(this.size);
+    }
+
+    /**
+     * Give the buffer back, it must not be touched after that.
+     * @param buffer The buffer taken by {@link #borrow()}
+     */
+    public void release(final ByteBuffer buffer) {
+        assert !this.pooled(buffer) : "The buffer is released twice";
+        final int length = this.slab.length();
+        final int start = Buffers.start(length);
+        boolean kept = false;
+        for (int step = 0; step < length && !kept; ++step) {
+            final int idx = (start + step) % length;
+            kept = this.slab.get(idx) == null && this.slab.compareAndSet(idx, null, buffer);
+        }
+        this.metrics.returned(kept);
+    }
+
+    private boolean pooled(final ByteBuffer buffer) {
+        for (int idx = 0; idx < this.slab.length(); ++idx) {
+            if (this.slab.get(idx) == buffer) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int start(final int length) {
+        return (int) (Thread.currentThread().getId() % length);
+    }
+}
@@ -0,0 +1,329 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The output, written right into a byte buffer.
+ *
+ * <p>Unlike {@link SimpleTextOutput} it's mutable: every
+ * {@link #with(String, String)} appends to the same buffer and returns
+ * this very object, so nothing is copied until the bytes go out. The
+ * buffer is given from outside, to be reused from one response to the
+ * next; if the response doesn't fit, a bigger one is allocated for this
+ * response only. The body is encoded as UTF-8.</p>
+ *
+ * <p>A binary body is not copied into the buffer, it's written after it:
+ * a file region goes with {@link FileChannel#transferTo}, which is
+ * sendfile(2) when the target is a socket channel. The file is closed
+ * when it's all sent, or by {@link #close()} if it never will be.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class ByteBufferOutput implements BinaryOutput, Closeable {
+
+    private static final byte[] STATUS =
+        "HTTP/1.1 200 OK\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private ByteBuffer buffer;
+    private CharsetEncoder encoder;
+    private int status;
+    private boolean body;
+    private ByteBuffer pending;
+    private ByteBuffer tail;
+    private FileChannel file;
+    private long position;
+    private long count;
+
+    public ByteBufferOutput() {
+        this(ByteBuffer.allocate(8192));
+    }
+
+    public ByteBufferOutput(final ByteBuffer buffer) {
+        buffer.clear();
+        this.buffer = buffer;
+    }
+
+    @Override
+    public String toString() {
+        final ByteBuffer bytes = this.bytes();
+        final byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        return new String(array, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Output with(final String name, final String value) {
+        if ("X-Status".equals(name)) {
+            this.status(value);
+            return this;
+        }
+        if (this.buffer.position() == 0) {
+            this.ensure(ByteBufferOutput.STATUS.length);
+            this.buffer.put(ByteBufferOutput.STATUS);
+            this.status = this.buffer.position();
+        }
+        if ("X-Body".equals(name)) {
+            this.ascii("\r\n");
+            this.utf(value);
+            this.body = true;
+        } else {
+            this.ascii(name);
+            this.ascii(": ");
+            this.ascii(value);
+            this.ascii("\r\n");
+        }
+        return this;
+    }
+
+    @Override
+    public Output withBody(final ByteBuffer bytes) {
+        this.with("X-Body", "");
+        this.tail = bytes.duplicate();
+        return this;
+    }
+
+    @Override
+    public Output withBody(final FileChannel channel, final long pos, final long size) {
+        this.with("X-Body", "");
+        this.file = channel;
+        this.position = pos;
+        this.count = size;
+        return this;
+    }
+
+    @Override
+    public void writeTo(final OutputStream output) throws IOException {
+        // A duplicate, not the read-only view, to keep the array reachable
+        final ByteBuffer bytes = this.buffer.duplicate();
+        bytes.flip();
+        try {
+            ByteBufferOutput.write(bytes, output);
+            if (this.tail != null) {
+                ByteBufferOutput.write(this.tail.duplicate(), output);
+            }
+        } catch (final IOException ex) {
+            this.close();
+            throw ex;
+        }
+        if (this.file != null) {
+            this.transfer(Channels.newChannel(output));
+        }
+    }
+
+    /**
+     * Write as much as the channel takes, without blocking if it doesn't.
+     * @param channel The channel, blocking or not
+     * @return TRUE if everything is written, FALSE if there's more to go
+     */
+    public boolean writeTo(final WritableByteChannel channel) throws IOException {
+        if (this.pending == null) {
+            this.pending = this.bytes();
+        }
+        if (!ByteBufferOutput.drain(this.pending, channel)) {
+            return false;
+        }
+        if (this.tail != null && !ByteBufferOutput.drain(this.tail, channel)) {
+            return false;
+        }
+        return this.file == null || this.transfer(channel);
+    }
+
+    /**
+     * Let the file go, if its region is not all sent yet, like when the
+     * client is gone in the middle of it.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.file != null) {
+            this.file.close();
+        }
+    }
+
+    /**
+     * The bytes of the status line, headers and text body printed so far,
+     * without copying them.
+     * @return A read-only view, ready to be read or written to a channel
+     */
+    public ByteBuffer bytes() {
+        final ByteBuffer view = this.buffer.asReadOnlyBuffer();
+        view.flip();
+        return view;
+    }
+
+    /**
+     * Put the status line first, instead of the default one.
+     */
+    private void status(final String value) {
+        if (this.body) {
+            throw new IllegalStateException("The status can't change after the body");
+        }
+        final byte[] line = String.format("HTTP/1.1 %s\r\n", value)
+            .getBytes(StandardCharsets.US_ASCII);
+        final int headers = this.buffer.position() - this.status;
+        this.ensure(line.length - this.status);
+        if (headers > 0) {
+            final ByteBuffer moved = this.buffer.duplicate();
+            moved.position(this.status);
+            moved.limit(this.status + headers);
+            final byte[] copy = new byte[headers];
+            moved.get(copy);
+            this.buffer.position(0);
+            this.buffer.put(line);
+            this.buffer.put(copy);
+        } else {
+            this.buffer.position(0);
+            this.buffer.put(line);
+        }
+        this.status = line.length;
+    }
+
+    private void ascii(final String text) {
+        final int length = text.length();
+        this.ensure(length);
+        for (int idx = 0; idx < length; ++idx) {
+            this.buffer.put((byte) text.charAt(idx));
+        }
+    }
+
+    private void utf(final String text) {
+        // Most bodies are ASCII and need no encoder at all
+        if (ByteBufferOutput.plain(text)) {
+            this.ascii(text);
+            return;
+        }
+        if (this.encoder == null) {
+            this.encoder = StandardCharsets.UTF_8.newEncoder();
+        }
+        this.encoder.reset();
+        final CharBuffer chars = CharBuffer.wrap(text);
+        this.ensure(text.length());
+        while (true) {
+            final CoderResult result = this.encoder.encode(chars, this.buffer, true);
+            if (result.isOverflow()) {
+                this.ensure(Math.max(chars.remaining(), 16) * 3);
+                continue;
+            }
+            if (result.isError()) {
+                this.ensure(3);
+                this.buffer.put((byte) '?');
+                chars.position(chars.position() + result.length());
+                continue;
+            }
+            break;
+        }
+        this.encoder.flush(this.buffer);
+    }
+
+    private static boolean plain(final String text) {
+        final int length = text.length();
+        for (int idx = 0; idx < length; ++idx) {
+            if (text.charAt(idx) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensure(final int bytes) {
+        if (this.buffer.remaining() >= bytes) {
+            return;
+        }
+        final int capacity = Math.max(
+            this.buffer.capacity() * 2, this.buffer.position() + bytes
+        );
+        final ByteBuffer bigger;
+        if (this.buffer.isDirect()) {
+            bigger = ByteBuffer.allocateDirect(capacity);
+        } else {
+            bigger = ByteBuffer.allocate(capacity);
+        }
+        this.buffer.flip();
+        bigger.put(this.buffer);
+        this.buffer = bigger;
+    }
+
+    /**
+     * Send the file region and close the file once it's all sent.
+     * @return FALSE if the channel takes no more for now
+     */
+    private boolean transfer(final WritableByteChannel channel) throws IOException {
+        try {
+            while (this.count > 0L) {
+                final long sent = this.file.transferTo(this.position, this.count, channel);
+                if (sent == 0L) {
+                    if (this.position >= this.file.size()) {
+                        throw new IOException("The file got shorter while being sent");
+                    }
+                    return false;
+                }
+                this.position += sent;
+                this.count -= sent;
+            }
+        } catch (final IOException ex) {
+            this.file.close();
+            throw ex;
+        }
+        this.file.close();
+        return true;
+    }
+
+    private static boolean drain(final ByteBuffer bytes, final WritableByteChannel channel)
+        throws IOException {
+        while (bytes.hasRemaining()) {
+            if (channel.write(bytes) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void write(final ByteBuffer bytes, final OutputStream output)
+        throws IOException {
+        if (bytes.hasArray()) {
+            output.write(
+                bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining()
+            );
+            return;
+        }
+        final byte[] chunk = new byte[Math.min(8192, bytes.remaining())];
+        while (bytes.hasRemaining()) {
+            final int size = Math.min(chunk.length, bytes.remaining());
+            bytes.get(chunk, 0, size);
+            output.write(chunk, 0, size);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * The page that is rendered once and served from memory afterwards.
+ *
+ * <p>The decorated page must not depend on the request, since it never
+ * sees it. The response goes out with an ETag, and a request that
+ * already has it in If-None-Match gets 304 Not Modified. When a time
+ * to live is given, the page is rendered again once it expires, which
+ * suits pages that change now and then, like a clock; one request
+ * renders it then, while the others get the expired copy meanwhile.</p>
+ *
+ * <p>Only GET and HEAD are answered from memory, other methods go to
+ * the page every time. A 304 has the Content-Length of the body it
+ * stands for, as HEAD does.</p>
+ *
+ * <p>A page that prints a file of more than a few megabytes is not
+ * kept, it's printed for every request, with no ETag.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class CachedPage implements SelectivePage {
+
+    private final Page page;
+    private final long ttl;
+    private final AtomicReference<Rendered> cache;
+    private final String method;
+    private final String match;
+
+    public CachedPage(final Page page) {
+        this(page, Duration.ZERO);
+    }
+
+    public CachedPage(final Page page, final Duration ttl) {
+        this(page, ttl.toNanos(), new AtomicReference<>(), "", "");
+    }
+
+    private CachedPage(final Page page, final long ttl,
+        final AtomicReference<Rendered> cache, final String method, final String match) {
+        this.page = page;
+        this.ttl = ttl;
+        this.cache = cache;
+        this.method = method;
+        this.match = match;
+    }
+
+    @Override
+    public Page with(final String key, final String value) {
+        if ("X-Method".equals(key)) {
+            return new CachedPage(this.page, this.ttl, this.cache, value, this.match);
+        }
+        if ("If-None-Match".equalsIgnoreCase(key)) {
+            return new CachedPage(this.page, this.ttl, this.cache, this.method, value);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean wants(final String key) {
+        return "X-Method".equals(key) || "If-None-Match".equalsIgnoreCase(key);
+    }
+
+    @Override
+    public Output printTo(final Output output) {
+        if (!this.method.isEmpty() && !"GET".equals(this.method)
+            && !"HEAD".equals(this.method)) {
+            return this.page.printTo(output);
+        }
+        final Rendered rendered = this.rendered();
+        if (!rendered.output.complete()) {
+            // Too big to keep, so the page prints it every time
+            if ("HEAD".equals(this.method)) {
+                return rendered.output.head(output).with("X-Body", "");
+            }
+            return this.page.printTo(output);
+        }
+        final Output tagged = output.with("ETag", rendered.etag);
+        if (this.matches(rendered.etag)) {
+            return tagged
+                .with("X-Status", "304 Not Modified")
+                .with("Content-Length", Integer.toString(rendered.output.body().remaining()))
+                .with("X-Body", "");
+        }
+        if ("HEAD".equals(this.method)) {
+            return rendered.output.head(tagged).with("X-Body", "");
+        }
+        return rendered.output.replay(tagged);
+    }
+
+    /**
+     * The response, rendered again if the cached one has expired, by
+     * one thread, while the others take the expired one.
+     */
+    private Rendered rendered() {
+        final Rendered current = this.cache.get();
+        final long now = System.nanoTime();
+        if (current != null && (this.ttl <= 0L || now - current.born < this.ttl)) {
+            return current;
+        }
+        if (current != null && !current.refreshing.compareAndSet(false, true)) {
+            return current;
+        }
+        final Rendered fresh;
+        try {
+            fresh = new Rendered(this.page, now);
+        } catch (final RuntimeException ex) {
+            if (current != null) {
+                current.refreshing.set(false);
+            }
+            throw ex;
+        }
+        if (this.cache.compareAndSet(current, fresh)) {
+            return fresh;
+        }
+        return this.cache.get();
+    }
+
+    /**
+     * Does If-None-Match of the request list this tag?
+     */
+    private boolean matches(final String etag) {
+        if (this.match.isEmpty()) {
+            return false;
+        }
+        for (final String part : this.match.split(",")) {
+            final String tag = part.trim();
+            if ("*".equals(tag) || etag.equals(tag)
+                || tag.startsWith("W/") && etag.equals(tag.substring(2))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The response of the page, rendered at a moment.
+     */
+    private static final class Rendered {
+
+        private final RecordedOutput output;
+        private final String etag;
+        private final long born;
+        private final AtomicBoolean refreshing;
+
+        Rendered(final Page page, final long born) {
+            this.output = new RecordedOutput();
+            page.printTo(new OutputWithLength(this.output));
+            final CRC32 crc = new CRC32();
+            crc.update(this.output.body());
+            this.etag = String.format(
+                "\"%08x-%x\"", crc.getValue(), this.output.body().remaining()
+            );
+            this.born = born;
+            this.refreshing = new AtomicBoolean();
+        }
+    }
+}
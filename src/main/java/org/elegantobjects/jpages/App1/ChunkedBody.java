@@ -0,0 +1,140 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The body of a request in chunked transfer coding, decoded on the fly.
+ *
+ * <p>Chunk extensions and trailers are read and dropped.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class ChunkedBody extends InputStream {
+
+    private static final int LINE = 1024;
+
+    private final InputStream origin;
+    private long left;
+    private boolean pending;
+    private boolean last;
+
+    public ChunkedBody(final InputStream input) {
+        this.origin = input;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.chunk()) {
+            return -1;
+        }
+        final int chr = this.origin.read();
+        if (chr < 0) {
+            throw new IOException("The body ended in the middle of a chunk");
+        }
+        --this.left;
+        return chr;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!this.chunk()) {
+            return -1;
+        }
+        final int read = this.origin.read(bytes, off, (int) Math.min(len, this.left));
+        if (read < 0) {
+            throw new IOException("The body ended in the middle of a chunk");
+        }
+        this.left -= read;
+        return read;
+    }
+
+    /**
+     * Make sure there are bytes left in the current chunk.
+     * @return FALSE if the last chunk is over
+     */
+    private boolean chunk() throws IOException {
+        if (this.left > 0L) {
+            return true;
+        }
+        if (this.last) {
+            return false;
+        }
+        // The data of the previous chunk is followed by CRLF
+        if (this.pending && !this.line().isEmpty()) {
+            throw new BadRequest("400 Bad Request");
+        }
+        this.left = ChunkedBody.size(this.line());
+        this.pending = true;
+        if (this.left == 0L) {
+            // Trailers, up to the empty line
+            while (!this.line().isEmpty()) {
+                continue;
+            }
+            this.last = true;
+            return false;
+        }
+        return true;
+    }
+
+    private String line() throws IOException {
+        final StringBuilder line = new StringBuilder();
+        while (true) {
+            final int chr = this.origin.read();
+            if (chr < 0) {
+                throw new IOException("The body ended in the middle of a chunk size");
+            }
+            if (chr == '\n') {
+                break;
+            }
+            if (chr != '\r') {
+                if (line.length() == ChunkedBody.LINE) {
+                    throw new BadRequest("400 Bad Request");
+                }
+                line.append((char) chr);
+            }
+        }
+        return line.toString();
+    }
+
+    private static long size(final String line) throws BadRequest {
+        final int semicolon = line.indexOf(';');
+        final String hex = (semicolon < 0 ? line : line.substring(0, semicolon)).trim();
+        try {
+            final long size = Long.parseLong(hex, 16);
+            if (size < 0L) {
+                throw new BadRequest("400 Bad Request");
+            }
+            return size;
+        } catch (final NumberFormatException ex) {
+            throw new BadRequest("400 Bad Request");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The output that sends its body in chunks, as it's printed.
+ *
+ * <p>Headers are kept in the head output until the first "X-Body",
+ * then the head goes out with "Transfer-Encoding: chunked". Every
+ * "X-Body" after that is one more chunk, written and flushed right
+ * away, so the client starts getting the response before the page has
+ * it all and nothing has to hold the whole body. A binary body is a
+ * chunk too, and a file region goes in chunks of 16 KiB. A Content-Length the
+ * page prints is dropped, since the chunks frame the body instead.
+ * {@link #writeTo(OutputStream)} closes the body with the last, empty
+ * chunk, and must be given the same stream.</p>
+ *
+ * <p>Unlike other outputs, this one is mutable and writes to the
+ * network from {@link #with(String, String)}; if the client is gone,
+ * it throws {@link UncheckedIOException}.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class ChunkedOutput implements BinaryOutput {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * How much of a file goes in one chunk.
+     */
+    private static final int REGION = 16384;
+
+    private static final byte[] LAST =
+        "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream stream;
+    private Output head;
+    private boolean started;
+
+    /**
+     * Ctor.
+     * @param output Where the status line and headers are printed
+     * @param stream Where the response goes, usually the socket
+     */
+    public ChunkedOutput(final Output output, final OutputStream stream) {
+        this.head = output;
+        this.stream = stream;
+    }
+
+    @Override
+    public Output with(final String name, final String value) {
+        if ("X-Body".equals(name)) {
+            try {
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                this.chunk(bytes, bytes.length);
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        } else if (this.started) {
+            throw new IllegalStateException(
+                String.format("The header \"%s\" can't go after the body", name)
+            );
+        } else if (!"Content-Length".equalsIgnoreCase(name)
+            && !"Transfer-Encoding".equalsIgnoreCase(name)) {
+            this.head = this.head.with(name, value);
+        }
+        return this;
+    }
+
+    @Override
+    public Output withBody(final ByteBuffer body) {
+        final ByteBuffer bytes = body.duplicate();
+        final byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        try {
+            this.chunk(array, array.length);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    @Override
+    public Output withBody(final FileChannel file, final long position, final long count) {
+        try (final FileChannel channel = file) {
+            final ByteBuffer chunk = ByteBuffer.allocate(
+                (int) Math.min(ChunkedOutput.REGION, Math.max(count, 1L))
+            );
+            long pos = position;
+            long left = count;
+            while (left > 0L) {
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), left));
+                final int read = channel.read(chunk, pos);
+                if (read <= 0) {
+                    throw new IOException("The file got shorter while being sent");
+                }
+                pos += read;
+                left -= read;
+                this.chunk(chunk.array(), read);
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    @Override
+    public void writeTo(final OutputStream output) throws IOException {
+        this.start();
+        output.write(ChunkedOutput.LAST);
+    }
+
+    private void chunk(final byte[] bytes, final int length) throws IOException {
+        this.start();
+        // An empty chunk would end the body, so it's not sent at all
+        if (length == 0) {
+            return;
+        }
+        this.stream.write(
+            Integer.toHexString(length).getBytes(StandardCharsets.US_ASCII)
+        );
+        this.stream.write(ChunkedOutput.CRLF);
+        this.stream.write(bytes, 0, length);
+        this.stream.write(ChunkedOutput.CRLF);
+        this.stream.flush();
+    }
+
+    private void start() throws IOException {
+        if (!this.started) {
+            this.started = true;
+            this.head.with("Transfer-Encoding", "chunked")
+                .with("X-Body", "")
+                .writeTo(this.stream);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The output that compresses the body with gzip or deflate.
+ *
+ * <p>Content-Length of the page is held back until the body arrives,
+ * since only then it's clear whether the body is big enough to be worth
+ * compressing. Bodies below the threshold, partial content, bodies
+ * already encoded and types like images or archives go out as they are.
+ * File regions go out as they are too, so that they still travel
+ * by transferTo. The origin must be a {@link BinaryOutput}, otherwise
+ * nothing is compressed.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class CompressedOutput implements BinaryOutput {
+
+    /**
+     * How many bytes are fed to the compressor at once.
+     */
+    private static final int CHUNK = 8192;
+
+    private final Output origin;
+    private final String encoding;
+    private final int threshold;
+    private final String length;
+    private final boolean plain;
+
+    public CompressedOutput(final Output output, final String encoding) {
+        this(output, encoding, 1024);
+    }
+
+    public CompressedOutput(final Output output, final String encoding,
+        final int threshold) {
+        this(output, encoding, threshold, "", !(output instanceof BinaryOutput));
+    }
+
+    private CompressedOutput(final Output output, final String encoding,
+        final int threshold, final String length, final boolean plain) {
+        this.origin = output;
+        this.encoding = encoding;
+        this.threshold = threshold;
+        this.length = length;
+        this.plain = plain;
+    }
+
+    @Override
+    public String toString() {
+        return this.origin.toString();
+    }
+
+    @Override
+    public Output with(final String name, final String value) {
+        if (this.plain) {
+            return this.origin.with(name, value);
+        }
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            return new CompressedOutput(
+                this.origin, this.encoding, this.threshold, value, false
+            );
+        }
+        if ("X-Body".equals(name)) {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length < this.threshold) {
+                return this.held().with(name, value);
+            }
+            return this.compressed(ByteBuffer.wrap(bytes));
+        }
+        if ("Content-Encoding".equalsIgnoreCase(name)
+            || "Content-Range".equalsIgnoreCase(name)
+            || "X-Status".equals(name) && value.startsWith("206")
+            || "Content-Type".equalsIgnoreCase(name) && !CompressedOutput.compressible(value)) {
+            return this.held().with(name, value);
+        }
+        return new CompressedOutput(
+            this.origin.with(name, value), this.encoding, this.threshold, this.length, false
+        );
+    }
+
+    @Override
+    public Output withBody(final ByteBuffer body) {
+        if (this.plain || body.remaining() < this.threshold) {
+            return ((BinaryOutput) this.held()).withBody(body);
+        }
+        return this.compressed(body);
+    }
+
+    @Override
+    public Output withBody(final FileChannel file, final long position, final long count) {
+        return ((BinaryOutput) this.held()).withBody(file, position, count);
+    }
+
+    @Override
+    public void writeTo(final OutputStream output) throws IOException {
+        this.held().writeTo(output);
+    }
+
+    /**
+     * The origin with the Content-Length held back so far, if any.
+     */
+    private Output held() {
+        if (this.length.isEmpty()) {
+            return this.origin;
+        }
+        return this.origin.with("Content-Length", this.length);
+    }
+
+    /**
+     * The origin with the body compressed.
+     */
+    private Output compressed(final ByteBuffer body) {
+        final ByteBuffer bytes = CompressedOutput.deflated(body, this.encoding);
+        return ((BinaryOutput) this.origin
+            .with("Content-Encoding", this.encoding)
+            .with("Content-Length", Integer.toString(bytes.remaining())))
+            .withBody(bytes);
+    }
+
+    /**
+     * Compress the bytes chunk by chunk, without copying them all first.
+     * @param body The bytes to compress
+     * @param encoding Either "gzip" or "deflate"
+     * @return Compressed bytes
+     */
+    static ByteBuffer deflated(final ByteBuffer body, final String encoding) {
+        final ByteBuffer source = body.duplicate();
+        final ByteArrayOutputStream bytes =
+            new ByteArrayOutputStream(source.remaining() / 4 + 64);
+        try (OutputStream stream = "gzip".equals(encoding)
+            ? new GZIPOutputStream(bytes, CompressedOutput.CHUNK)
+            : new DeflaterOutputStream(bytes)) {
+            if (source.hasArray()) {
+                stream.write(
+                    source.array(), source.arrayOffset() + source.position(), source.remaining()
+                );
+            } else {
+                final byte[] chunk = new byte[Math.min(source.remaining(), CompressedOutput.CHUNK)];
+                while (source.hasRemaining()) {
+                    final int size = Math.min(source.remaining(), chunk.length);
+                    source.get(chunk, 0, size);
+                    stream.write(chunk, 0, size);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * Is it worth compressing content of this type?
+     */
+    private static boolean compressible(final String type) {
+        final String mime = type.toLowerCase(Locale.ENGLISH);
+        return mime.startsWith("text/")
+            || mime.contains("json")
+            || mime.contains("javascript")
+            || mime.contains("xml")
+            || mime.startsWith("application/x-www-form-urlencoded");
+    }
+}
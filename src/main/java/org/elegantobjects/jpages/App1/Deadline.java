@@ -0,0 +1,130 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The deadline in a {@link Wheel}, armed and disarmed again and again.
+ *
+ * <p>A connection keeps one of them for its whole life and arms it for
+ * every stage: waiting for a request, reading its head, reading its
+ * body, writing the response. When the deadline expires, the action
+ * runs, once, on the thread of the wheel.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Deadline {
+
+    /**
+     * The time of a disarmed deadline.
+     */
+    static final long OFF = Long.MIN_VALUE;
+
+    private final Wheel wheel;
+    private final Runnable action;
+    private final AtomicLong time;
+    private final AtomicBoolean inside;
+
+    Deadline(final Wheel whl, final Runnable act) {
+        this.wheel = whl;
+        this.action = act;
+        this.time = new AtomicLong(Deadline.OFF);
+        this.inside = new AtomicBoolean();
+    }
+
+    /**
+     * Expire in so many nanoseconds from now, instead of whenever it was.
+     * @param nanos How long from now
+     */
+    public void arm(final long nanos) {
+        this.time.set(System.nanoTime() + nanos);
+        if (this.inside.compareAndSet(false, true)) {
+            this.wheel.add(this);
+        }
+    }
+
+    /**
+     * Never expire, until armed again.
+     */
+    public void disarm() {
+        this.time.set(Deadline.OFF);
+    }
+
+    /**
+     * Expire in so many nanoseconds from now, for a while.
+     * @param nanos How long from now
+     * @return The time to get back to, by {@link #restore(long)}
+     */
+    long push(final long nanos) {
+        final long before = this.time.get();
+        this.arm(nanos);
+        return before;
+    }
+
+    /**
+     * Expire when it did before {@link #push(long)}.
+     * @param before The time it returned
+     */
+    void restore(final long before) {
+        this.time.set(before);
+        if (before != Deadline.OFF && this.inside.compareAndSet(false, true)) {
+            this.wheel.add(this);
+        }
+    }
+
+    /**
+     * When it expires, by {@link System#nanoTime()}.
+     */
+    long at() {
+        return this.time.get();
+    }
+
+    /**
+     * The wheel lets it go; if it's armed again meanwhile, it goes back.
+     */
+    void dropped() {
+        this.inside.set(false);
+        if (this.time.get() != Deadline.OFF && this.inside.compareAndSet(false, true)) {
+            this.wheel.add(this);
+        }
+    }
+
+    /**
+     * Run the action, unless the deadline was moved since the wheel
+     * saw it.
+     * @param at The time the wheel saw
+     * @return FALSE if it was moved
+     */
+    boolean expired(final long at) {
+        if (!this.time.compareAndSet(at, Deadline.OFF)) {
+            return false;
+        }
+        this.dropped();
+        this.action.run();
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The output that compresses a streamed body as it's printed.
+ *
+ * <p>Unlike {@link CompressedOutput}, it never holds the body: every
+ * "X-Body" goes through the compressor, which is flushed right away,
+ * and what comes out of it is given to the origin as a binary body, a
+ * chunk or a DATA frame. So a {@link StreamingPage} is compressed, row
+ * by row, without losing its rows on the way to the client. The origin
+ * must be a streaming {@link BinaryOutput}, a {@link ChunkedOutput} or
+ * an eager {@link Http2Output}. A Content-Length of the page is
+ * dropped, since it's not the length of what is sent. A page that sends
+ * its own Content-Encoding before the body is not compressed again.</p>
+ *
+ * <p>Like the origin, this output is mutable and writes to the
+ * network from {@link #with(String, String)}.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class DeflatingOutput implements Output {
+
+    private final String encoding;
+    private final ByteArrayOutputStream sink;
+    private final DeflaterOutputStream deflater;
+    private Output head;
+    private boolean started;
+    private boolean plain;
+
+    /**
+     * Ctor.
+     * @param output The streaming output
+     * @param encoding Either "gzip" or "deflate"
+     */
+    public DeflatingOutput(final BinaryOutput output, final String encoding) {
+        this.head = output;
+        this.encoding = encoding;
+        this.sink = new ByteArrayOutputStream(512);
+        try {
+            if ("gzip".equals(encoding)) {
+                this.deflater = new GZIPOutputStream(this.sink, true);
+            } else {
+                this.deflater = new DeflaterOutputStream(this.sink, true);
+            }
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public Output with(final String name, final String value) {
+        if (this.plain) {
+            this.head = this.head.with(name, value);
+        } else if ("X-Body".equals(name)) {
+            // An empty row would only send the marker of a flush
+            if (!value.isEmpty()) {
+                this.start();
+                try {
+                    this.deflater.write(value.getBytes(StandardCharsets.UTF_8));
+                    this.deflater.flush();
+                } catch (final IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                this.emit();
+            }
+        } else if (this.started) {
+            throw new IllegalStateException(
+                String.format("The header \"%s\" can't go after the body", name)
+            );
+        } else if ("Content-Encoding".equalsIgnoreCase(name)) {
+            // The page encodes its body itself, it goes as it is
+            this.plain = true;
+            this.head = this.head.with(name, value);
+        } else if (!"Content-Length".equalsIgnoreCase(name)) {
+            this.head = this.head.with(name, value);
+        }
+        return this;
+    }
+
+    @Override
+    public void writeTo(final OutputStream output) throws IOException {
+        if (this.started) {
+            this.deflater.close();
+            this.emit();
+        }
+        this.head.writeTo(output);
+    }
+
+    private void start() {
+        if (!this.started) {
+            this.started = true;
+            this.head = this.head.with("Content-Encoding", this.encoding);
+        }
+    }
+
+    /**
+     * Give what the compressor has made so far to the origin.
+     */
+    private void emit() {
+        if (this.sink.size() > 0) {
+            this.head = ((BinaryOutput) this.head).withBody(
+                ByteBuffer.wrap(this.sink.toByteArray())
+            );
+            this.sink.reset();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-sent events, published once and pushed to every subscriber.
+ *
+ * <p>Every call to {@link #iterator()} subscribes: the iterator gives
+ * the events, formatted for "text/event-stream", as they are published,
+ * and a comment now and then to find out if the client is still there.
+ * {@link #page()} is the page that serves them, a
+ * {@link StreamingPage}, so {@link App} sends each event to the client
+ * in a chunk the moment it's published. Every subscriber keeps a
+ * thread of its own while connected, so lots of them need an
+ * {@link App} with {@link VirtualThreads}.</p>
+ *
+ * <p>Each subscriber has a queue of its own and the queue is bounded.
+ * A subscriber that doesn't keep up and lets its queue fill is dropped,
+ * and its connection ends; the others never wait for it.</p>
+ *
+ * <p>The repositories of the library publish their changes here when
+ * they are made by {@code App1.context(log, events)}, and {@link App1}
+ * serves them on "/events" when it's given the same hub.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Events implements Iterable<String> {
+
+    /**
+     * The comment sent when there's nothing else to send.
+     */
+    private static final String COMMENT = ":\n\n";
+
+    /**
+     * What a dropped subscriber finds in its queue, to wake it up.
+     */
+    private static final Object END = new Object();
+
+    private final int capacity;
+    private final long heartbeat;
+    private final Set<Subscription> subscriptions;
+    private final AtomicLong ids;
+    private final LongAdder drops;
+
+    public Events() {
+        this(64, Duration.ofSeconds(15L));
+    }
+
+    /**
+     * Ctor.
+     * @param capacity How many events a subscriber may fall behind
+     * @param heartbeat How long a subscriber waits before a comment
+     */
+    public Events(final int capacity, final Duration heartbeat) {
+        this.capacity = capacity;
+        this.heartbeat = heartbeat.toMillis();
+        this.subscriptions = ConcurrentHashMap.newKeySet();
+        this.ids = new AtomicLong();
+        this.drops = new LongAdder();
+    }
+
+    /**
+     * The page that subscribes to the events and streams them.
+     * @return The page
+     */
+    public Page page() {
+        // The events never end, so they can't be joined into one body
+        return new StreamingPage(this, "text/event-stream", 0);
+    }
+
+    /**
+     * Send the event to every subscriber.
+     * @param event Name of the event, like "book"
+     * @param data The data, may have a few lines
+     */
+    public void publish(final String event, final String data) {
+        final StringBuilder frame = new StringBuilder(data.length() + 32)
+            .append("id: ").append(this.ids.incrementAndGet()).append('\n')
+            .append("event: ").append(event).append('\n');
+        for (final String line : data.split("\r\n|\r|\n", -1)) {
+            frame.append("data: ").append(line).append('\n');
+        }
+        final String text = frame.append('\n').toString();
+        for (final Subscription subscription : this.subscriptions) {
+            if (!subscription.dropped.get() && !subscription.queue.offer(text)) {
+                this.drop(subscription);
+            }
+        }
+    }
+
+    /**
+     * How many subscribers are there now.
+     * @return Their number
+     */
+    public int subscribers() {
+        return this.subscriptions.size();
+    }
+
+    /**
+     * How many subscribers were dropped for being too slow.
+     * @return Their number
+     */
+    public long dropped() {
+        return this.drops.sum();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        final Subscription subscription = new Subscription(this);
+        this.subscriptions.add(subscription);
+        return subscription;
+    }
+
+    private void drop(final Subscription subscription) {
+        // Marked first, so no one publishes into the queue being cleared
+        if (subscription.dropped.compareAndSet(false, true)) {
+            this.subscriptions.remove(subscription);
+            this.drops.increment();
+            // What it hasn't taken yet is lost, and it's told to stop
+            subscription.queue.clear();
+            subscription.queue.offer(Events.END);
+        }
+    }
+
+    /**
+     * One subscriber, taking the events from its queue.
+     */
+    private static final class Subscription implements Iterator<String>, AutoCloseable {
+
+        private final Events events;
+        private final BlockingQueue<Object> queue;
+        private final AtomicBoolean dropped;
+        private String next;
+        private boolean over;
+
+        Subscription(final Events events) {
+            this.events = events;
+            this.queue = new ArrayBlockingQueue<>(events.capacity);
+            this.dropped = new AtomicBoolean();
+            // The client gets the head right away, not with the first event
+            this.next = Events.COMMENT;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) {
+                return true;
+            }
+            if (this.over) {
+                return false;
+            }
+            try {
+                final Object item = this.queue.poll(
+                    this.events.heartbeat, TimeUnit.MILLISECONDS
+                );
+                // An event that slipped in while it was dropped is lost too
+                if (item == Events.END || this.dropped.get()) {
+                    this.close();
+                    return false;
+                }
+                if (item == null) {
+                    this.next = Events.COMMENT;
+                } else {
+                    this.next = (String) item;
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                this.close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("The subscription is over");
+            }
+            final String item = this.next;
+            this.next = null;
+            return item;
+        }
+
+        @Override
+        public void close() {
+            this.over = true;
+            this.events.subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The page with a file from a directory.
+ *
+ * <p>The file is found by X-Path, with the prefix cut off, under the
+ * root, and never above it. Small files are memory-mapped once and kept
+ * mapped while they don't change; bigger ones are transferred from the
+ * file channel straight to the socket, see {@link BinaryOutput}. Single
+ * byte ranges are supported, as well as If-Modified-Since and HEAD.</p>
+ *
+ * <p>Mapped files are kept in the order they are used, and the one
+ * unused for the longest time is let go when there are too many. An
+ * output that can't take binary bodies gets 500 instead of the file,
+ * since its bytes would be spoiled by decoding them as text.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class FilePage implements SelectivePage {
+
+    /**
+     * Files up to this size are memory-mapped and cached.
+     */
+    private static final long SMALL = 256L * 1024L;
+
+    /**
+     * How many mapped files are kept at most.
+     */
+    private static final int MAPPED = 512;
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter
+        .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+        .withZone(ZoneOffset.UTC);
+
+    private final Path root;
+    private final String prefix;
+    private final Map<Path, Mapped> cache;
+    private final String path;
+    private final String method;
+    private final String range;
+    private final String since;
+
+    public FilePage(final Path root) {
+        this(root, "");
+    }
+
+    /**
+     * Ctor.
+     * @param root The directory with files
+     * @param prefix The part of X-Path to cut off, like "/static"
+     */
+    public FilePage(final Path root, final String prefix) {
+        this(
+            root.toAbsolutePath().normalize(), prefix,
+            FilePage.lru(), "", "GET", "", ""
+        );
+    }
+
+    private FilePage(final Path root, final String prefix, final Map<Path, Mapped> cache,
+        final String path, final String method, final String range, final String since) {
+        this.root = root;
+        this.prefix = prefix;
+        this.cache = cache;
+        this.path = path;
+        this.method = method;
+        this.range = range;
+        this.since = since;
+    }
+
+    @Override
+    public Page with(final String key, final String value) {
+        if ("X-Path".equals(key)) {
+            return new FilePage(
+                this.root, this.prefix, this.cache, value, this.method, this.range, this.since
+            );
+        }
+        if ("X-Method".equals(key)) {
+            return new FilePage(
+                this.root, this.prefix, this.cache, this.path, value, this.range, this.since
+            );
+        }
+        if ("Range".equalsIgnoreCase(key)) {
+            return new FilePage(
+                this.root, this.prefix, this.cache, this.path, this.method, value, this.since
+            );
+        }
+        if ("If-Modified-Since".equalsIgnoreCase(key)) {
+            return new FilePage(
+                this.root, this.prefix, this.cache, this.path, this.method, this.range, value
+            );
+        }
+        return this;
+    }
+
+    @Override
+    public boolean wants(final String key) {
+        return "X-Path".equals(key) || "X-Method".equals(key)
+            || "Range".equalsIgnoreCase(key)
+            || "If-Modified-Since".equalsIgnoreCase(key);
+    }
+
+    @Override
+    public Output printTo(final Output output) {
+        final Path file = this.file();
+        if (file == null || !Files.isRegularFile(file)) {
+            return this.error(output, "404 Not Found");
+        }
+        try {
+            final long size = Files.size(file);
+            final Instant modified = Files.getLastModifiedTime(file).toInstant();
+            final Output head = output
+                .with("Content-Type", FilePage.type(file))
+                .with("Last-Modified", FilePage.HTTP_DATE.format(modified))
+                .with("Accept-Ranges", "bytes");
+            if (this.unmodified(modified)) {
+                return head.with("X-Status", "304 Not Modified").with("X-Body", "");
+            }
+            final long[] span = this.span(size);
+            if (span.length == 0) {
+                return this.error(
+                    output.with("Content-Range", String.format("bytes */%d", size)),
+                    "416 Range Not Satisfiable"
+                );
+            }
+            final long count = span[1] - span[0] + 1L;
+            Output out = head;
+            if (count != size) {
+                out = out
+                    .with("X-Status", "206 Partial Content")
+                    .with(
+                        "Content-Range",
+                        String.format("bytes %d-%d/%d", span[0], span[1], size)
+                    );
+            }
+            out = out.with("Content-Length", Long.toString(count));
+            if ("HEAD".equals(this.method)) {
+                return out.with("X-Body", "");
+            }
+            return this.body(out, file, size, modified, span[0], count);
+        } catch (final NoSuchFileException ex) {
+            return this.error(output, "404 Not Found");
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Output body(final Output output, final Path file, final long size,
+        final Instant modified, final long from, final long count) throws IOException {
+        if (!(output instanceof BinaryOutput)) {
+            return this.error(output, "500 Internal Server Error");
+        }
+        final BinaryOutput binary = (BinaryOutput) output;
+        if (size <= FilePage.SMALL) {
+            final ByteBuffer mapped = this.mapped(file, size, modified).duplicate();
+            mapped.position((int) from);
+            mapped.limit((int) (from + count));
+            return binary.withBody(mapped.slice());
+        }
+        return binary.withBody(FileChannel.open(file, StandardOpenOption.READ), from, count);
+    }
+
+    /**
+     * The file mapped into memory, from the cache if it's still the same.
+     */
+    private ByteBuffer mapped(final Path file, final long size, final Instant modified)
+        throws IOException {
+        final Mapped known = this.cache.get(file);
+        if (known != null && known.size == size && known.modified.equals(modified)) {
+            return known.buffer;
+        }
+        final ByteBuffer buffer;
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        }
+        this.cache.put(file, new Mapped(buffer, size, modified));
+        return buffer;
+    }
+
+    /**
+     * The cache of mapped files, which forgets the least recently used.
+     */
+    private static Map<Path, Mapped> lru() {
+        return Collections.synchronizedMap(
+            new LinkedHashMap<Path, Mapped>(16, 0.75f, true) {
+                private static final long serialVersionUID = 0x4650L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Path, Mapped> eldest) {
+                    return this.size() > FilePage.MAPPED;
+                }
+            }
+        );
+    }
+
+    /**
+     * The file asked for, or NULL if it's outside of the root.
+     */
+    private Path file() {
+        if (!this.path.startsWith(this.prefix)) {
+            return null;
+        }
+        String relative = this.path.substring(this.prefix.length());
+        // "/static" is the prefix of "/static/a.txt", not of "/staticfoo/a.txt"
+        if (!relative.isEmpty() && relative.charAt(0) != '/'
+            && !this.prefix.isEmpty() && !this.prefix.endsWith("/")) {
+            return null;
+        }
+        while (relative.startsWith("/")) {
+            relative = relative.substring(1);
+        }
+        final Path file = this.root.resolve(relative).normalize();
+        if (!file.startsWith(this.root)) {
+            return null;
+        }
+        return file;
+    }
+
+    private boolean unmodified(final Instant modified) {
+        if (this.since.isEmpty()) {
+            return false;
+        }
+        try {
+            final Instant since = Instant.from(FilePage.HTTP_DATE.parse(this.since));
+            return modified.getEpochSecond() <= since.getEpochSecond();
+        } catch (final DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * The first and the last byte to send.
+     * @return Two numbers, or none if the range can't be satisfied
+     */
+    private long[] span(final long size) {
+        final long[] whole = {0L, size - 1L};
+        if (!this.range.startsWith("bytes=") || this.range.indexOf(',') >= 0) {
+            // Not bytes or a few ranges at once, the whole file will do
+            return whole;
+        }
+        final String spec = this.range.substring("bytes=".length()).trim();
+        final int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return whole;
+        }
+        try {
+            final long first;
+            long last;
+            if (dash == 0) {
+                final long suffix = Long.parseLong(spec.substring(1));
+                if (suffix == 0L || size == 0L) {
+                    return new long[0];
+                }
+                first = Math.max(0L, size - suffix);
+                last = size - 1L;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                if (dash == spec.length() - 1) {
+                    last = size - 1L;
+                } else {
+                    last = Long.parseLong(spec.substring(dash + 1));
+                }
+            }
+            if (first >= size || last < first) {
+                return new long[0];
+            }
+            last = Math.min(last, size - 1L);
+            return new long[] {first, last};
+        } catch (final NumberFormatException ex) {
+            return whole;
+        }
+    }
+
+    private Output error(final Output output, final String status) {
+        return new TextPage(status).printTo(output.with("X-Status", status));
+    }
+
+    private static String type(final Path file) {
+        final String type = URLConnection.getFileNameMap()
+            .getContentTypeFor(file.getFileName().toString());
+        if (type == null) {
+            return "application/octet-stream";
+        }
+        return type;
+    }
+
+    /**
+     * The file mapped into memory, as of its size and modification time.
+     */
+    private static final class Mapped {
+        private final ByteBuffer buffer;
+        private final long size;
+        private final Instant modified;
+
+        Mapped(final ByteBuffer buffer, final long size, final Instant modified) {
+            this.buffer = buffer;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+}
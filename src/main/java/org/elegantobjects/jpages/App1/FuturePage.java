@@ -0,0 +1,81 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * The page that is known only when the stage completes.
+ *
+ * <p>The factory is asked for a new stage on every request, when the
+ * page is printed; the pairs of the request are given to the page it
+ * brings. For example, a book and its author may be looked up at the
+ * same time:</p>
+ *
+ * <pre> new FuturePage(
+ *   () -&gt; books.find(id).thenCombine(
+ *     authors.find(id),
+ *     (book, author) -&gt; new TextPage(book + " by " + author)
+ *   )
+ * )</pre>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class FuturePage implements AsyncPage {
+
+    private final Supplier<CompletionStage<Page>> pages;
+
+    public FuturePage(final Supplier<CompletionStage<Page>> factory) {
+        this.pages = factory;
+    }
+
+    @Override
+    public Page with(final String key, final String value) {
+        return new FuturePage(
+            () -> this.pages.get().thenApply(page -> page.with(key, value))
+        );
+    }
+
+    @Override
+    public CompletionStage<Output> printAsync(final Output output) {
+        return this.pages.get().thenCompose(
+            page -> {
+                if (page instanceof AsyncPage) {
+                    return ((AsyncPage) page).printAsync(output);
+                }
+                return CompletableFuture.completedFuture(
+                    page.printTo(output)
+                );
+            }
+        );
+    }
+
+    @Override
+    public Output printTo(final Output output) {
+        return this.printAsync(output).toCompletableFuture().join();
+    }
+}
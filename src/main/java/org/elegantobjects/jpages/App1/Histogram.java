@@ -0,0 +1,160 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The histogram of durations, in nanoseconds.
+ *
+ * <p>Like in HdrHistogram, every power of two is split into a few
+ * equal buckets, so the error is bounded by a quarter of the value,
+ * whatever the scale. Recording is one increment, without locks or
+ * allocation.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Histogram {
+
+    /**
+     * How many bits of a value pick a bucket within its power of two.
+     */
+    private static final int BITS = 2;
+
+    private static final int SUB = 1 << Histogram.BITS;
+
+    /**
+     * Powers of two, in nanoseconds, that are exported: from about
+     * a microsecond up to about a minute.
+     */
+    private static final int LOWEST = 10;
+
+    private static final int HIGHEST = 36;
+
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+
+    public Histogram() {
+        this.counts = new AtomicLongArray((64 - Histogram.BITS) * Histogram.SUB);
+        this.total = new LongAdder();
+    }
+
+    /**
+     * Record one duration.
+     * @param nanos The duration, in nanoseconds
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(nanos, 0L);
+        this.counts.incrementAndGet(Histogram.index(value));
+        this.total.add(value);
+    }
+
+    /**
+     * How many durations were recorded.
+     */
+    public long count() {
+        long count = 0L;
+        for (int idx = 0; idx < this.counts.length(); ++idx) {
+            count += this.counts.get(idx);
+        }
+        return count;
+    }
+
+    /**
+     * The duration below which the given share of durations fall.
+     * @param quantile The share, like 0.99
+     * @return Upper bound of the bucket, in nanoseconds
+     */
+    public long quantile(final double quantile) {
+        final long rank = (long) Math.ceil(quantile * this.count());
+        long seen = 0L;
+        for (int idx = 0; idx < this.counts.length(); ++idx) {
+            seen += this.counts.get(idx);
+            if (seen >= rank && seen > 0L) {
+                return Histogram.upper(idx);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Print the histogram in Prometheus text format, in seconds.
+     * @param text Where to print
+     * @param name Name of the metric
+     * @param help Its description
+     */
+    public void printTo(final StringBuilder text, final String name, final String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n')
+            .append("# TYPE ").append(name).append(" histogram\n");
+        long seen = 0L;
+        for (int idx = 0; idx < this.counts.length(); ++idx) {
+            seen += this.counts.get(idx);
+            final int power = idx / Histogram.SUB + Histogram.BITS;
+            if (idx % Histogram.SUB == Histogram.SUB - 1
+                && power >= Histogram.LOWEST && power <= Histogram.HIGHEST) {
+                text.append(name).append("_bucket{le=\"")
+                    .append(Histogram.seconds(Histogram.upper(idx)))
+                    .append("\"} ").append(seen).append('\n');
+            }
+        }
+        text.append(name).append("_bucket{le=\"+Inf\"} ").append(seen).append('\n')
+            .append(name).append("_sum ").append(Histogram.seconds(this.total.sum())).append('\n')
+            .append(name).append("_count ").append(seen).append('\n');
+    }
+
+    /**
+     * The bucket of the value.
+     */
+    private static int index(final long value) {
+        if (value < Histogram.SUB) {
+            return (int) value;
+        }
+        final int power = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = power - Histogram.BITS;
+        return (shift + 1) * Histogram.SUB + (int) (value >>> shift & Histogram.SUB - 1);
+    }
+
+    /**
+     * The smallest value above the bucket.
+     */
+    private static long upper(final int index) {
+        if (index < Histogram.SUB) {
+            return index + 1L;
+        }
+        final int shift = index / Histogram.SUB - 1;
+        final long step = index % Histogram.SUB + Histogram.SUB + 1L;
+        final long upper = step << shift;
+        if (upper <= 0L) {
+            return Long.MAX_VALUE;
+        }
+        return upper;
+    }
+
+    private static String seconds(final long nanos) {
+        return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,489 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The HPACK context of one direction of an HTTP/2 connection, RFC 7541.
+ *
+ * <p>A connection has two of them: one decodes the header blocks of
+ * the client, the other one encodes the header blocks of the server.
+ * Each keeps its own dynamic table, the copy of the table on the other
+ * side, so the object is mutable and blocks must go through it in the
+ * order they go over the wire.</p>
+ *
+ * <p>The encoder refers to the static and the dynamic table whenever it
+ * can, and adds to the dynamic table the fields that are likely to be
+ * sent again, like Content-Type, but not those that change with every
+ * response, like Content-Length or Date. Its strings go as they are,
+ * without the Huffman code.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Hpack {
+
+    /**
+     * The static table; the first entry is not used, indexes start at 1.
+     */
+    private static final String[][] STATIC = {
+        {"", ""},
+        {":authority", ""},
+        {":method", "GET"},
+        {":method", "POST"},
+        {":path", "/"},
+        {":path", "/index.html"},
+        {":scheme", "http"},
+        {":scheme", "https"},
+        {":status", "200"},
+        {":status", "204"},
+        {":status", "206"},
+        {":status", "304"},
+        {":status", "400"},
+        {":status", "404"},
+        {":status", "500"},
+        {"accept-charset", ""},
+        {"accept-encoding", "gzip, deflate"},
+        {"accept-language", ""},
+        {"accept-ranges", ""},
+        {"accept", ""},
+        {"access-control-allow-origin", ""},
+        {"age", ""},
+        {"allow", ""},
+        {"authorization", ""},
+        {"cache-control", ""},
+        {"content-disposition", ""},
+        {"content-encoding", ""},
+        {"content-language", ""},
+        {"content-length", ""},
+        {"content-location", ""},
+        {"content-range", ""},
+        {"content-type", ""},
+        {"cookie", ""},
+        {"date", ""},
+        {"etag", ""},
+        {"expect", ""},
+        {"expires", ""},
+        {"from", ""},
+        {"host", ""},
+        {"if-match", ""},
+        {"if-modified-since", ""},
+        {"if-none-match", ""},
+        {"if-range", ""},
+        {"if-unmodified-since", ""},
+        {"last-modified", ""},
+        {"link", ""},
+        {"location", ""},
+        {"max-forwards", ""},
+        {"proxy-authenticate", ""},
+        {"proxy-authorization", ""},
+        {"range", ""},
+        {"referer", ""},
+        {"refresh", ""},
+        {"retry-after", ""},
+        {"server", ""},
+        {"set-cookie", ""},
+        {"strict-transport-security", ""},
+        {"transfer-encoding", ""},
+        {"user-agent", ""},
+        {"vary", ""},
+        {"via", ""},
+        {"www-authenticate", ""},
+    };
+
+    /**
+     * Indexes in the static table by name, and by name and value.
+     */
+    private static final Map<String, Integer> NAMES = new HashMap<>(0);
+    private static final Map<String, Integer> FIELDS = new HashMap<>(0);
+
+    /**
+     * The overhead of every entry in the dynamic table, in octets.
+     */
+    private static final int OVERHEAD = 32;
+
+    /**
+     * Fields that are different in every response, not worth a place
+     * in the dynamic table.
+     */
+    private static final String[] VOLATILE = {
+        "content-length", "date", "etag", "last-modified", "set-cookie",
+        "content-range", "age", "expires",
+    };
+
+    static {
+        for (int idx = Hpack.STATIC.length - 1; idx > 0; --idx) {
+            Hpack.NAMES.put(Hpack.STATIC[idx][0], idx);
+            Hpack.FIELDS.put(Hpack.key(Hpack.STATIC[idx][0], Hpack.STATIC[idx][1]), idx);
+        }
+    }
+
+    /**
+     * The dynamic table, a ring with the newest entry at the first.
+     */
+    private String[] names;
+    private String[] values;
+    private int first;
+    private int count;
+    private int size;
+    private int max;
+    private int limit;
+    private boolean resized;
+
+    /**
+     * Ctor, with a table of 4096 octets, as HTTP/2 starts with.
+     */
+    public Hpack() {
+        this(4096);
+    }
+
+    /**
+     * Ctor.
+     * @param limit Maximum size of the dynamic table, in octets
+     */
+    public Hpack(final int limit) {
+        this.names = new String[16];
+        this.values = new String[16];
+        this.max = limit;
+        this.limit = limit;
+    }
+
+    /**
+     * Decode a header block.
+     * @param block The bytes
+     * @param off Where the block starts
+     * @param len How many bytes it takes
+     * @param fields Where every field goes, in their order
+     * @throws BadRequest If the block is broken; the context is broken
+     *  too then, and so is the connection
+     */
+    public void decode(final byte[] block, final int off, final int len,
+        final BiConsumer<String, String> fields) throws BadRequest {
+        this.decode(block, off, len, Integer.MAX_VALUE, fields);
+    }
+
+    /**
+     * Decode a header block, with a limit on the size of its fields.
+     *
+     * <p>Every field counts its name and value with 32 octets more, as
+     * SETTINGS_MAX_HEADER_LIST_SIZE of HTTP/2 does. Fields past the
+     * limit are decoded, to keep the dynamic table right, but not given
+     * out, and the block fails in the end.</p>
+     *
+     * @param block The bytes
+     * @param off Where the block starts
+     * @param len How many bytes it takes
+     * @param list Maximum size of all the fields, in octets
+     * @param fields Where every field goes, in their order
+     * @throws BadRequest If the block is broken, or 431 if it's too big;
+     *  the context is still good after the latter
+     */
+    public void decode(final byte[] block, final int off, final int len, final int list,
+        final BiConsumer<String, String> fields) throws BadRequest {
+        final long[] total = {0L};
+        final BiConsumer<String, String> bounded = (name, value) -> {
+            total[0] += name.length() + value.length() + Hpack.OVERHEAD;
+            if (total[0] <= list) {
+                fields.accept(name, value);
+            }
+        };
+        this.fields(block, off, len, bounded);
+        if (total[0] > list) {
+            throw new BadRequest("431 Request Header Fields Too Large");
+        }
+    }
+
+    private void fields(final byte[] block, final int off, final int len,
+        final BiConsumer<String, String> fields) throws BadRequest {
+        final int[] pos = {off};
+        final int end = off + len;
+        while (pos[0] < end) {
+            final int octet = block[pos[0]] & 0xFF;
+            if ((octet & 0x80) != 0) {
+                final int index = Hpack.integer(block, pos, end, 7);
+                fields.accept(this.name(index), this.value(index));
+            } else if ((octet & 0xE0) == 0x20) {
+                final int size = Hpack.integer(block, pos, end, 5);
+                if (size > this.limit) {
+                    throw new BadRequest("400 Bad Request");
+                }
+                this.max = size;
+                this.evict(0);
+            } else {
+                final int prefix;
+                if ((octet & 0xC0) == 0x40) {
+                    prefix = 6;
+                } else {
+                    prefix = 4;
+                }
+                final int index = Hpack.integer(block, pos, end, prefix);
+                final String name;
+                if (index == 0) {
+                    name = Hpack.string(block, pos, end);
+                } else {
+                    name = this.name(index);
+                }
+                final String value = Hpack.string(block, pos, end);
+                if (prefix == 6) {
+                    this.add(name, value, name.length() + value.length());
+                }
+                fields.accept(name, value);
+            }
+        }
+    }
+
+    /**
+     * Let the dynamic table of the encoder be no bigger than this, as
+     * the other side asks in its settings; the change goes at the start
+     * of the next block.
+     * @param octets Maximum size of the dynamic table
+     */
+    public void resize(final int octets) {
+        this.max = Math.min(octets, this.limit);
+        this.resized = true;
+    }
+
+    /**
+     * Encode a header block.
+     * @param fields Names and values, one after another; names in lower
+     *  case, as HTTP/2 wants them
+     * @param block Where the bytes go
+     */
+    public void encode(final String[] fields, final ByteArrayOutputStream block) {
+        if (this.resized) {
+            this.resized = false;
+            this.evict(0);
+            Hpack.integer(block, 0x20, 5, this.max);
+        }
+        for (int idx = 0; idx + 1 < fields.length; idx += 2) {
+            this.encode(fields[idx], fields[idx + 1], block);
+        }
+    }
+
+    /**
+     * Size of the dynamic table now, in octets.
+     * @return Size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    private void encode(final String name, final String value,
+        final ByteArrayOutputStream block) {
+        final Integer exact = Hpack.FIELDS.get(Hpack.key(name, value));
+        if (exact != null) {
+            Hpack.integer(block, 0x80, 7, exact);
+            return;
+        }
+        int known = Hpack.NAMES.getOrDefault(name, 0);
+        for (int idx = 0; idx < this.count; ++idx) {
+            final int ring = (this.first + idx) % this.names.length;
+            if (this.names[ring].equals(name)) {
+                if (this.values[ring].equals(value)) {
+                    Hpack.integer(block, 0x80, 7, Hpack.STATIC.length + idx);
+                    return;
+                }
+                if (known == 0) {
+                    known = Hpack.STATIC.length + idx;
+                }
+            }
+        }
+        // One octet per char, as request heads are decoded too
+        final byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        final int octets = name.length() + bytes.length;
+        final boolean indexed = octets + Hpack.OVERHEAD <= this.max / 2
+            && !Hpack.changing(name);
+        if (indexed) {
+            Hpack.integer(block, 0x40, 6, known);
+        } else {
+            Hpack.integer(block, 0x00, 4, known);
+        }
+        if (known == 0) {
+            Hpack.string(block, name.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        Hpack.string(block, bytes);
+        if (indexed) {
+            this.add(name, value, octets);
+        }
+    }
+
+    private String name(final int index) throws BadRequest {
+        if (index > 0 && index < Hpack.STATIC.length) {
+            return Hpack.STATIC[index][0];
+        }
+        return this.names[this.ring(index)];
+    }
+
+    private String value(final int index) throws BadRequest {
+        if (index > 0 && index < Hpack.STATIC.length) {
+            return Hpack.STATIC[index][1];
+        }
+        return this.values[this.ring(index)];
+    }
+
+    /**
+     * The place in the ring of the entry at this index.
+     */
+    private int ring(final int index) throws BadRequest {
+        final int idx = index - Hpack.STATIC.length;
+        if (index <= 0 || idx >= this.count) {
+            throw new BadRequest("400 Bad Request");
+        }
+        return (this.first + idx) % this.names.length;
+    }
+
+    /**
+     * Put the entry first, making room for it; an entry bigger than the
+     * whole table empties it and isn't added.
+     */
+    private void add(final String name, final String value, final int octets) {
+        final int entry = octets + Hpack.OVERHEAD;
+        this.evict(entry);
+        if (entry > this.max) {
+            return;
+        }
+        if (this.count == this.names.length) {
+            final String[] nms = new String[this.count * 2];
+            final String[] vls = new String[this.count * 2];
+            for (int idx = 0; idx < this.count; ++idx) {
+                nms[idx] = this.names[(this.first + idx) % this.count];
+                vls[idx] = this.values[(this.first + idx) % this.count];
+            }
+            this.names = nms;
+            this.values = vls;
+            this.first = 0;
+        }
+        this.first = (this.first - 1 + this.names.length) % this.names.length;
+        this.names[this.first] = name;
+        this.values[this.first] = value;
+        ++this.count;
+        this.size += entry;
+    }
+
+    /**
+     * Drop the oldest entries until there is room for so many octets.
+     */
+    private void evict(final int room) {
+        while (this.count > 0 && this.size + room > this.max) {
+            final int last = (this.first + this.count - 1) % this.names.length;
+            this.size -= this.names[last].length() + this.values[last].length()
+                + Hpack.OVERHEAD;
+            this.names[last] = null;
+            this.values[last] = null;
+            --this.count;
+        }
+    }
+
+    /**
+     * Read an integer with a prefix of so many bits, RFC 7541, 5.1.
+     */
+    private static int integer(final byte[] block, final int[] pos, final int end,
+        final int prefix) throws BadRequest {
+        final int mask = (1 << prefix) - 1;
+        int value = block[pos[0]] & mask;
+        ++pos[0];
+        if (value < mask) {
+            return value;
+        }
+        int shift = 0;
+        while (true) {
+            if (pos[0] == end || shift > 21) {
+                throw new BadRequest("400 Bad Request");
+            }
+            final int octet = block[pos[0]] & 0xFF;
+            ++pos[0];
+            value += (octet & 0x7F) << shift;
+            shift += 7;
+            if ((octet & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Read a string literal, RFC 7541, 5.2.
+     */
+    private static String string(final byte[] block, final int[] pos, final int end)
+        throws BadRequest {
+        if (pos[0] == end) {
+            throw new BadRequest("400 Bad Request");
+        }
+        final boolean huffman = (block[pos[0]] & 0x80) != 0;
+        final int len = Hpack.integer(block, pos, end, 7);
+        if (len > end - pos[0]) {
+            throw new BadRequest("400 Bad Request");
+        }
+        final String text;
+        if (huffman) {
+            text = Huffman.decode(block, pos[0], len);
+        } else {
+            text = new String(block, pos[0], len, StandardCharsets.ISO_8859_1);
+        }
+        pos[0] += len;
+        return text;
+    }
+
+    /**
+     * Write an integer after the bits of the first octet.
+     */
+    private static void integer(final ByteArrayOutputStream block, final int bits,
+        final int prefix, final int value) {
+        final int mask = (1 << prefix) - 1;
+        if (value < mask) {
+            block.write(bits | value);
+            return;
+        }
+        block.write(bits | mask);
+        int rest = value - mask;
+        while (rest >= 0x80) {
+            block.write(rest & 0x7F | 0x80);
+            rest >>>= 7;
+        }
+        block.write(rest);
+    }
+
+    private static void string(final ByteArrayOutputStream block, final byte[] bytes) {
+        Hpack.integer(block, 0x00, 7, bytes.length);
+        block.write(bytes, 0, bytes.length);
+    }
+
+    private static boolean changing(final String name) {
+        for (final String candidate : Hpack.VOLATILE) {
+            if (candidate.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(final String name, final String value) {
+        return new StringBuilder(name.length() + value.length() + 1)
+            .append(name).append('\n').append(value).toString();
+    }
+}
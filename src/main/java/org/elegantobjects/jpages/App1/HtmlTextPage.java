@@ -29,12 +29,14 @@ package org.elegantobjects.jpages.App1;
  * @author Yegor Bugayenko (yegor256@gmail.com)
  * @since 0.1
  */
-public final class HtmlTextPage implements Page {
+public final class HtmlTextPage implements SelectivePage {
 
     private final String html;
+    private final String length;
 
     public HtmlTextPage(final String html) {
         this.html = html;
+        this.length = Integer.toString(Utf8.length(html));
     }
 
     @Override
@@ -42,10 +44,15 @@ public final class HtmlTextPage implements Page {
         return this;
     }
 
+    @Override
+    public boolean wants(final String key) {
+        return false;
+    }
+
     @Override
     public Output printTo(final Output output) {
         return output
-            .with("Content-Length", Integer.toString(this.html.length()))
+            .with("Content-Length", this.length)
             .with("X-Body", this.html);
     }
 }
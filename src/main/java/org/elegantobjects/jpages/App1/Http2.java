@@ -0,0 +1,1254 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * HTTP/2 over cleartext, h2c, for connections of an {@link App}.
+ *
+ * <p>A client either starts with the preface, knowing in advance that
+ * the server speaks HTTP/2, or asks to upgrade an HTTP/1.1 request, and
+ * then the response to that request goes as the first stream. After
+ * that, requests come as streams, many at once over one connection.
+ * The thread of the connection reads frames and every stream gets a
+ * thread of the factory of the app, where its page is printed into an
+ * {@link Http2Output} as usual, so one slow page doesn't hold the
+ * others.</p>
+ *
+ * <p>Header blocks are compressed by {@link Hpack}; a stream whose
+ * headers decode to more than 16 KiB, cookies too, gets 431, and one
+ * whose page throws gets 500, or is reset if its headers are out.
+ * Both ways, every stream and the connection have windows of 64 KiB:
+ * a body is handed to the page as the client sends it, and more of it
+ * is asked for only when the page has read some, while a response
+ * waits when the client has no room for it. A stream that can't go on in time, for the lack
+ * of window or of body, is reset, see {@link Timeouts}.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Http2 {
+
+    /**
+     * What the client sends first, after the upgrade or instead of it.
+     */
+    private static final byte[] PREFACE =
+        "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SWITCHING = (
+        "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n"
+    ).getBytes(StandardCharsets.US_ASCII);
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int PRIORITY = 0x2;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PUSH_PROMISE = 0x5;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+
+    private static final int END_STREAM = 0x1;
+    private static final int ACK = 0x1;
+    private static final int END_HEADERS = 0x4;
+    private static final int PADDED = 0x8;
+    private static final int PRIORITIZED = 0x20;
+
+    private static final int NO_ERROR = 0x0;
+    private static final int PROTOCOL_ERROR = 0x1;
+    private static final int INTERNAL_ERROR = 0x2;
+    private static final int FLOW_CONTROL_ERROR = 0x3;
+    private static final int STREAM_CLOSED = 0x5;
+    private static final int FRAME_SIZE_ERROR = 0x6;
+    private static final int REFUSED_STREAM = 0x7;
+    private static final int CANCEL = 0x8;
+    private static final int COMPRESSION_ERROR = 0x9;
+    private static final int ENHANCE_YOUR_CALM = 0xB;
+
+    /**
+     * The biggest frame the server reads, the default of HTTP/2.
+     */
+    private static final int FRAME = 16384;
+
+    /**
+     * The initial window, both ways, the default of HTTP/2.
+     */
+    private static final int WINDOW = 65535;
+
+    /**
+     * How many streams a client may have in flight at once.
+     */
+    private static final int STREAMS = 100;
+
+    /**
+     * The biggest header block, with all its continuations.
+     */
+    private static final int BLOCK = 65536;
+
+    /**
+     * The biggest list of headers, decoded, with 32 octets for every
+     * field, as SETTINGS_MAX_HEADER_LIST_SIZE counts it.
+     */
+    private static final int LIST = 16384;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Page page;
+    private final Metrics metrics;
+    private final Admission admission;
+    private final ThreadFactory factory;
+    private final Timeouts timeouts;
+
+    /**
+     * Ctor.
+     * @param page The page of the app
+     * @param metrics Where to count streams as requests
+     * @param admission The limits, every stream is a request in flight
+     * @param factory Where threads of streams come from
+     * @param timeouts The deadlines
+     */
+    public Http2(final Page page, final Metrics metrics, final Admission admission,
+        final ThreadFactory factory, final Timeouts timeouts) {
+        this.page = page;
+        this.metrics = metrics;
+        this.admission = admission;
+        this.factory = factory;
+        this.timeouts = timeouts;
+    }
+
+    /**
+     * Is it the beginning of the preface, parsed as an HTTP/1.1 head?
+     * @param head The head
+     * @return TRUE if the client speaks HTTP/2 already
+     */
+    public static boolean preface(final RequestHead head) {
+        return "PRI".equals(head.header("X-Method"))
+            && "*".equals(head.header("X-Path"))
+            && "HTTP/2.0".equals(head.header("X-Protocol"));
+    }
+
+    /**
+     * Does the request ask to upgrade to h2c, in a way the server takes?
+     * Requests with bodies stay with HTTP/1.1, as the RFC allows.
+     * @param head The head
+     * @return TRUE if the connection is to be upgraded
+     */
+    public static boolean upgrade(final RequestHead head) {
+        final String length = head.header("Content-Length");
+        return "HTTP/1.1".equals(head.header("X-Protocol"))
+            && "h2c".equalsIgnoreCase(head.header("Upgrade"))
+            && (length.isEmpty() || "0".equals(length))
+            && head.header("Transfer-Encoding").isEmpty()
+            && Http2.settings(head) != null;
+    }
+
+    /**
+     * Serve the connection until the client is gone, or goes away, or the
+     * server stops.
+     *
+     * <p>The hooks let the app see when the connection is idle: it is,
+     * at first and whenever the last stream in flight is done, and it is
+     * busy again when the next stream starts; both are called under the
+     * lock of the connection, so they never race each other.</p>
+     *
+     * @param input The bytes after the head of the first request
+     * @param output Where frames go
+     * @param upgraded The request to answer on the first stream, if the
+     *  connection is upgraded, or NULL if it came with the preface
+     * @param reading The deadline of reads
+     * @param idle Called when nothing is in flight
+     * @param busy Called when a stream starts and nothing else is in
+     *  flight; FALSE if the connection is taken away
+     * @param stopping TRUE when no more streams are to be started
+     * @throws IOException If the connection is broken
+     */
+    void serve(final InputStream input, final OutputStream output,
+        final RequestHead upgraded, final Deadline reading, final Runnable idle,
+        final BooleanSupplier busy, final BooleanSupplier stopping)
+        throws IOException {
+        new Connection(this, input, output, reading, idle, busy, stopping).serve(upgraded);
+    }
+
+    /**
+     * The settings of the upgrade, decoded, or NULL if they are broken.
+     */
+    private static byte[] settings(final RequestHead head) {
+        final String encoded = head.header("HTTP2-Settings").trim();
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(encoded);
+        } catch (final IllegalArgumentException ex) {
+            bytes = null;
+        }
+        if (bytes != null && bytes.length % 6 != 0) {
+            bytes = null;
+        }
+        return bytes;
+    }
+
+    /**
+     * The connection error, the whole connection goes away with it.
+     */
+    private static final class Failure extends IOException {
+
+        private static final long serialVersionUID = 0x4832L;
+
+        private final int code;
+
+        Failure(final int code, final String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    /**
+     * One connection, read by one thread and written by many.
+     *
+     * <p>The monitor of the object guards the windows and the count of
+     * streams in flight; the monitor of the output guards frames going
+     * out, along with the encoder, whose blocks must go in order.</p>
+     */
+    private static final class Connection {
+
+        private final Http2 http;
+        private final InputStream input;
+        private final OutputStream output;
+        private final Deadline reading;
+        private final Runnable idle;
+        private final BooleanSupplier busy;
+        private final BooleanSupplier stopping;
+        private final Hpack decoder;
+        private final Hpack encoder;
+        private final byte[] head;
+        private final byte[] frame;
+        private final byte[] out;
+        private final Map<Integer, Stream> streams;
+        private final Set<Thread> threads;
+        private byte[] block;
+        private int last;
+        private int received;
+        private boolean finishing;
+        private int active;
+        private long window;
+        private long initial;
+        private volatile int max;
+        private boolean closed;
+
+        Connection(final Http2 http, final InputStream input, final OutputStream output,
+            final Deadline reading, final Runnable idle, final BooleanSupplier busy,
+            final BooleanSupplier stopping) {
+            this.http = http;
+            this.input = input;
+            this.output = output;
+            this.reading = reading;
+            this.idle = idle;
+            this.busy = busy;
+            this.stopping = stopping;
+            this.decoder = new Hpack();
+            this.encoder = new Hpack();
+            this.head = new byte[9];
+            this.frame = new byte[Http2.FRAME];
+            this.out = new byte[9];
+            this.streams = new ConcurrentHashMap<>(0);
+            this.threads = ConcurrentHashMap.newKeySet();
+            this.block = new byte[Http2.FRAME];
+            this.window = Http2.WINDOW;
+            this.initial = Http2.WINDOW;
+            this.max = Http2.FRAME;
+        }
+
+        void serve(final RequestHead upgraded) throws IOException {
+            try {
+                synchronized (this) {
+                    this.idle.run();
+                }
+                if (upgraded == null) {
+                    // "PRI * HTTP/2.0" and the empty line are read already
+                    this.preface(Http2.PREFACE.length - 6);
+                    this.settings();
+                } else {
+                    final byte[] settings = Http2.settings(upgraded);
+                    this.apply(settings, 0, settings.length);
+                    synchronized (this.output) {
+                        this.output.write(Http2.SWITCHING);
+                    }
+                    this.settings();
+                    this.last = 1;
+                    this.start(new Stream(this, 1, this.initial, true), upgraded);
+                    this.preface(0);
+                }
+                if (!this.read(true) || this.head[3] != Http2.SETTINGS
+                    || (this.head[4] & Http2.ACK) != 0) {
+                    throw new Failure(Http2.PROTOCOL_ERROR, "SETTINGS must go first");
+                }
+                this.handle();
+                while (this.next()) {
+                    this.handle();
+                }
+            } catch (final Failure ex) {
+                this.goaway(ex.code);
+            } finally {
+                this.close();
+            }
+        }
+
+        /**
+         * Read the header of the next frame and its payload, unless it's
+         * time to finish.
+         */
+        private boolean next() throws IOException {
+            synchronized (this) {
+                if (this.stopping.getAsBoolean() && !this.finishing) {
+                    this.finishing = true;
+                    this.goaway(Http2.NO_ERROR);
+                }
+                if (this.finishing && this.active == 0) {
+                    return false;
+                }
+                if (this.active == 0) {
+                    this.reading.arm(this.http.timeouts.idle());
+                } else {
+                    this.reading.disarm();
+                }
+            }
+            return this.read(false);
+        }
+
+        /**
+         * Read a frame into the head and the frame buffer.
+         * @return FALSE if the client closed the connection between frames
+         */
+        private boolean read(final boolean first) throws IOException {
+            if (!this.fill(this.head, 9, !first)) {
+                return false;
+            }
+            final int length = this.length();
+            if (length > Http2.FRAME) {
+                throw new Failure(Http2.FRAME_SIZE_ERROR, "The frame is too big");
+            }
+            // However slowly the frame comes
+            this.reading.arm(this.http.timeouts.head());
+            this.fill(this.frame, length, false);
+            return true;
+        }
+
+        private int length() {
+            return (this.head[0] & 0xFF) << 16 | (this.head[1] & 0xFF) << 8
+                | this.head[2] & 0xFF;
+        }
+
+        private int id() {
+            return (this.head[5] & 0x7F) << 24 | (this.head[6] & 0xFF) << 16
+                | (this.head[7] & 0xFF) << 8 | this.head[8] & 0xFF;
+        }
+
+        private void handle() throws IOException {
+            final int type = this.head[3] & 0xFF;
+            final int flags = this.head[4] & 0xFF;
+            final int id = this.id();
+            final int length = this.length();
+            if (type == Http2.DATA) {
+                this.data(flags, id, length);
+            } else if (type == Http2.HEADERS) {
+                this.headers(flags, id, length);
+            } else if (type == Http2.PRIORITY) {
+                if (length != 5) {
+                    this.reset(id, Http2.FRAME_SIZE_ERROR);
+                }
+            } else if (type == Http2.RST_STREAM) {
+                Connection.control(id != 0, length == 4);
+                final Stream stream = this.streams.get(id);
+                if (stream != null) {
+                    stream.cancel();
+                }
+            } else if (type == Http2.SETTINGS) {
+                Connection.control(id == 0, (flags & Http2.ACK) == 0 ? length % 6 == 0 : length == 0);
+                if ((flags & Http2.ACK) == 0) {
+                    this.apply(this.frame, 0, length);
+                    this.control(Http2.SETTINGS, Http2.ACK, 0, Http2.EMPTY, 0);
+                }
+            } else if (type == Http2.PING) {
+                Connection.control(id == 0, length == 8);
+                if ((flags & Http2.ACK) == 0) {
+                    this.control(Http2.PING, Http2.ACK, 0, this.frame, 8);
+                }
+            } else if (type == Http2.GOAWAY) {
+                Connection.control(id == 0, length >= 8);
+                synchronized (this) {
+                    this.finishing = true;
+                }
+            } else if (type == Http2.WINDOW_UPDATE) {
+                Connection.control(true, length == 4);
+                this.update(id, Connection.int32(this.frame, 0) & 0x7FFFFFFF);
+            } else if (type == Http2.PUSH_PROMISE || type == Http2.CONTINUATION) {
+                throw new Failure(Http2.PROTOCOL_ERROR, "The frame is out of place");
+            }
+            // Frames of unknown types are ignored
+        }
+
+        private void headers(final int flags, final int id, final int length)
+            throws IOException {
+            if (id == 0) {
+                throw new Failure(Http2.PROTOCOL_ERROR, "HEADERS on the connection");
+            }
+            int start = 0;
+            int pad = 0;
+            if ((flags & Http2.PADDED) != 0) {
+                pad = this.frame[0] & 0xFF;
+                start = 1;
+            }
+            if ((flags & Http2.PRIORITIZED) != 0) {
+                start += 5;
+            }
+            if (start + pad > length) {
+                throw new Failure(Http2.PROTOCOL_ERROR, "The padding is too long");
+            }
+            int size = 0;
+            size = this.append(size, start, length - pad);
+            boolean done = (flags & Http2.END_HEADERS) != 0;
+            while (!done) {
+                if (!this.read(false) || (this.head[3] & 0xFF) != Http2.CONTINUATION
+                    || this.id() != id) {
+                    throw new Failure(Http2.PROTOCOL_ERROR, "CONTINUATION expected");
+                }
+                size = this.append(size, 0, this.length());
+                done = (this.head[4] & Http2.END_HEADERS) != 0;
+            }
+            final List<String> fields = new ArrayList<>(16);
+            BadRequest large = null;
+            try {
+                this.decoder.decode(
+                    this.block, 0, size, Http2.LIST,
+                    (name, value) -> {
+                        fields.add(name);
+                        fields.add(value);
+                    }
+                );
+            } catch (final BadRequest ex) {
+                // Too many headers spoil the stream, a broken block the connection
+                if (!ex.status().startsWith("431")) {
+                    throw new Failure(Http2.COMPRESSION_ERROR, "The header block is broken");
+                }
+                large = ex;
+            }
+            final boolean end = (flags & Http2.END_STREAM) != 0;
+            final Stream existing = this.streams.get(id);
+            if (existing != null) {
+                // Trailers, which pages don't see
+                if (end) {
+                    existing.finish();
+                } else {
+                    this.reset(id, Http2.PROTOCOL_ERROR);
+                }
+                return;
+            }
+            if (id % 2 == 0) {
+                throw new Failure(Http2.PROTOCOL_ERROR, "Clients start odd streams");
+            }
+            if (id <= this.last) {
+                this.reset(id, Http2.STREAM_CLOSED);
+                return;
+            }
+            this.last = id;
+            final RequestHead request;
+            try {
+                if (large != null) {
+                    throw large;
+                }
+                request = Connection.request(fields);
+            } catch (final BadRequest ex) {
+                if (ex.status().startsWith("431")) {
+                    this.refuse(id, ex.status());
+                } else {
+                    this.reset(id, Http2.PROTOCOL_ERROR);
+                }
+                return;
+            }
+            final boolean refused;
+            synchronized (this) {
+                refused = this.finishing || this.active >= Http2.STREAMS;
+            }
+            if (refused) {
+                this.reset(id, Http2.REFUSED_STREAM);
+                return;
+            }
+            this.start(new Stream(this, id, this.initial(), end), request);
+        }
+
+        /**
+         * Add the fragment in the frame to the header block.
+         */
+        private int append(final int size, final int from, final int to)
+            throws Failure {
+            final int length = to - from;
+            if (size + length > Http2.BLOCK) {
+                throw new Failure(Http2.ENHANCE_YOUR_CALM, "The header block is too big");
+            }
+            if (size + length > this.block.length) {
+                final byte[] bigger = new byte[Math.min(Http2.BLOCK, (size + length) * 2)];
+                System.arraycopy(this.block, 0, bigger, 0, size);
+                this.block = bigger;
+            }
+            System.arraycopy(this.frame, from, this.block, size, length);
+            return size + length;
+        }
+
+        private void data(final int flags, final int id, final int length)
+            throws IOException {
+            if (id == 0) {
+                throw new Failure(Http2.PROTOCOL_ERROR, "DATA on the connection");
+            }
+            // The window of the connection is given back at once, the
+            // windows of streams, when their pages read the data
+            this.received += length;
+            if (this.received > Http2.WINDOW) {
+                throw new Failure(Http2.FLOW_CONTROL_ERROR, "The window is exceeded");
+            }
+            if (this.received >= Http2.WINDOW / 2) {
+                this.control(Http2.WINDOW_UPDATE, 0, 0, Connection.bytes(this.received), 4);
+                this.received = 0;
+            }
+            int start = 0;
+            int pad = 0;
+            if ((flags & Http2.PADDED) != 0) {
+                pad = this.frame[0] & 0xFF;
+                start = 1;
+            }
+            if (start + pad > length) {
+                throw new Failure(Http2.PROTOCOL_ERROR, "The padding is too long");
+            }
+            final Stream stream = this.streams.get(id);
+            if (stream == null) {
+                if (id > this.last) {
+                    throw new Failure(Http2.PROTOCOL_ERROR, "DATA on an idle stream");
+                }
+                this.reset(id, Http2.STREAM_CLOSED);
+                return;
+            }
+            if (!stream.receive(this.frame, start, length - start - pad, length,
+                (flags & Http2.END_STREAM) != 0)) {
+                stream.cancel();
+                this.reset(id, Http2.FLOW_CONTROL_ERROR);
+            }
+        }
+
+        private void update(final int id, final int increment) throws IOException {
+            if (id == 0) {
+                if (increment == 0) {
+                    throw new Failure(Http2.PROTOCOL_ERROR, "Empty WINDOW_UPDATE");
+                }
+                synchronized (this) {
+                    this.window += increment;
+                    if (this.window > Integer.MAX_VALUE) {
+                        throw new Failure(Http2.FLOW_CONTROL_ERROR, "The window is too big");
+                    }
+                    this.notifyAll();
+                }
+                return;
+            }
+            final Stream stream = this.streams.get(id);
+            if (stream == null) {
+                return;
+            }
+            boolean broken = increment == 0;
+            synchronized (this) {
+                stream.window += increment;
+                broken = broken || stream.window > Integer.MAX_VALUE;
+                this.notifyAll();
+            }
+            if (broken) {
+                stream.cancel();
+                this.reset(id, Http2.FLOW_CONTROL_ERROR);
+            }
+        }
+
+        /**
+         * Take the settings of the client.
+         */
+        private void apply(final byte[] bytes, final int from, final int to)
+            throws IOException {
+            for (int pos = from; pos + 6 <= to; pos += 6) {
+                final int key = (bytes[pos] & 0xFF) << 8 | bytes[pos + 1] & 0xFF;
+                final long value = Connection.int32(bytes, pos + 2) & 0xFFFFFFFFL;
+                if (key == 0x1) {
+                    synchronized (this.output) {
+                        this.encoder.resize((int) Math.min(value, 4096L));
+                    }
+                } else if (key == 0x2 && value > 1L) {
+                    throw new Failure(Http2.PROTOCOL_ERROR, "ENABLE_PUSH must be 0 or 1");
+                } else if (key == 0x4) {
+                    if (value > Integer.MAX_VALUE) {
+                        throw new Failure(Http2.FLOW_CONTROL_ERROR, "The window is too big");
+                    }
+                    synchronized (this) {
+                        final long delta = value - this.initial;
+                        this.initial = value;
+                        for (final Stream stream : this.streams.values()) {
+                            stream.window += delta;
+                            if (stream.window > Integer.MAX_VALUE) {
+                                throw new Failure(Http2.FLOW_CONTROL_ERROR, "The window is too big");
+                            }
+                        }
+                        this.notifyAll();
+                    }
+                } else if (key == 0x5) {
+                    if (value < Http2.FRAME || value > 0xFFFFFFL) {
+                        throw new Failure(Http2.PROTOCOL_ERROR, "MAX_FRAME_SIZE is out of range");
+                    }
+                    this.max = (int) value;
+                }
+            }
+        }
+
+        private synchronized long initial() {
+            return this.initial;
+        }
+
+        /**
+         * Answer the stream on a thread of its own.
+         */
+        private void start(final Stream stream, final RequestHead request) throws IOException {
+            synchronized (this) {
+                if (this.active == 0 && !this.busy.getAsBoolean()) {
+                    throw new IOException("The connection is closed by the server");
+                }
+                ++this.active;
+                this.reading.disarm();
+            }
+            this.streams.put(stream.id, stream);
+            final Thread thread = this.http.factory.newThread(
+                () -> {
+                    try {
+                        this.answer(stream, request);
+                    } finally {
+                        this.threads.remove(Thread.currentThread());
+                    }
+                }
+            );
+            this.threads.add(thread);
+            thread.start();
+        }
+
+        private void answer(final Stream stream, final RequestHead request) {
+            final Http2 app = this.http;
+            try {
+                if (!app.admission.started()) {
+                    app.metrics.refused();
+                    stream.headers(
+                        new String[] {
+                            ":status", "503", "retry-after", app.admission.retry(),
+                        },
+                        true
+                    );
+                    stream.flush();
+                    return;
+                }
+                app.metrics.started();
+                try {
+                    final long start = System.nanoTime();
+                    final Page target = new Session(app.page, app.metrics)
+                        .with(request, stream);
+                    final Output printed;
+                    try {
+                        printed = App.printed(
+                            target, new Http2Output(stream, StreamingPage.streams(target))
+                        );
+                    } catch (final ExecutionException ex) {
+                        stream.headers(new String[] {":status", "500"}, true);
+                        stream.flush();
+                        return;
+                    } catch (final UncheckedIOException ex) {
+                        throw ex.getCause();
+                    }
+                    app.metrics.page().record(System.nanoTime() - start);
+                    printed.writeTo(this.output);
+                    // What the page didn't read is skipped, like over HTTP/1.1,
+                    // and if it's too much, the client is told to stop
+                    if (stream.receiving() && !App.drained(stream)) {
+                        this.reset(stream.id, Http2.NO_ERROR);
+                    }
+                } catch (final RuntimeException ex) {
+                    // The page is broken, but the other streams go on
+                    if (stream.answered()) {
+                        this.reset(stream.id, Http2.INTERNAL_ERROR);
+                    } else {
+                        stream.headers(new String[] {":status", "500"}, true);
+                        stream.flush();
+                    }
+                } finally {
+                    app.metrics.finished();
+                    app.admission.finished();
+                }
+            } catch (final IOException ex) {
+                if (!stream.cancelled()) {
+                    try {
+                        this.reset(stream.id, Http2.CANCEL);
+                    } catch (final IOException broken) {
+                        // The connection is gone
+                    }
+                }
+            } finally {
+                this.streams.remove(stream.id);
+                synchronized (this) {
+                    --this.active;
+                    if (this.active == 0 && !this.closed) {
+                        this.reading.arm(app.timeouts.idle());
+                        this.idle.run();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Send the header block, split into frames the client takes.
+         */
+        void headers(final int id, final String[] fields, final boolean end)
+            throws IOException {
+            synchronized (this.output) {
+                final ByteArrayOutputStream encoded = new ByteArrayOutputStream(128);
+                this.encoder.encode(fields, encoded);
+                final byte[] bytes = encoded.toByteArray();
+                final int limit = this.max;
+                int pos = 0;
+                int type = Http2.HEADERS;
+                do {
+                    final int size = Math.min(limit, bytes.length - pos);
+                    int flags = 0;
+                    if (end && type == Http2.HEADERS) {
+                        flags |= Http2.END_STREAM;
+                    }
+                    if (pos + size == bytes.length) {
+                        flags |= Http2.END_HEADERS;
+                    }
+                    this.frame(type, flags, id, bytes, pos, size);
+                    pos += size;
+                    type = Http2.CONTINUATION;
+                } while (pos < bytes.length);
+            }
+        }
+
+        /**
+         * Send the data as soon as the windows let it.
+         */
+        void data(final Stream stream, final byte[] bytes, final int off, final int len,
+            final boolean end) throws IOException {
+            int pos = off;
+            int left = len;
+            do {
+                if (left > 0 && this.blocked(stream)) {
+                    // The client sees what is sent so far before it's asked to wait
+                    this.flush();
+                }
+                final int size;
+                synchronized (this) {
+                    final long deadline = System.nanoTime() + this.http.timeouts.write();
+                    while (left > 0 && this.blocked(stream)) {
+                        final long wait = deadline - System.nanoTime();
+                        if (wait <= 0L) {
+                            this.http.metrics.timeout();
+                            throw new InterruptedIOException("No window in time");
+                        }
+                        try {
+                            TimeUnit.NANOSECONDS.timedWait(this, wait);
+                        } catch (final InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException(ex.getMessage());
+                        }
+                    }
+                    if (this.closed || stream.cancelled()) {
+                        throw new IOException("The stream is closed");
+                    }
+                    size = (int) Math.min(
+                        Math.min(left, this.max), Math.min(this.window, stream.window)
+                    );
+                    this.window -= size;
+                    stream.window -= size;
+                }
+                int flags = 0;
+                if (end && size == left) {
+                    flags = Http2.END_STREAM;
+                }
+                synchronized (this.output) {
+                    this.frame(Http2.DATA, flags, stream.id, bytes, pos, size);
+                }
+                pos += size;
+                left -= size;
+            } while (left > 0);
+        }
+
+        private synchronized boolean blocked(final Stream stream) {
+            return !this.closed && !stream.cancelled()
+                && (this.window <= 0L || stream.window <= 0L);
+        }
+
+        void flush() throws IOException {
+            synchronized (this.output) {
+                this.output.flush();
+            }
+        }
+
+        /**
+         * Tell the client it may send so much more on the stream.
+         */
+        void more(final int id, final int increment) throws IOException {
+            this.control(Http2.WINDOW_UPDATE, 0, id, Connection.bytes(increment), 4);
+        }
+
+        private void reset(final int id, final int code) throws IOException {
+            this.control(Http2.RST_STREAM, 0, id, Connection.bytes(code), 4);
+        }
+
+        /**
+         * Answer the stream with the status, without a page.
+         */
+        private void refuse(final int id, final String status) throws IOException {
+            this.headers(id, new String[] {":status", status.substring(0, 3)}, true);
+            this.flush();
+        }
+
+        private void goaway(final int code) {
+            final byte[] payload = new byte[8];
+            System.arraycopy(Connection.bytes(this.last), 0, payload, 0, 4);
+            System.arraycopy(Connection.bytes(code), 0, payload, 4, 4);
+            try {
+                this.control(Http2.GOAWAY, 0, 0, payload, 8);
+            } catch (final IOException ex) {
+                // The client is gone already
+            }
+        }
+
+        private void settings() throws IOException {
+            final byte[] payload = new byte[12];
+            payload[1] = 0x3;
+            System.arraycopy(Connection.bytes(Http2.STREAMS), 0, payload, 2, 4);
+            payload[7] = 0x6;
+            System.arraycopy(Connection.bytes(Http2.LIST), 0, payload, 8, 4);
+            this.control(Http2.SETTINGS, 0, 0, payload, payload.length);
+        }
+
+        /**
+         * Send a frame and flush it at once.
+         */
+        private void control(final int type, final int flags, final int id,
+            final byte[] payload, final int length) throws IOException {
+            synchronized (this.output) {
+                this.frame(type, flags, id, payload, 0, length);
+                this.output.flush();
+            }
+        }
+
+        /**
+         * Write a frame; the caller holds the monitor of the output.
+         */
+        private void frame(final int type, final int flags, final int id,
+            final byte[] payload, final int off, final int length) throws IOException {
+            this.out[0] = (byte) (length >>> 16);
+            this.out[1] = (byte) (length >>> 8);
+            this.out[2] = (byte) length;
+            this.out[3] = (byte) type;
+            this.out[4] = (byte) flags;
+            this.out[5] = (byte) (id >>> 24 & 0x7F);
+            this.out[6] = (byte) (id >>> 16);
+            this.out[7] = (byte) (id >>> 8);
+            this.out[8] = (byte) id;
+            this.output.write(this.out, 0, 9);
+            if (length > 0) {
+                this.output.write(payload, off, length);
+            }
+        }
+
+        /**
+         * Read the rest of the preface, after the bytes taken already.
+         */
+        private void preface(final int from) throws IOException {
+            final byte[] rest = new byte[Http2.PREFACE.length - from];
+            this.fill(rest, rest.length, false);
+            for (int idx = 0; idx < rest.length; ++idx) {
+                if (rest[idx] != Http2.PREFACE[from + idx]) {
+                    throw new Failure(Http2.PROTOCOL_ERROR, "The preface is broken");
+                }
+            }
+        }
+
+        /**
+         * Read so many bytes.
+         * @return FALSE if the stream ended before the first of them
+         */
+        private boolean fill(final byte[] bytes, final int length, final boolean optional)
+            throws IOException {
+            int done = 0;
+            while (done < length) {
+                final int read = this.input.read(bytes, done, length - done);
+                if (read < 0) {
+                    if (done == 0 && optional) {
+                        return false;
+                    }
+                    throw new EOFException("The connection is closed in the middle of a frame");
+                }
+                done += read;
+            }
+            return true;
+        }
+
+        /**
+         * The connection is done: streams still in flight fail and their
+         * threads are waited for, since they write to the output.
+         */
+        private void close() throws InterruptedIOException {
+            synchronized (this) {
+                this.closed = true;
+                this.notifyAll();
+            }
+            for (final Stream stream : this.streams.values()) {
+                stream.cancel();
+            }
+            boolean interrupted = false;
+            for (final Thread thread : this.threads) {
+                while (thread.isAlive()) {
+                    try {
+                        thread.join();
+                    } catch (final InterruptedException ex) {
+                        interrupted = true;
+                        for (final Thread other : this.threads) {
+                            other.interrupt();
+                        }
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while streams were finishing");
+            }
+        }
+
+        /**
+         * Make the head of the request out of its fields.
+         */
+        private static RequestHead request(final List<String> fields) throws BadRequest {
+            String method = "";
+            String path = "";
+            String authority = "";
+            int idx = 0;
+            while (idx < fields.size() && fields.get(idx).startsWith(":")) {
+                final String name = fields.get(idx);
+                final String value = fields.get(idx + 1);
+                if (":method".equals(name)) {
+                    method = value;
+                } else if (":path".equals(name)) {
+                    path = value;
+                } else if (":authority".equals(name)) {
+                    authority = value;
+                } else if (!":scheme".equals(name)) {
+                    throw new BadRequest("400 Bad Request");
+                }
+                idx += 2;
+            }
+            if (method.isEmpty() || path.isEmpty()) {
+                throw new BadRequest("400 Bad Request");
+            }
+            final RequestHead head = new RequestHead(64, 100);
+            head.start(method, path, "HTTP/2.0");
+            boolean host = false;
+            final StringBuilder cookies = new StringBuilder(0);
+            for (int pos = idx; pos < fields.size(); pos += 2) {
+                final String name = fields.get(pos);
+                final String value = fields.get(pos + 1);
+                if (name.startsWith(":")) {
+                    throw new BadRequest("400 Bad Request");
+                }
+                if ("cookie".equals(name)) {
+                    // Cookies may come split, HTTP/1.1 pages expect one
+                    if (cookies.length() > 0) {
+                        cookies.append("; ");
+                    }
+                    cookies.append(value);
+                } else if (!Connection.hop(name)) {
+                    host = host || "host".equals(name);
+                    head.add(name, value);
+                }
+            }
+            if (!host && !authority.isEmpty()) {
+                head.add("Host", authority);
+            }
+            if (cookies.length() > 0) {
+                head.add("Cookie", cookies.toString());
+            }
+            return head;
+        }
+
+        /**
+         * Is it a header of the connection, meaningless in HTTP/2?
+         */
+        private static boolean hop(final String name) {
+            return "connection".equals(name) || "keep-alive".equals(name)
+                || "proxy-connection".equals(name) || "transfer-encoding".equals(name)
+                || "upgrade".equals(name) || "http2-settings".equals(name);
+        }
+
+        /**
+         * Check a frame that must be on the connection or on a stream and
+         * of the right size.
+         */
+        private static void control(final boolean place, final boolean size) throws Failure {
+            if (!place) {
+                throw new Failure(Http2.PROTOCOL_ERROR, "The frame is on the wrong stream");
+            }
+            if (!size) {
+                throw new Failure(Http2.FRAME_SIZE_ERROR, "The frame is of the wrong size");
+            }
+        }
+
+        private static int int32(final byte[] bytes, final int pos) {
+            return (bytes[pos] & 0xFF) << 24 | (bytes[pos + 1] & 0xFF) << 16
+                | (bytes[pos + 2] & 0xFF) << 8 | bytes[pos + 3] & 0xFF;
+        }
+
+        private static byte[] bytes(final int value) {
+            return new byte[] {
+                (byte) (value >>> 24), (byte) (value >>> 16),
+                (byte) (value >>> 8), (byte) value,
+            };
+        }
+    }
+
+    /**
+     * One stream: the body of the request, as the page reads it, and the
+     * way for its response to go out.
+     */
+    static final class Stream extends InputStream {
+
+        private final Connection connection;
+        private final int id;
+        private final Queue<byte[]> chunks;
+        private long window;
+        private byte[] chunk;
+        private int offset;
+        private int credit;
+        private int consumed;
+        private boolean ended;
+        private volatile boolean cancelled;
+        private volatile boolean answered;
+
+        Stream(final Connection connection, final int id, final long window,
+            final boolean ended) {
+            this.connection = connection;
+            this.id = id;
+            this.window = window;
+            this.ended = ended;
+            this.chunks = new ArrayDeque<>(0);
+            this.credit = Http2.WINDOW;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] one = new byte[1];
+            if (this.read(one, 0, 1) < 0) {
+                return -1;
+            }
+            return one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            final int size;
+            int update = 0;
+            synchronized (this) {
+                // Every read may wait so long for bytes, however long the
+                // body is and whatever the page does between the reads
+                final long deadline = System.nanoTime() + this.connection.http.timeouts.body();
+                while (this.chunk == null && this.chunks.isEmpty()
+                    && !this.ended && !this.cancelled) {
+                    final long wait = deadline - System.nanoTime();
+                    if (wait <= 0L) {
+                        this.connection.http.metrics.timeout();
+                        throw new InterruptedIOException("The body doesn't come in time");
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, wait);
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException(ex.getMessage());
+                    }
+                }
+                if (this.cancelled) {
+                    throw new IOException("The stream is reset");
+                }
+                if (this.chunk == null) {
+                    this.chunk = this.chunks.poll();
+                    this.offset = 0;
+                }
+                if (this.chunk == null) {
+                    return -1;
+                }
+                size = Math.min(len, this.chunk.length - this.offset);
+                System.arraycopy(this.chunk, this.offset, bytes, off, size);
+                this.offset += size;
+                if (this.offset == this.chunk.length) {
+                    this.chunk = null;
+                }
+                this.consumed += size;
+                if (this.consumed >= Http2.WINDOW / 2 && !this.ended) {
+                    update = this.consumed;
+                    this.credit += update;
+                    this.consumed = 0;
+                }
+            }
+            if (update > 0) {
+                this.connection.more(this.id, update);
+            }
+            return size;
+        }
+
+        @Override
+        public synchronized int available() {
+            int total = 0;
+            if (this.chunk != null) {
+                total = this.chunk.length - this.offset;
+            }
+            for (final byte[] next : this.chunks) {
+                total += next.length;
+            }
+            return total;
+        }
+
+        /**
+         * Send the header block of the response.
+         * @param fields Names and values, in lower case
+         * @param end TRUE if nothing follows
+         * @throws IOException If fails
+         */
+        void headers(final String[] fields, final boolean end) throws IOException {
+            this.answered = true;
+            this.connection.headers(this.id, fields, end);
+        }
+
+        /**
+         * Send a part of the body of the response.
+         * @param bytes The bytes
+         * @param off Where the part starts
+         * @param len How long it is
+         * @param end TRUE if it's the last one
+         * @throws IOException If fails
+         */
+        void data(final byte[] bytes, final int off, final int len, final boolean end)
+            throws IOException {
+            this.connection.data(this, bytes, off, len, end);
+        }
+
+        void flush() throws IOException {
+            this.connection.flush();
+        }
+
+        /**
+         * Take the data of a DATA frame.
+         * @return FALSE if the client sent more than the window lets it
+         */
+        synchronized boolean receive(final byte[] frame, final int from, final int length,
+            final int flow, final boolean end) {
+            if (this.cancelled) {
+                // Frames sent before the client learnt of the reset
+                return true;
+            }
+            if (this.ended || flow > this.credit) {
+                return false;
+            }
+            this.credit -= flow;
+            // The padding is never read by the page, it's given back now
+            this.consumed += flow - length;
+            if (length > 0) {
+                final byte[] bytes = new byte[length];
+                System.arraycopy(frame, from, bytes, 0, length);
+                this.chunks.add(bytes);
+            }
+            this.ended = end;
+            this.notifyAll();
+            return true;
+        }
+
+        /**
+         * The client sent trailers, the body is over.
+         */
+        synchronized void finish() {
+            this.ended = true;
+            this.notifyAll();
+        }
+
+        /**
+         * May the client still send the body?
+         */
+        synchronized boolean receiving() {
+            return !this.ended;
+        }
+
+        /**
+         * The stream is reset, or the connection is gone.
+         */
+        void cancel() {
+            this.cancelled = true;
+            synchronized (this) {
+                this.notifyAll();
+            }
+            synchronized (this.connection) {
+                this.connection.notifyAll();
+            }
+        }
+
+        boolean cancelled() {
+            return this.cancelled;
+        }
+
+        /**
+         * Have the headers of the response gone out?
+         * @return TRUE if so
+         */
+        boolean answered() {
+            return this.answered;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The output of one HTTP/2 stream, sent as frames of {@link Http2}.
+ *
+ * <p>Names of headers go in lower case, as HTTP/2 wants, and those of
+ * the connection, like Connection or Transfer-Encoding, are dropped,
+ * since frames do their job. "X-Status" becomes ":status". The body is
+ * kept until {@link #writeTo(OutputStream)}, which sends the headers
+ * with a Content-Length and then the body in DATA frames, as the
+ * windows of the client let it.</p>
+ *
+ * <p>An eager output, which {@link App} gives to a
+ * {@link StreamingPage}, sends the headers with the first "X-Body" and
+ * every "X-Body" and binary body as DATA right away, like
+ * {@link ChunkedOutput} does
+ * over HTTP/1.1. Like that one, this output is mutable and writes to
+ * the network before {@link #writeTo(OutputStream)}; if the client is
+ * gone, it throws {@link UncheckedIOException}. Frames go to the
+ * connection of the stream, whatever stream is given.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Http2Output implements BinaryOutput {
+
+    /**
+     * How much of a file is read for one DATA frame.
+     */
+    private static final int CHUNK = 16384;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Http2.Stream stream;
+    private final boolean eager;
+    private final List<String> fields;
+    private final ByteArrayOutputStream text;
+    private String length;
+    private boolean body;
+    private boolean started;
+    private ByteBuffer tail;
+    private FileChannel file;
+    private long position;
+    private long count;
+
+    /**
+     * Ctor.
+     * @param stream The stream
+     * @param eager TRUE if the body goes out as it's printed
+     */
+    Http2Output(final Http2.Stream stream, final boolean eager) {
+        this.stream = stream;
+        this.eager = eager;
+        this.fields = new ArrayList<>(16);
+        this.fields.add(":status");
+        this.fields.add("200");
+        this.text = new ByteArrayOutputStream(0);
+        this.length = "";
+    }
+
+    @Override
+    public Output with(final String name, final String value) {
+        if ("X-Body".equals(name)) {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (this.eager) {
+                this.send(bytes);
+            } else {
+                this.text.write(bytes, 0, bytes.length);
+            }
+            this.body = true;
+            return this;
+        }
+        if (this.body) {
+            throw new IllegalStateException(
+                String.format("The header \"%s\" can't go after the body", name)
+            );
+        }
+        if ("X-Status".equals(name)) {
+            this.fields.set(1, value.split(" ", 2)[0]);
+            return this;
+        }
+        final String lower = name.toLowerCase(Locale.ENGLISH);
+        if ("content-length".equals(lower)) {
+            // An eager body is framed by DATA alone, its length is unknown
+            if (!this.eager) {
+                this.length = value;
+            }
+        } else if (!"connection".equals(lower) && !"keep-alive".equals(lower)
+            && !"proxy-connection".equals(lower) && !"transfer-encoding".equals(lower)
+            && !"upgrade".equals(lower)) {
+            this.fields.add(lower);
+            this.fields.add(value);
+        }
+        return this;
+    }
+
+    @Override
+    public Output withBody(final ByteBuffer bytes) {
+        if (this.eager) {
+            final ByteBuffer copy = bytes.duplicate();
+            final byte[] array = new byte[copy.remaining()];
+            copy.get(array);
+            this.body = true;
+            this.send(array);
+            return this;
+        }
+        this.with("X-Body", "");
+        this.tail = bytes.duplicate();
+        return this;
+    }
+
+    @Override
+    public Output withBody(final FileChannel channel, final long pos, final long size) {
+        this.with("X-Body", "");
+        this.position = pos;
+        this.count = size;
+        if (this.eager) {
+            try (final FileChannel closing = channel) {
+                this.region(closing, false);
+                this.stream.flush();
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        } else {
+            this.file = channel;
+        }
+        return this;
+    }
+
+    /**
+     * Does every "X-Body" go out at once?
+     * @return TRUE if so
+     */
+    boolean eager() {
+        return this.eager;
+    }
+
+    @Override
+    public void writeTo(final OutputStream output) throws IOException {
+        try {
+            if (this.eager && this.body) {
+                this.stream.data(Http2Output.EMPTY, 0, 0, true);
+            } else {
+                this.whole();
+            }
+        } finally {
+            if (this.file != null) {
+                this.file.close();
+            }
+        }
+        this.stream.flush();
+    }
+
+    /**
+     * Send the headers and all the body kept so far.
+     */
+    private void whole() throws IOException {
+        long size = this.text.size();
+        if (this.tail != null) {
+            size += this.tail.remaining();
+        }
+        if (this.file != null) {
+            size += this.count;
+        }
+        if (this.body) {
+            this.length = Long.toString(size);
+        }
+        this.head(size == 0L);
+        if (size == 0L) {
+            return;
+        }
+        final boolean more = this.tail != null || this.file != null;
+        if (this.text.size() > 0) {
+            this.stream.data(this.text.toByteArray(), 0, this.text.size(), !more);
+        }
+        if (this.tail != null) {
+            final ByteBuffer bytes = this.tail.duplicate();
+            final byte[] array;
+            final int off;
+            if (bytes.hasArray()) {
+                array = bytes.array();
+                off = bytes.arrayOffset() + bytes.position();
+            } else {
+                array = new byte[bytes.remaining()];
+                bytes.get(array);
+                off = 0;
+            }
+            this.stream.data(array, off, this.tail.remaining(), this.file == null);
+        }
+        if (this.file != null) {
+            this.region(this.file, true);
+        }
+    }
+
+    /**
+     * Send the file region, a chunk at a time, ending the stream with
+     * the last one if asked.
+     */
+    private void region(final FileChannel channel, final boolean last)
+        throws IOException {
+        final ByteBuffer chunk = ByteBuffer.allocate(
+            (int) Math.min(Http2Output.CHUNK, Math.max(this.count, 1L))
+        );
+        while (this.count > 0L) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), this.count));
+            final int read = channel.read(chunk, this.position);
+            if (read <= 0) {
+                throw new IOException("The file got shorter while being sent");
+            }
+            this.position += read;
+            this.count -= read;
+            this.stream.data(chunk.array(), 0, read, last && this.count == 0L);
+        }
+    }
+
+    /**
+     * Send a part of the body at once, with the headers before the first.
+     */
+    private void send(final byte[] bytes) {
+        try {
+            if (!this.started) {
+                this.head(false);
+            }
+            // An empty frame without END_STREAM is useless, skip it
+            if (bytes.length > 0) {
+                this.stream.data(bytes, 0, bytes.length, false);
+                this.stream.flush();
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void head(final boolean end) throws IOException {
+        this.started = true;
+        if (!this.length.isEmpty()) {
+            this.fields.add("content-length");
+            this.fields.add(this.length);
+        }
+        this.stream.headers(this.fields.toArray(new String[0]), end);
+    }
+}
@@ -23,38 +23,71 @@
  */
 package org.elegantobjects.jpages.App1;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * The page.
  *
+ * <p>The page is immutable, every pair makes a new page on top of the
+ * previous one, without copying it. Thus, the same root page may serve
+ * many requests at once, and each of them gets its own pairs.</p>
+ *
  * @author Yegor Bugayenko (yegor256@gmail.com)
  * @since 0.1
  */
 public final class KeyValuePage implements Page {
 
-    private final Map<String, String> args;
+    private final String key;
+    private final String value;
+    private final KeyValuePage previous;
 
     public KeyValuePage() {
-        this.args = new HashMap<>(0);
+        this(null, null, null);
+    }
+
+    private KeyValuePage(final String key, final String value,
+        final KeyValuePage previous) {
+        this.key = key;
+        this.value = value;
+        this.previous = previous;
     }
 
     @Override
-    public Page with(final String key, final String value) {
-        this.args.put(key, value);
-        return this;
+    public Page with(final String name, final String val) {
+        return new KeyValuePage(name, val, this);
     }
 
     @Override
     public Output printTo(final Output output) {
         return new TextPage(
-            this.args
+            this.args()
                 .entrySet()
                 .stream()
                 .map(e -> e.getKey() + ": " + e.getValue())
                 .collect(Collectors.joining("\n"))
         ).printTo(output);
     }
+
+    /**
+     * All pairs, in the order they came, the latest value of a key wins.
+     */
+    private Map<String, String> args() {
+        int size = 0;
+        for (KeyValuePage page = this; page.key != null; page = page.previous) {
+            ++size;
+        }
+        final KeyValuePage[] pages = new KeyValuePage[size];
+        KeyValuePage page = this;
+        for (int idx = size - 1; idx >= 0; --idx) {
+            pages[idx] = page;
+            page = page.previous;
+        }
+        final Map<String, String> args = new LinkedHashMap<>(size * 2);
+        for (final KeyValuePage pair : pages) {
+            args.put(pair.key, pair.value);
+        }
+        return args;
+    }
 }
@@ -0,0 +1,174 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.util.Arrays;
+
+/**
+ * Names of the headers most requests have, each with a slot number.
+ *
+ * <p>A name is recognized straight from the bytes of the line, in any
+ * case, and the same String constant is used for it in every request,
+ * so nothing is allocated for it and pages compare it by identity
+ * first, in {@link String#equals(Object)}.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+final class KnownHeaders {
+
+    /**
+     * The names, in their canonical case; the position is the slot.
+     */
+    static final String[] NAMES = {
+        "X-Method",
+        "X-Path",
+        "X-Query",
+        "X-Protocol",
+        "Host",
+        "User-Agent",
+        "Accept",
+        "Accept-Encoding",
+        "Accept-Language",
+        "Accept-Charset",
+        "Connection",
+        "Keep-Alive",
+        "Content-Length",
+        "Content-Type",
+        "Transfer-Encoding",
+        "Expect",
+        "Cookie",
+        "Authorization",
+        "Cache-Control",
+        "Pragma",
+        "If-None-Match",
+        "If-Modified-Since",
+        "Range",
+        "Referer",
+        "Origin",
+        "Upgrade",
+        "Upgrade-Insecure-Requests",
+        "X-Forwarded-For",
+        "X-Requested-With",
+        "DNT"
+    };
+
+    static final int METHOD = 0;
+    static final int PATH = 1;
+    static final int QUERY = 2;
+    static final int PROTOCOL = 3;
+    static final int CONNECTION = 10;
+
+    private static final int MASK = 127;
+
+    /**
+     * Open addressing table from the hash of a name to its slot.
+     */
+    private static final int[] TABLE = KnownHeaders.table();
+
+    private KnownHeaders() {
+        // Only static methods here
+    }
+
+    /**
+     * The slot of the name in the bytes.
+     * @param bytes The bytes
+     * @param from Where the name starts
+     * @param to Where it ends, exclusively
+     * @return The slot or -1 if the name is not known
+     */
+    static int slot(final byte[] bytes, final int from, final int to) {
+        int hash = 0;
+        for (int idx = from; idx < to; ++idx) {
+            hash = 31 * hash + KnownHeaders.lower(bytes[idx] & 0xFF);
+        }
+        for (int pos = KnownHeaders.start(hash); ; pos = pos + 1 & KnownHeaders.MASK) {
+            final int slot = KnownHeaders.TABLE[pos];
+            if (slot < 0 || KnownHeaders.same(KnownHeaders.NAMES[slot], bytes, from, to)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * The slot of the name.
+     * @param name The name, in any case
+     * @return The slot or -1 if the name is not known
+     */
+    static int slot(final String name) {
+        int hash = 0;
+        for (int idx = 0; idx < name.length(); ++idx) {
+            hash = 31 * hash + KnownHeaders.lower(name.charAt(idx));
+        }
+        for (int pos = KnownHeaders.start(hash); ; pos = pos + 1 & KnownHeaders.MASK) {
+            final int slot = KnownHeaders.TABLE[pos];
+            if (slot < 0 || KnownHeaders.NAMES[slot].equalsIgnoreCase(name)) {
+                return slot;
+            }
+        }
+    }
+
+    private static int[] table() {
+        final int[] table = new int[KnownHeaders.MASK + 1];
+        Arrays.fill(table, -1);
+        for (int slot = 0; slot < KnownHeaders.NAMES.length; ++slot) {
+            final String name = KnownHeaders.NAMES[slot];
+            int hash = 0;
+            for (int idx = 0; idx < name.length(); ++idx) {
+                hash = 31 * hash + KnownHeaders.lower(name.charAt(idx));
+            }
+            int pos = KnownHeaders.start(hash);
+            while (table[pos] >= 0) {
+                pos = pos + 1 & KnownHeaders.MASK;
+            }
+            table[pos] = slot;
+        }
+        return table;
+    }
+
+    private static int start(final int hash) {
+        return (hash ^ hash >>> 7) & KnownHeaders.MASK;
+    }
+
+    private static boolean same(final String name, final byte[] bytes,
+        final int from, final int to) {
+        if (name.length() != to - from) {
+            return false;
+        }
+        for (int idx = 0; idx < name.length(); ++idx) {
+            if (KnownHeaders.lower(name.charAt(idx))
+                != KnownHeaders.lower(bytes[from + idx] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lower(final int chr) {
+        if (chr >= 'A' && chr <= 'Z') {
+            return chr + ('a' - 'A');
+        }
+        return chr;
+    }
+}
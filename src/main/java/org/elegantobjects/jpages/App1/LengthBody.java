@@ -0,0 +1,75 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The body of a request, as long as its Content-Length says.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class LengthBody extends InputStream {
+
+    private final InputStream origin;
+    private long left;
+
+    public LengthBody(final InputStream input, final long length) {
+        this.origin = input;
+        this.left = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (this.left == 0L) {
+            return -1;
+        }
+        final int chr = this.origin.read();
+        if (chr < 0) {
+            throw new IOException("The body ended before its Content-Length");
+        }
+        --this.left;
+        return chr;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int off, final int len) throws IOException {
+        if (this.left == 0L) {
+            return -1;
+        }
+        final int read = this.origin.read(bytes, off, (int) Math.min(len, this.left));
+        if (read < 0) {
+            throw new IOException("The body ended before its Content-Length");
+        }
+        this.left -= read;
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(this.origin.available(), this.left);
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The listening sockets of the app, one or a few on the same port.
+ *
+ * <p>A few of them are opened with SO_REUSEPORT and the kernel spreads
+ * new connections over them, so they are accepted by a few threads at
+ * once, instead of queuing up behind one {@code accept()}. The build
+ * targets Java 8, so the option is looked up reflectively; on a JDK or
+ * an OS without it there is only one listener, see
+ * {@link #reusable()}.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Listeners {
+
+    private final int count;
+
+    public Listeners() {
+        this(1);
+    }
+
+    /**
+     * Ctor.
+     * @param total How many listeners to open, for example one per core
+     */
+    public Listeners(final int total) {
+        if (total < 1) {
+            throw new IllegalArgumentException(
+                String.format("At least one listener is required, %d given", total)
+            );
+        }
+        this.count = total;
+    }
+
+    /**
+     * Will there really be a few listeners?
+     * @return TRUE if SO_REUSEPORT is there or just one listener is asked for
+     */
+    public boolean reusable() {
+        return this.count == 1 || Listeners.option() != null;
+    }
+
+    /**
+     * Open the listeners, all bound to the port.
+     * @param port The port, or zero for any free one, the same for all
+     * @param backlog The length of the backlog of every listener
+     * @return The listeners, at least one
+     * @throws IOException If fails to bind
+     */
+    public List<ServerSocket> open(final int port, final int backlog) throws IOException {
+        final Object option = Listeners.option();
+        if (this.count == 1 || option == null) {
+            final List<ServerSocket> single = new ArrayList<>(1);
+            single.add(new ServerSocket(port, backlog));
+            return single;
+        }
+        final List<ServerSocket> servers = new ArrayList<>(this.count);
+        int bound = port;
+        try {
+            for (int idx = 0; idx < this.count; ++idx) {
+                final ServerSocket server = new ServerSocket();
+                servers.add(server);
+                Listeners.reuse(server, option);
+                server.bind(new InetSocketAddress(bound), backlog);
+                bound = server.getLocalPort();
+            }
+        } catch (final IOException ex) {
+            for (final ServerSocket server : servers) {
+                server.close();
+            }
+            throw ex;
+        }
+        return servers;
+    }
+
+    /**
+     * The SO_REUSEPORT option, if the JDK and the OS support it.
+     * @return The option or NULL
+     */
+    private static Object option() {
+        try {
+            final Object option = Class.forName("java.net.StandardSocketOptions")
+                .getField("SO_REUSEPORT").get(null);
+            try (final ServerSocket probe = new ServerSocket()) {
+                final Object supported = ServerSocket.class.getMethod("supportedOptions")
+                    .invoke(probe);
+                if (!((Set<?>) supported).contains(option)) {
+                    return null;
+                }
+            }
+            return option;
+        } catch (final ClassNotFoundException | NoSuchFieldException | NoSuchMethodException
+            | IllegalAccessException | InvocationTargetException | IOException ex) {
+            return null;
+        }
+    }
+
+    private static void reuse(final ServerSocket server, final Object option)
+        throws IOException {
+        try {
+            final Method method = ServerSocket.class.getMethod(
+                "setOption", SocketOption.class, Object.class
+            );
+            method.invoke(server, option, Boolean.TRUE);
+        } catch (final NoSuchMethodException | IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        } catch (final InvocationTargetException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a running server.
+ *
+ * <p>Counters are {@link LongAdder}s, so that threads don't fight for
+ * one cache line, and timings go to {@link Histogram}s. The time of
+ * a request is split into parsing its head, running the page and
+ * writing the response. Buffers of {@link Buffers} are counted too:
+ * those in use, those waiting in the pool and those allocated because
+ * the pool was empty.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Metrics {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder open = new LongAdder();
+    private final LongAdder inflight = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder pooled = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Histogram parsing = new Histogram();
+    private final Histogram paging = new Histogram();
+    private final Histogram writing = new Histogram();
+
+    /**
+     * A connection was accepted.
+     */
+    public void opened() {
+        this.connections.increment();
+        this.open.increment();
+    }
+
+    /**
+     * A connection was closed.
+     */
+    public void closed() {
+        this.open.decrement();
+    }
+
+    /**
+     * A request was handed over to the page.
+     */
+    public void request() {
+        this.requests.increment();
+    }
+
+    /**
+     * A request was read off the wire and is being answered.
+     */
+    public void started() {
+        this.inflight.increment();
+    }
+
+    /**
+     * A request was answered.
+     */
+    public void finished() {
+        this.inflight.decrement();
+    }
+
+    /**
+     * Nobody connected for too long, or a client missed a deadline.
+     */
+    public void timeout() {
+        this.timeouts.increment();
+    }
+
+    /**
+     * A request was refused before reaching the page.
+     */
+    public void refused() {
+        this.refused.increment();
+    }
+
+    /**
+     * A buffer was borrowed.
+     * @param pool TRUE if it came from the pool, FALSE if allocated
+     */
+    public void borrowed(final boolean pool) {
+        this.borrowed.increment();
+        if (pool) {
+            this.pooled.decrement();
+        } else {
+            this.misses.increment();
+        }
+    }
+
+    /**
+     * A buffer was returned.
+     * @param pool TRUE if it went to the pool, FALSE if left to the GC
+     */
+    public void returned(final boolean pool) {
+        this.borrowed.decrement();
+        if (pool) {
+            this.pooled.increment();
+        }
+    }
+
+    /**
+     * How many buffers are borrowed and not returned yet.
+     */
+    public long buffers() {
+        return this.borrowed.sum();
+    }
+
+    /**
+     * How many requests are being answered right now.
+     */
+    public long inflight() {
+        return this.inflight.sum();
+    }
+
+    /**
+     * Time spent parsing request heads.
+     */
+    public Histogram parse() {
+        return this.parsing;
+    }
+
+    /**
+     * Time spent in pages.
+     */
+    public Histogram page() {
+        return this.paging;
+    }
+
+    /**
+     * Time spent writing responses.
+     */
+    public Histogram write() {
+        return this.writing;
+    }
+
+    /**
+     * Print all metrics in Prometheus text format.
+     * @param text Where to print
+     * @return The same text
+     */
+    public StringBuilder printTo(final StringBuilder text) {
+        Metrics.counter(text, "jpages_requests_total", "Requests handed over to pages", this.requests);
+        Metrics.counter(text, "jpages_connections_total", "Connections accepted", this.connections);
+        Metrics.gauge(text, "jpages_connections_open", "Connections open now", this.open);
+        Metrics.gauge(text, "jpages_requests_inflight", "Requests being answered now", this.inflight);
+        Metrics.counter(text, "jpages_timeouts_total", "Accepts, reads and writes that timed out", this.timeouts);
+        Metrics.counter(text, "jpages_refused_total", "Requests refused before the page", this.refused);
+        Metrics.gauge(text, "jpages_buffers_borrowed", "Buffers in use now", this.borrowed);
+        Metrics.gauge(text, "jpages_buffers_pooled", "Buffers waiting in the pool", this.pooled);
+        Metrics.counter(text, "jpages_buffers_misses_total", "Buffers allocated, the pool empty", this.misses);
+        this.parsing.printTo(text, "jpages_parse_seconds", "Time to parse request heads");
+        this.paging.printTo(text, "jpages_page_seconds", "Time spent in pages");
+        this.writing.printTo(text, "jpages_write_seconds", "Time to write responses");
+        return text;
+    }
+
+    private static void counter(final StringBuilder text, final String name,
+        final String help, final LongAdder value) {
+        Metrics.metric(text, name, help, "counter", value);
+    }
+
+    private static void gauge(final StringBuilder text, final String name,
+        final String help, final LongAdder value) {
+        Metrics.metric(text, name, help, "gauge", value);
+    }
+
+    private static void metric(final StringBuilder text, final String name,
+        final String help, final String type, final LongAdder value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n')
+            .append("# TYPE ").append(name).append(' ').append(type).append('\n')
+            .append(name).append(' ').append(value.sum()).append('\n');
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The page with metrics of the server, in Prometheus text format.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class MetricsPage implements SelectivePage {
+
+    private final Metrics metrics;
+
+    public MetricsPage(final Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Page with(final String key, final String value) {
+        return this;
+    }
+
+    @Override
+    public boolean wants(final String key) {
+        return false;
+    }
+
+    @Override
+    public Output printTo(final Output output) {
+        final String body = this.metrics.printTo(new StringBuilder(4096)).toString();
+        return output
+            .with("Content-Type", "text/plain; version=0.0.4; charset=utf-8")
+            .with("Content-Length", Integer.toString(body.getBytes(StandardCharsets.UTF_8).length))
+            .with("X-Body", body);
+    }
+}
@@ -29,6 +29,10 @@ import java.io.OutputStream;
 /**
  * The output.
  *
+ * <p>Headers go in the order they are printed. Two names are special:
+ * "X-Body" is the body and goes last, "X-Status" is the status, like
+ * "404 Not Found", and may come any time before the body.</p>
+ *
  * @author Yegor Bugayenko (yegor256@gmail.com)
  * @since 0.1
  */
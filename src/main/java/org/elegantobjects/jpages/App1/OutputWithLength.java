@@ -0,0 +1,115 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The output that always frames its body with a Content-Length.
+ *
+ * <p>On a persistent connection the client finds the end of a response
+ * only by its length, so a body printed without Content-Length gets one
+ * here, and a page that prints no body at all gets an empty one.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class OutputWithLength implements BinaryOutput {
+
+    private final Output origin;
+    private final boolean length;
+    private final boolean body;
+
+    public OutputWithLength(final Output output) {
+        this(output, false, false);
+    }
+
+    private OutputWithLength(final Output output, final boolean length,
+        final boolean body) {
+        this.origin = output;
+        this.length = length;
+        this.body = body;
+    }
+
+    @Override
+    public String toString() {
+        return this.origin.toString();
+    }
+
+    /**
+     * The origin, ready to take a binary body of this many bytes.
+     */
+    private BinaryOutput binary(final long size) {
+        if (!(this.origin instanceof BinaryOutput)) {
+            throw new IllegalStateException(
+                String.format("%s can't take a binary body", this.origin.getClass().getName())
+            );
+        }
+        if (this.length) {
+            return (BinaryOutput) this.origin;
+        }
+        return (BinaryOutput) this.origin.with("Content-Length", Long.toString(size));
+    }
+
+    @Override
+    public Output with(final String name, final String value) {
+        if ("Content-Length".equals(name)) {
+            return new OutputWithLength(this.origin.with(name, value), true, this.body);
+        }
+        if ("X-Body".equals(name)) {
+            Output output = this.origin;
+            if (!this.length) {
+                output = output.with("Content-Length", Integer.toString(Utf8.length(value)));
+            }
+            return new OutputWithLength(output.with(name, value), true, true);
+        }
+        return new OutputWithLength(this.origin.with(name, value), this.length, this.body);
+    }
+
+    @Override
+    public Output withBody(final ByteBuffer bytes) {
+        return new OutputWithLength(
+            this.binary(bytes.remaining()).withBody(bytes), true, true
+        );
+    }
+
+    @Override
+    public Output withBody(final FileChannel file, final long position, final long count) {
+        return new OutputWithLength(
+            this.binary(count).withBody(file, position, count), true, true
+        );
+    }
+
+    @Override
+    public void writeTo(final OutputStream output) throws IOException {
+        if (this.body) {
+            this.origin.writeTo(output);
+        } else {
+            this.with("X-Body", "").writeTo(output);
+        }
+    }
+}
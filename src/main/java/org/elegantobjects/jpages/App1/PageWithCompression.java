@@ -0,0 +1,196 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The page that compresses its response, if the client accepts it.
+ *
+ * <p>The encoding is negotiated by Accept-Encoding, gzip is preferred
+ * to deflate when both are equally welcome. A constant page, like a
+ * {@link TextPage} that ignores the request, may be wrapped with
+ * {@code constant} set, and then it's printed and compressed only once
+ * per encoding, while later requests get the cached bytes, unless the
+ * page prints a file too big to be kept. Accept-Encoding goes to the
+ * page too, unless it's constant, and a page that sends its own
+ * Content-Encoding is not compressed again.</p>
+ *
+ * <p>A {@link StreamingPage} inside is streamed compressed, through a
+ * {@link DeflatingOutput}, with neither the threshold nor the cache,
+ * since its rows are never all in memory.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class PageWithCompression implements SelectivePage {
+
+    private final Page page;
+    private final int threshold;
+    private final Map<String, RecordedOutput> cache;
+    private final String encoding;
+
+    public PageWithCompression(final Page page) {
+        this(page, 1024);
+    }
+
+    public PageWithCompression(final Page page, final int threshold) {
+        this(page, threshold, false);
+    }
+
+    public PageWithCompression(final Page page, final int threshold,
+        final boolean constant) {
+        this(page, threshold, constant ? new ConcurrentHashMap<>(2) : null, "");
+    }
+
+    private PageWithCompression(final Page page, final int threshold,
+        final Map<String, RecordedOutput> cache, final String encoding) {
+        this.page = page;
+        this.threshold = threshold;
+        this.cache = cache;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public Page with(final String key, final String value) {
+        if ("Accept-Encoding".equalsIgnoreCase(key)) {
+            // The page may vary on it too, or have its bodies compressed already
+            Page origin = this.page;
+            if (this.cache == null) {
+                origin = origin.with(key, value);
+            }
+            return new PageWithCompression(
+                origin, this.threshold, this.cache,
+                PageWithCompression.negotiated(value)
+            );
+        }
+        if (this.cache != null) {
+            return this;
+        }
+        return new PageWithCompression(
+            this.page.with(key, value), this.threshold, this.cache, this.encoding
+        );
+    }
+
+    @Override
+    public boolean wants(final String key) {
+        if ("Accept-Encoding".equalsIgnoreCase(key)) {
+            return true;
+        }
+        if (this.cache != null) {
+            return false;
+        }
+        return !(this.page instanceof SelectivePage)
+            || ((SelectivePage) this.page).wants(key);
+    }
+
+    @Override
+    public Output printTo(final Output output) {
+        final Output vary = output.with("Vary", "Accept-Encoding");
+        if (this.encoding.isEmpty() || !(vary instanceof BinaryOutput)) {
+            return this.page.printTo(vary);
+        }
+        if (StreamingPage.streaming(vary)) {
+            return this.page.printTo(new DeflatingOutput((BinaryOutput) vary, this.encoding));
+        }
+        if (this.cache == null) {
+            return this.page.printTo(
+                new CompressedOutput(vary, this.encoding, this.threshold)
+            );
+        }
+        final RecordedOutput recorded = this.cache.computeIfAbsent(
+            this.encoding,
+            enc -> {
+                final RecordedOutput fresh = new RecordedOutput();
+                this.page.printTo(new CompressedOutput(fresh, enc, this.threshold));
+                return fresh;
+            }
+        );
+        if (!recorded.complete()) {
+            // A big file is not kept, and goes out as it is anyway
+            return this.page.printTo(
+                new CompressedOutput(vary, this.encoding, this.threshold)
+            );
+        }
+        return recorded.replay(vary);
+    }
+
+    /**
+     * Is the page inside streamed row by row?
+     * @return TRUE if it's a {@link StreamingPage}
+     */
+    boolean streams() {
+        return StreamingPage.streams(this.page);
+    }
+
+    /**
+     * Pick the encoding from the value of Accept-Encoding.
+     * @param header The value, like "gzip, deflate;q=0.5"
+     * @return Either "gzip", "deflate", or empty if neither is accepted
+     */
+    private static String negotiated(final String header) {
+        double gzip = -1.0;
+        double deflate = -1.0;
+        double any = 0.0;
+        for (final String part : header.split(",")) {
+            final String[] params = part.split(";");
+            final String name = params[0].trim().toLowerCase(Locale.ENGLISH);
+            double quality = 1.0;
+            for (int idx = 1; idx < params.length; ++idx) {
+                final String param = params[idx].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (final NumberFormatException ex) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            if ("gzip".equals(name) || "x-gzip".equals(name)) {
+                gzip = quality;
+            } else if ("deflate".equals(name)) {
+                deflate = quality;
+            } else if ("*".equals(name)) {
+                any = quality;
+            }
+        }
+        if (gzip < 0.0) {
+            gzip = any;
+        }
+        if (deflate < 0.0) {
+            deflate = any;
+        }
+        final String chosen;
+        if (gzip > 0.0 && gzip >= deflate) {
+            chosen = "gzip";
+        } else if (deflate > 0.0) {
+            chosen = "deflate";
+        } else {
+            chosen = "";
+        }
+        return chosen;
+    }
+}
@@ -29,7 +29,7 @@ package org.elegantobjects.jpages.App1;
  * @author Yegor Bugayenko (yegor256@gmail.com)
  * @since 0.1
  */
-public final class PageWithContentType implements Page {
+public final class PageWithContentType implements SelectivePage {
 
     private final Page page;
     private final String type;
@@ -44,10 +44,23 @@ public final class PageWithContentType implements Page {
         return this;
     }
 
+    @Override
+    public boolean wants(final String key) {
+        return false;
+    }
+
     @Override
     public Output printTo(final Output output) {
         return this.page.printTo(
             output.with("Content-Type", this.type)
         );
     }
+
+    /**
+     * Is the page inside streamed row by row?
+     * @return TRUE if it's a {@link StreamingPage}
+     */
+    boolean streams() {
+        return StreamingPage.streams(this.page);
+    }
 }
@@ -0,0 +1,245 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The page with a table of routes.
+ *
+ * <p>Unlike a chain of {@link PageWithRoutes}, which compares the path
+ * with every route one by one, the routes are compiled into a trie of
+ * path segments once, in the constructor, and a request walks it only
+ * as deep as its path is long. Literal segments win over
+ * <code>{param}</code> ones, which win over a <code>*</code> prefix;
+ * routes for a particular method win over those for any. When nothing
+ * matches, the request goes to the error page.</p>
+ *
+ * <p>The page waits for both X-Method and X-Path to come, then hands
+ * them, with the parameters of the path, to the page it found.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class PageWithRouteTable implements SelectivePage {
+
+    private final Node root;
+    private final Page error;
+    private final String method;
+    private final String path;
+
+    public PageWithRouteTable(final Page error, final Route... routes) {
+        this(Arrays.asList(routes), error);
+    }
+
+    public PageWithRouteTable(final Iterable<Route> routes, final Page error) {
+        this(PageWithRouteTable.compile(routes), error, "", "");
+    }
+
+    private PageWithRouteTable(final Node root, final Page error,
+        final String method, final String path) {
+        this.root = root;
+        this.error = error;
+        this.method = method;
+        this.path = path;
+    }
+
+    @Override
+    public Page with(final String key, final String value) {
+        String mtd = this.method;
+        String pth = this.path;
+        if ("X-Method".equals(key)) {
+            mtd = value;
+        } else if ("X-Path".equals(key)) {
+            pth = value;
+        } else {
+            return this;
+        }
+        if (mtd.isEmpty() || pth.isEmpty()) {
+            return new PageWithRouteTable(this.root, this.error, mtd, pth);
+        }
+        return this.dispatch(mtd, pth);
+    }
+
+    @Override
+    public boolean wants(final String key) {
+        return "X-Method".equals(key) || "X-Path".equals(key);
+    }
+
+    @Override
+    public Output printTo(final Output output) {
+        return output;
+    }
+
+    private Page dispatch(final String mtd, final String pth) {
+        final List<String> segments = PageWithRouteTable.segments(pth);
+        final List<String> params = new ArrayList<>(0);
+        final Page found = this.root.find(mtd, segments, 0, params);
+        Page target;
+        if (found == null) {
+            target = this.error;
+        } else {
+            target = found;
+            for (int idx = 0; idx < params.size(); idx += 2) {
+                target = target.with("X-Param-" + params.get(idx), params.get(idx + 1));
+            }
+        }
+        return target.with("X-Method", mtd).with("X-Path", pth);
+    }
+
+    private static Node compile(final Iterable<Route> routes) {
+        final Node root = new Node();
+        for (final Route route : routes) {
+            Node node = root;
+            final List<String> segments = PageWithRouteTable.segments(route.pattern());
+            for (int idx = 0; idx < segments.size(); ++idx) {
+                final String segment = segments.get(idx);
+                if ("*".equals(segment)) {
+                    if (idx != segments.size() - 1) {
+                        throw new IllegalArgumentException(
+                            String.format("'*' must be the last segment in '%s'", route.pattern())
+                        );
+                    }
+                    node.put(node.prefix, route);
+                    node = null;
+                    break;
+                }
+                node = node.child(segment, route.pattern());
+            }
+            if (node != null) {
+                node.put(node.exact, route);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Non-empty segments of the path, so "/a//b/" is the same as "/a/b".
+     */
+    private static List<String> segments(final String path) {
+        final List<String> segments = new ArrayList<>(8);
+        int start = 0;
+        final int length = path.length();
+        for (int idx = 0; idx <= length; ++idx) {
+            if (idx == length || path.charAt(idx) == '/') {
+                if (idx > start) {
+                    segments.add(path.substring(start, idx));
+                }
+                start = idx + 1;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * A node of the trie, one path segment deep.
+     */
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>(0);
+        private final Map<String, Page> exact = new HashMap<>(0);
+        private final Map<String, Page> prefix = new HashMap<>(0);
+        private Node param;
+        private String name;
+
+        Node child(final String segment, final String pattern) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                final String label = segment.substring(1, segment.length() - 1);
+                if (this.param == null) {
+                    this.param = new Node();
+                    this.name = label;
+                } else if (!this.name.equals(label)) {
+                    throw new IllegalArgumentException(
+                        String.format(
+                            "Parameter {%s} in '%s' clashes with {%s} of another route",
+                            label, pattern, this.name
+                        )
+                    );
+                }
+                return this.param;
+            }
+            return this.literals.computeIfAbsent(segment, key -> new Node());
+        }
+
+        void put(final Map<String, Page> pages, final Route route) {
+            if (pages.containsKey(route.method())) {
+                throw new IllegalArgumentException(
+                    String.format(
+                        "Route %s '%s' is defined twice", route.method(), route.pattern()
+                    )
+                );
+            }
+            pages.put(route.method(), route.page());
+        }
+
+        /**
+         * Find the page for the rest of the path, depth first.
+         * @param params Names and values of parameters, filled on success
+         * @return The page or NULL if nothing matches
+         */
+        Page find(final String method, final List<String> segments,
+            final int idx, final List<String> params) {
+            if (idx == segments.size()) {
+                final Page page = Node.pick(this.exact, method);
+                if (page != null) {
+                    return page;
+                }
+                return Node.pick(this.prefix, method);
+            }
+            final String segment = segments.get(idx);
+            final Node literal = this.literals.get(segment);
+            if (literal != null) {
+                final Page page = literal.find(method, segments, idx + 1, params);
+                if (page != null) {
+                    return page;
+                }
+            }
+            if (this.param != null) {
+                final int size = params.size();
+                params.add(this.name);
+                params.add(segment);
+                final Page page = this.param.find(method, segments, idx + 1, params);
+                if (page != null) {
+                    return page;
+                }
+                params.subList(size, params.size()).clear();
+            }
+            return Node.pick(this.prefix, method);
+        }
+
+        private static Page pick(final Map<String, Page> pages, final String method) {
+            if (pages.isEmpty()) {
+                return null;
+            }
+            final Page page = pages.get(method);
+            if (page != null) {
+                return page;
+            }
+            return pages.get("*");
+        }
+    }
+}
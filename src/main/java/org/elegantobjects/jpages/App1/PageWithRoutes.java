@@ -29,7 +29,7 @@ package org.elegantobjects.jpages.App1;
  * @author Yegor Bugayenko (yegor256@gmail.com)
  * @since 0.1
  */
-public final class PageWithRoutes implements Page {
+public final class PageWithRoutes implements SelectivePage {
 
     private final String path;
 
@@ -55,6 +55,11 @@ public final class PageWithRoutes implements Page {
         return this;
     }
 
+    @Override
+    public boolean wants(final String key) {
+        return "X-Path".equals(key);
+    }
+
     @Override
     public Output printTo(final Output output) {
         return output;
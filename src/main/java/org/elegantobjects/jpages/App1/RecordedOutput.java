@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The response of a page, recorded once to be replayed many times.
+ *
+ * <p>The body is kept as bytes, so a replay doesn't encode it again.
+ * A file region is read into memory, unless it's bigger than a few
+ * megabytes; then only the status and headers are recorded, and the
+ * recording is not {@link #complete()}, so the page has to be printed
+ * every time instead of replayed.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+final class RecordedOutput implements BinaryOutput {
+
+    /**
+     * The biggest file region that is recorded.
+     */
+    private static final long LIMIT = 4L * 1024L * 1024L;
+
+    private final List<String[]> pairs = new ArrayList<>(8);
+
+    private ByteBuffer body;
+
+    private boolean complete = true;
+
+    @Override
+    public Output with(final String name, final String value) {
+        if ("X-Body".equals(name)) {
+            this.body = ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        } else {
+            this.pairs.add(new String[] {name, value});
+        }
+        return this;
+    }
+
+    @Override
+    public Output withBody(final ByteBuffer bytes) {
+        final ByteBuffer copy = ByteBuffer.allocate(bytes.remaining());
+        copy.put(bytes.duplicate()).flip();
+        this.body = copy.asReadOnlyBuffer();
+        return this;
+    }
+
+    @Override
+    public Output withBody(final FileChannel file, final long position, final long count) {
+        try (final FileChannel closing = file) {
+            if (count > RecordedOutput.LIMIT) {
+                this.complete = false;
+                this.body = null;
+                return this;
+            }
+            final ByteBuffer bytes = ByteBuffer.allocate((int) count);
+            while (bytes.hasRemaining()) {
+                if (closing.read(bytes, position + bytes.position()) < 0) {
+                    throw new IOException("The file got shorter while being recorded");
+                }
+            }
+            bytes.flip();
+            this.body = bytes.asReadOnlyBuffer();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    @Override
+    public void writeTo(final OutputStream output) throws IOException {
+        this.replay(new ByteBufferOutput()).writeTo(output);
+    }
+
+    /**
+     * Is the body recorded too?
+     * @return FALSE if it was a file region too big to keep in memory
+     */
+    boolean complete() {
+        return this.complete;
+    }
+
+    /**
+     * The body recorded, empty if there was none.
+     */
+    ByteBuffer body() {
+        if (this.body == null) {
+            return ByteBuffer.allocate(0);
+        }
+        return this.body.duplicate();
+    }
+
+    /**
+     * Print the recorded status and headers again, without the body.
+     * @param output Where to print them
+     * @return The output with the headers
+     */
+    Output head(final Output output) {
+        Output target = output;
+        for (final String[] pair : this.pairs) {
+            target = target.with(pair[0], pair[1]);
+        }
+        return target;
+    }
+
+    /**
+     * Print the recorded response again.
+     * @param output Where to print it
+     * @return The output with the response
+     */
+    Output replay(final Output output) {
+        Output target = this.head(output);
+        if (this.body != null) {
+            if (target instanceof BinaryOutput) {
+                target = ((BinaryOutput) target).withBody(this.body.duplicate());
+            } else {
+                final ByteBuffer bytes = this.body.duplicate();
+                target = target.with("X-Body", StandardCharsets.UTF_8.decode(bytes).toString());
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,434 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The head of an HTTP request, parsed byte by byte.
+ *
+ * <p>Bytes are fed with {@link #parse(ByteBuffer)} as they arrive from
+ * the network, in as many pieces as the reads happen to return. Only
+ * the bytes of the head are consumed, whatever follows it stays in the
+ * buffer for the body or the next pipelined request. The object is
+ * mutable and meant to be reused for all requests on a connection, see
+ * {@link #reset()}.</p>
+ *
+ * <p>Well-known header names are not decoded, the constants of
+ * {@link KnownHeaders} are used instead, and the first value of each
+ * of them is kept in a slot of its own, so {@link #header(String)} finds
+ * it without a search. Other headers are searched for, one by one.</p>
+ *
+ * <p>The bytes of the head are kept until {@link #reset()}, and values
+ * are decoded only when asked for, so the headers a
+ * {@link SelectivePage} doesn't want are never decoded at all.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class RequestHead {
+
+    private static final String[] METHODS = {
+        "GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH",
+    };
+
+    private static final String[] PROTOCOLS = {"HTTP/1.1", "HTTP/1.0"};
+
+    private final int max;
+    private final int limit;
+    private final int[] slots;
+    private byte[] bytes;
+    private String[] names;
+    private String[] values;
+    private int[] starts;
+    private int[] ends;
+    private int begin;
+    private int length;
+    private int count;
+    private boolean started;
+    private boolean done;
+
+    public RequestHead() {
+        this(8192, 100);
+    }
+
+    /**
+     * Ctor.
+     * @param line Maximum length of the request line and of a header line
+     * @param headers Maximum number of headers
+     */
+    public RequestHead(final int line, final int headers) {
+        this.max = line;
+        this.limit = headers;
+        this.slots = new int[KnownHeaders.NAMES.length];
+        Arrays.fill(this.slots, -1);
+        this.bytes = new byte[Math.min(line, 2048)];
+        this.names = new String[16];
+        this.values = new String[16];
+        this.starts = new int[16];
+        this.ends = new int[16];
+    }
+
+    /**
+     * Consume the bytes of the head.
+     * @param buffer Bytes from the network, ready to be read
+     * @return TRUE if the head is complete
+     * @throws BadRequest If the head is malformed or too big
+     */
+    public boolean parse(final ByteBuffer buffer) throws BadRequest {
+        while (!this.done && buffer.hasRemaining()) {
+            final byte chr = buffer.get();
+            if (chr == '\n') {
+                this.done = this.line();
+                this.begin = this.length;
+            } else if (this.length - this.begin == this.max) {
+                if (this.started) {
+                    throw new BadRequest("431 Request Header Fields Too Large");
+                }
+                throw new BadRequest("414 URI Too Long");
+            } else {
+                if (this.length == this.bytes.length) {
+                    this.bytes = Arrays.copyOf(this.bytes, this.length * 2);
+                }
+                this.bytes[this.length] = chr;
+                ++this.length;
+            }
+        }
+        return this.done;
+    }
+
+    /**
+     * Start a head that doesn't come as text, like the one of an HTTP/2
+     * stream: the request line is given, the headers go by
+     * {@link #add(String, String)}, and {@link #parse(ByteBuffer)} has
+     * nothing to do.
+     * @param method The method, like "GET"
+     * @param target The path with the query, if any
+     * @param protocol The protocol, like "HTTP/2.0"
+     */
+    public void start(final String method, final String target, final String protocol) {
+        this.reset();
+        String known = method;
+        for (final String candidate : RequestHead.METHODS) {
+            if (candidate.equals(method)) {
+                known = candidate;
+            }
+        }
+        this.add(KnownHeaders.METHOD, 0, 0, known);
+        final int query = target.indexOf('?');
+        if (query < 0) {
+            this.add(KnownHeaders.PATH, 0, 0, target);
+            this.add(KnownHeaders.QUERY, 0, 0, "");
+        } else {
+            this.add(KnownHeaders.PATH, 0, 0, target.substring(0, query));
+            this.add(KnownHeaders.QUERY, 0, 0, target.substring(query + 1));
+        }
+        this.add(KnownHeaders.PROTOCOL, 0, 0, protocol);
+        this.started = true;
+        this.done = true;
+    }
+
+    /**
+     * Add a header to the head made by {@link #start(String, String, String)}.
+     * @param name Name of the header, in any case
+     * @param value Its value
+     * @throws BadRequest If there are too many headers
+     */
+    public void add(final String name, final String value) throws BadRequest {
+        if (this.count - 4 >= this.limit) {
+            throw new BadRequest("431 Request Header Fields Too Large");
+        }
+        final int slot = KnownHeaders.slot(name);
+        // The pairs of the request line can't be spoofed by headers
+        if (slot >= 0 && slot <= KnownHeaders.PROTOCOL) {
+            throw new BadRequest("400 Bad Request");
+        }
+        if (slot < 0) {
+            this.add(name, 0, 0, value);
+        } else {
+            this.add(slot, 0, 0, value);
+        }
+    }
+
+    /**
+     * Feed the pairs of the head into the page.
+     *
+     * <p>While the page is a {@link SelectivePage}, it gets only the
+     * pairs it wants, and the values of others are not decoded.</p>
+     *
+     * @param page The page
+     * @return The page to print
+     */
+    public Page into(final Page page) {
+        Page target = page;
+        for (int idx = 0; idx < this.count; ++idx) {
+            if (target instanceof SelectivePage
+                && !((SelectivePage) target).wants(this.names[idx])) {
+                continue;
+            }
+            target = target.with(this.names[idx], this.value(idx));
+        }
+        return target;
+    }
+
+    /**
+     * Shall the connection stay open after this request?
+     * HTTP/1.1 keeps it unless told to close, HTTP/1.0 only when asked to.
+     * @return TRUE if so
+     */
+    public boolean persistent() {
+        boolean alive = "HTTP/1.1".equals(this.header("X-Protocol"));
+        for (int idx = 0; idx < this.count; ++idx) {
+            if (this.names[idx] == KnownHeaders.NAMES[KnownHeaders.CONNECTION]) {
+                final String value = this.value(idx).toLowerCase();
+                if (value.contains("close")) {
+                    alive = false;
+                } else if (value.contains("keep-alive")) {
+                    alive = true;
+                }
+            }
+        }
+        return alive;
+    }
+
+    /**
+     * Forget the last request, to parse the next one.
+     */
+    public void reset() {
+        this.begin = 0;
+        this.length = 0;
+        this.count = 0;
+        this.started = false;
+        this.done = false;
+        Arrays.fill(this.slots, -1);
+    }
+
+    /**
+     * The value of the header, first of them if there are a few.
+     * @param name Name of the header, in any case
+     * @return The value or empty string if there is no such header
+     */
+    public String header(final String name) {
+        final int slot = KnownHeaders.slot(name);
+        if (slot >= 0) {
+            final int idx = this.slots[slot];
+            if (idx < 0) {
+                return "";
+            }
+            return this.value(idx);
+        }
+        for (int idx = 0; idx < this.count; ++idx) {
+            if (name.equalsIgnoreCase(this.names[idx])) {
+                return this.value(idx);
+            }
+        }
+        return "";
+    }
+
+    /**
+     * The body that follows this head on the wire.
+     * @param wire The bytes after the head
+     * @return The body, empty if the request has none
+     * @throws BadRequest If the body is framed in a way we don't know
+     */
+    public InputStream body(final InputStream wire) throws BadRequest {
+        final String coding = this.header("Transfer-Encoding");
+        if (!coding.isEmpty()) {
+            if (!coding.toLowerCase().endsWith("chunked")) {
+                throw new BadRequest("501 Not Implemented");
+            }
+            return new ChunkedBody(wire);
+        }
+        final String length = this.header("Content-Length");
+        if (length.isEmpty()) {
+            return new LengthBody(wire, 0L);
+        }
+        try {
+            final long size = Long.parseLong(length);
+            if (size < 0L) {
+                throw new BadRequest("400 Bad Request");
+            }
+            return new LengthBody(wire, size);
+        } catch (final NumberFormatException ex) {
+            throw new BadRequest("400 Bad Request");
+        }
+    }
+
+    /**
+     * Take the line collected so far.
+     * @return TRUE if it was the empty line closing the head
+     */
+    private boolean line() throws BadRequest {
+        int end = this.length;
+        if (end > this.begin && this.bytes[end - 1] == '\r') {
+            --end;
+        }
+        if (!this.started) {
+            // Empty lines before the request line are to be ignored
+            if (end > this.begin) {
+                this.requestLine(this.begin, end);
+                this.started = true;
+            }
+            return false;
+        }
+        if (end == this.begin) {
+            return true;
+        }
+        this.header(this.begin, end);
+        return false;
+    }
+
+    private void requestLine(final int from, final int end) throws BadRequest {
+        final int first = this.indexOf((byte) ' ', from, end);
+        int last = end - 1;
+        while (last > first && this.bytes[last] != ' ') {
+            --last;
+        }
+        if (first <= from || last <= first + 1 || last == end - 1) {
+            throw new BadRequest("400 Bad Request");
+        }
+        this.add(KnownHeaders.METHOD, from, first, this.interned(from, first, RequestHead.METHODS));
+        final int query = this.indexOf((byte) '?', first + 1, last);
+        if (query < 0) {
+            this.add(KnownHeaders.PATH, first + 1, last, null);
+            this.add(KnownHeaders.QUERY, last, last, "");
+        } else {
+            this.add(KnownHeaders.PATH, first + 1, query, null);
+            this.add(KnownHeaders.QUERY, query + 1, last, null);
+        }
+        this.add(
+            KnownHeaders.PROTOCOL, last + 1, end,
+            this.interned(last + 1, end, RequestHead.PROTOCOLS)
+        );
+    }
+
+    private void header(final int from, final int end) throws BadRequest {
+        // Folded lines are obsolete and must be refused
+        if (this.bytes[from] == ' ' || this.bytes[from] == '\t') {
+            throw new BadRequest("400 Bad Request");
+        }
+        final int colon = this.indexOf((byte) ':', from, end);
+        if (colon <= from) {
+            throw new BadRequest("400 Bad Request");
+        }
+        if (this.count - 4 >= this.limit) {
+            throw new BadRequest("431 Request Header Fields Too Large");
+        }
+        int stop = colon;
+        while (stop > from && RequestHead.blank(this.bytes[stop - 1])) {
+            --stop;
+        }
+        int start = colon + 1;
+        int last = end;
+        while (start < last && RequestHead.blank(this.bytes[start])) {
+            ++start;
+        }
+        while (last > start && RequestHead.blank(this.bytes[last - 1])) {
+            --last;
+        }
+        final int slot = KnownHeaders.slot(this.bytes, from, stop);
+        // The pairs of the request line can't be spoofed by headers
+        if (slot >= 0 && slot <= KnownHeaders.PROTOCOL) {
+            throw new BadRequest("400 Bad Request");
+        }
+        if (slot < 0) {
+            this.add(this.string(from, stop), start, last, null);
+        } else {
+            this.add(slot, start, last, null);
+        }
+    }
+
+    private void add(final int slot, final int start, final int end, final String value) {
+        if (this.slots[slot] < 0) {
+            this.slots[slot] = this.count;
+        }
+        this.add(KnownHeaders.NAMES[slot], start, end, value);
+    }
+
+    /**
+     * Add a pair, with its value decoded already or not yet.
+     */
+    private void add(final String name, final int start, final int end, final String value) {
+        if (this.count == this.names.length) {
+            final int size = this.count * 2;
+            this.names = Arrays.copyOf(this.names, size);
+            this.values = Arrays.copyOf(this.values, size);
+            this.starts = Arrays.copyOf(this.starts, size);
+            this.ends = Arrays.copyOf(this.ends, size);
+        }
+        this.names[this.count] = name;
+        this.values[this.count] = value;
+        this.starts[this.count] = start;
+        this.ends[this.count] = end;
+        ++this.count;
+    }
+
+    /**
+     * The value of the pair, decoded on the first call.
+     */
+    private String value(final int idx) {
+        if (this.values[idx] == null) {
+            this.values[idx] = this.string(this.starts[idx], this.ends[idx]);
+        }
+        return this.values[idx];
+    }
+
+    private int indexOf(final byte chr, final int from, final int to) {
+        for (int idx = from; idx < to; ++idx) {
+            if (this.bytes[idx] == chr) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One of the known strings if the bytes are the same, or a new one.
+     */
+    private String interned(final int from, final int to, final String... known) {
+        for (final String candidate : known) {
+            if (candidate.length() == to - from) {
+                boolean same = true;
+                for (int idx = 0; idx < candidate.length() && same; ++idx) {
+                    same = candidate.charAt(idx) == this.bytes[from + idx];
+                }
+                if (same) {
+                    return candidate;
+                }
+            }
+        }
+        return this.string(from, to);
+    }
+
+    private String string(final int from, final int to) {
+        return new String(this.bytes, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean blank(final byte chr) {
+        return chr == ' ' || chr == '\t';
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * The page made of an old {@link App1.Resource}.
+ *
+ * <p>The factory is asked for a resource on the first pair of every
+ * request, and that resource gets all the pairs of the request and
+ * prints it. A factory that makes a new resource each time lets a
+ * resource keep its pairs in a plain map, even when {@link App} serves
+ * a few requests at once; a single resource given instead is shared by
+ * them all and has to be thread-safe.</p>
+ *
+ * <p>Pairs are given as {@link App} has them: "X-Path" is the path and
+ * "X-Query" the query, without the "?".</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class ResourcePage implements Page {
+
+    private final Supplier<App1.Resource> resources;
+
+    public ResourcePage(final App1.Resource resource) {
+        this(() -> resource);
+    }
+
+    public ResourcePage(final Supplier<App1.Resource> factory) {
+        this.resources = factory;
+    }
+
+    @Override
+    public Page with(final String key, final String value) {
+        final App1.Resource resource = this.resources.get().define(key, value);
+        return new ResourcePage(() -> resource);
+    }
+
+    @Override
+    public Output printTo(final Output output) {
+        final Printed printed = new Printed(output);
+        try {
+            this.resources.get().printTo(printed);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return printed.output;
+    }
+
+    /**
+     * The old output, printing into the new one.
+     */
+    private static final class Printed implements App1.Output {
+
+        private Output output;
+
+        Printed(final Output output) {
+            this.output = output;
+        }
+
+        @Override
+        public void print(final String name, final String value) {
+            this.output = this.output.with(name, value);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+/**
+ * The route of {@link PageWithRouteTable}.
+ *
+ * <p>The pattern is a path, each segment of which is either a literal,
+ * or a <code>{name}</code> that matches any one segment and goes to the
+ * page as <code>X-Param-name</code>, or a <code>*</code>, the last one,
+ * that matches whatever is left of the path.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Route {
+
+    private final String method;
+    private final String pattern;
+    private final Page page;
+
+    public Route(final String pattern, final Page page) {
+        this("*", pattern, page);
+    }
+
+    /**
+     * Ctor.
+     * @param method HTTP method, or "*" for any
+     * @param pattern Path pattern
+     * @param page The page to route to
+     */
+    public Route(final String method, final String pattern, final Page page) {
+        this.method = method;
+        this.pattern = pattern;
+        this.page = page;
+    }
+
+    String method() {
+        return this.method;
+    }
+
+    String pattern() {
+        return this.pattern;
+    }
+
+    Page page() {
+        return this.page;
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The app, non-blocking.
+ *
+ * <p>Accepts connections on the calling thread and spreads them, round
+ * robin, over a few event loops. Every loop owns a {@link Selector} and
+ * reads, dispatches into {@link Session} and writes for all of its
+ * connections, so one loop serves thousands of sockets. Pages are
+ * rendered right on the loop thread and must not block.</p>
+ *
+ * <p>A page that has to wait may be an {@link AsyncPage}. Its connection
+ * is left aside, neither read nor written, until the stage completes;
+ * the loop is told then and writes the response, or a 500 if the stage
+ * failed.</p>
+ *
+ * <p>A page that throws gets its connection a 500 and closed, while the
+ * loop goes on with the others. A file that is still being sent is
+ * closed with its connection, or when the loop stops.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class SelectorApp {
+
+    private final Page page;
+    private final int loops;
+
+    public SelectorApp(final Page page) {
+        this(page, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SelectorApp(final Page page, final int loops) {
+        if (loops < 1) {
+            throw new IllegalArgumentException(
+                String.format("At least one event loop is required, %d given", loops)
+            );
+        }
+        this.page = page;
+        this.loops = loops;
+    }
+
+    public void start(final int port) throws IOException, InterruptedException {
+        final List<Loop> workers = new ArrayList<>(this.loops);
+        final List<Thread> pool = new ArrayList<>(this.loops);
+
+        try (final ServerSocketChannel server = ServerSocketChannel.open();
+             final Selector acceptor = Selector.open()) {
+            server.bind(new InetSocketAddress(port), 1024);
+            server.configureBlocking(false);
+            server.register(acceptor, SelectionKey.OP_ACCEPT);
+
+            for (int i = 0; i < this.loops; ++i) {
+                final Loop loop = new Loop(this.page, Selector.open());
+                workers.add(loop);
+                pool.add(new Thread(loop, "selector-loop-" + i));
+            }
+            for (int i = 0; i < pool.size(); ++i) {
+                pool.get(i).start();
+            }
+
+            // Accept until interrupted, handing sockets out round robin
+            int next = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                acceptor.select(1000);
+                acceptor.selectedKeys().clear();
+                SocketChannel channel;
+                while ((channel = server.accept()) != null) {
+                    workers.get(next).register(channel);
+                    next = (next + 1) % workers.size();
+                }
+            }
+        } finally {
+            for (int i = 0; i < pool.size(); ++i) {
+                pool.get(i).interrupt();
+            }
+            for (int i = 0; i < pool.size(); ++i) {
+                pool.get(i).join();
+            }
+        }
+    }
+
+    /**
+     * One event loop: a selector and the connections registered on it.
+     */
+    private static final class Loop implements Runnable {
+
+        private final Page page;
+        private final Selector selector;
+        private final Queue<SocketChannel> incoming;
+        private final Queue<Runnable> resumed;
+        private ByteBuffer response;
+
+        Loop(final Page page, final Selector selector) {
+            this.page = page;
+            this.selector = selector;
+            this.incoming = new ConcurrentLinkedQueue<>();
+            this.resumed = new ConcurrentLinkedQueue<>();
+            this.response = ByteBuffer.allocateDirect(16384);
+        }
+
+        void register(final SocketChannel channel) {
+            this.incoming.add(channel);
+            this.selector.wakeup();
+        }
+
+        /**
+         * Run the task on the loop thread, soon.
+         * @param task What to do, called from any thread
+         */
+        void resume(final Runnable task) {
+            this.resumed.add(task);
+            this.selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    this.selector.select();
+                    this.accept();
+                    Runnable task;
+                    while ((task = this.resumed.poll()) != null) {
+                        task.run();
+                    }
+                    final Iterator<SelectionKey> keys =
+                        this.selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        final SelectionKey key = keys.next();
+                        keys.remove();
+                        final Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read(key, this);
+                            } else if (key.isWritable()) {
+                                connection.write(key);
+                            }
+                        } catch (final IOException | RuntimeException ex) {
+                            // Only this connection is lost, the loop goes on
+                            connection.close(key);
+                        }
+                    }
+                }
+            } catch (final IOException ex) {
+                throw new IllegalStateException(ex);
+            } finally {
+                this.shutdown();
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = this.incoming.poll()) != null) {
+                channel.configureBlocking(false);
+                channel.register(
+                    this.selector,
+                    SelectionKey.OP_READ,
+                    new Connection(this.page, channel)
+                );
+            }
+        }
+
+        private void shutdown() {
+            for (final SelectionKey key : this.selector.keys()) {
+                ((Connection) key.attachment()).close(key);
+            }
+            SocketChannel channel;
+            while ((channel = this.incoming.poll()) != null) {
+                try {
+                    channel.close();
+                } catch (final IOException ignored) {
+                    // nothing to do, the loop is going away anyway
+                }
+            }
+            try {
+                this.selector.close();
+            } catch (final IOException ignored) {
+                // nothing to do, the loop is going away anyway
+            }
+        }
+    }
+
+    /**
+     * State of one connection: what has been read and what is left to write.
+     */
+    private static final class Connection {
+
+        private final Page page;
+        private final SocketChannel channel;
+        private final ByteBuffer input;
+        private final RequestHead head;
+        private ByteBufferOutput output;
+
+        Connection(final Page page, final SocketChannel channel) {
+            this.page = page;
+            this.channel = channel;
+            this.input = ByteBuffer.allocate(4096);
+            this.head = new RequestHead();
+        }
+
+        /**
+         * Read what's there and answer once the head is complete.
+         * @param key The key of this connection
+         * @param loop The loop, to print the response into its buffer
+         */
+        void read(final SelectionKey key, final Loop loop) throws IOException {
+            this.input.clear();
+            if (this.channel.read(this.input) < 0) {
+                this.close(key);
+                return;
+            }
+            this.input.flip();
+            ByteBufferOutput output = new ByteBufferOutput(loop.response);
+            try {
+                if (!this.head.parse(this.input)) {
+                    return;
+                }
+                final Page target = new Session(this.page).with(this.head);
+                if (target instanceof AsyncPage) {
+                    this.later(key, loop, (AsyncPage) target);
+                    return;
+                }
+                target.printTo(output);
+            } catch (final BadRequest ex) {
+                Connection.refuse(output, ex.status());
+            } catch (final RuntimeException ex) {
+                // The page broke in the middle, what it printed is dropped
+                output.close();
+                output = new ByteBufferOutput(loop.response);
+                Connection.refuse(output, "500 Internal Server Error");
+            }
+
+            // The socket didn't take it all, so the connection keeps the
+            // output with the loop's buffer and the loop gets a new one
+            if (!this.sent(key, output)) {
+                loop.response = ByteBuffer.allocateDirect(loop.response.capacity());
+            }
+        }
+
+        /**
+         * Print the page when its stage completes, back on the loop.
+         * @param key The key of this connection
+         * @param loop The loop this connection belongs to
+         * @param target The page
+         */
+        private void later(final SelectionKey key, final Loop loop, final AsyncPage target) {
+            // Nothing is read until the response is out
+            key.interestOps(0);
+            final ByteBufferOutput output = new ByteBufferOutput(
+                ByteBuffer.allocate(loop.response.capacity())
+            );
+            target.printAsync(output).whenComplete(
+                (printed, error) -> loop.resume(
+                    () -> this.resume(key, output, error)
+                )
+            );
+        }
+
+        private void resume(final SelectionKey key, final ByteBufferOutput output,
+            final Throwable error) {
+            // The loop may have closed the connection in the meantime
+            if (!key.isValid()) {
+                return;
+            }
+            ByteBufferOutput response = output;
+            if (error != null) {
+                response = new ByteBufferOutput(ByteBuffer.allocate(256));
+                Connection.refuse(response, "500 Internal Server Error");
+            }
+            try {
+                this.sent(key, response);
+            } catch (final IOException | RuntimeException ex) {
+                this.close(key);
+            }
+        }
+
+        /**
+         * Write what the socket takes, and the rest when it's writable.
+         * @param key The key of this connection
+         * @param output The response
+         * @return TRUE if it's all written and the connection is closed
+         */
+        private boolean sent(final SelectionKey key, final ByteBufferOutput output)
+            throws IOException {
+            // Kept before writing, so its file is closed if the write fails
+            this.output = output;
+            if (output.writeTo(this.channel)) {
+                this.close(key);
+                return true;
+            }
+            key.interestOps(SelectionKey.OP_WRITE);
+            return false;
+        }
+
+        void write(final SelectionKey key) throws IOException {
+            if (this.output.writeTo(this.channel)) {
+                this.close(key);
+            }
+        }
+
+        private static void refuse(final ByteBufferOutput output, final String status) {
+            output.with("X-Status", status)
+                .with("Connection", "close")
+                .with("Content-Length", "0")
+                .with("X-Body", "");
+        }
+
+        void close(final SelectionKey key) {
+            key.cancel();
+            try {
+                this.channel.close();
+            } catch (final IOException ignored) {
+                // the peer is gone already
+            }
+            if (this.output != null) {
+                try {
+                    this.output.close();
+                } catch (final IOException ignored) {
+                    // the file is let go anyway
+                }
+            }
+        }
+    }
+}
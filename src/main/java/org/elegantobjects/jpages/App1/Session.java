@@ -23,8 +23,10 @@
  */
 package org.elegantobjects.jpages.App1;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * The session.
@@ -34,34 +36,51 @@ import java.util.Map;
  */
 public class Session {
 
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * Metrics nobody looks at, for sessions without their own.
+     */
+    private static final Metrics IGNORED = new Metrics();
+
     private final Page page;
+    private final Metrics metrics;
 
     public Session(final Page pge) {
+        this(pge, Session.IGNORED);
+    }
+
+    public Session(final Page pge, final Metrics mtx) {
         this.page = pge;
+        this.metrics = mtx;
     }
 
     public final Page with(final String request) {
-        final Map<String, String> pairs = new HashMap<>(0);
-        final String[] lines = request.split("\r\n");
-
-        // Put all headers into the map
-        for (int idx = 1; idx < lines.length; ++idx) {
-            final String[] parts = lines[idx].split(":");
-            pairs.put(parts[0].trim(), parts[1].trim());
+        final RequestHead head = new RequestHead();
+        try {
+            // The head may come without its closing empty line, add it
+            boolean done = head.parse(
+                ByteBuffer.wrap(request.getBytes(StandardCharsets.ISO_8859_1))
+            );
+            for (int idx = 0; idx < 2 && !done; ++idx) {
+                done = head.parse(ByteBuffer.wrap(Session.CRLF));
+            }
+        } catch (final BadRequest ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
         }
+        return this.with(head);
+    }
 
-        // Define the method, path, query, and protocol
-        final String[] parts = lines[0].split(" ");
-        pairs.put("X-Method", parts[0]);
-        final String[] qparts = parts[1].split("\\?", 2);
-        pairs.put("X-Path", qparts[0]);
-        pairs.put("X-Query", qparts.length < 2 ? "" : qparts[1]);
-        pairs.put("X-Protocol", parts[2]);
+    public final Page with(final RequestHead head) {
+        this.metrics.request();
+        return head.into(this.page);
+    }
 
-        // Define the body
-        Page target = this.page;
-        for (final Map.Entry<String, String> pair : pairs.entrySet()) {
-            target = target.with(pair.getKey(), pair.getValue());
+    public final Page with(final RequestHead head, final InputStream body)
+        throws IOException {
+        final Page target = this.with(head);
+        if (target instanceof BodyPage) {
+            return ((BodyPage) target).withBody(body);
         }
         return target;
     }
@@ -25,6 +25,7 @@ package org.elegantobjects.jpages.App1;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * The output.
@@ -47,6 +48,15 @@ public final class SimpleTextOutput implements Output {
 
     @Override
     public Output with(final String name, final String value) {
+        if ("X-Status".equals(name)) {
+            final StringBuilder after = new StringBuilder("HTTP/1.1 ")
+                .append(value)
+                .append("\r\n");
+            if (!this.before.isEmpty()) {
+                after.append(this.before, this.before.indexOf("\r\n") + 2, this.before.length());
+            }
+            return new SimpleTextOutput(after.toString());
+        }
         final StringBuilder after = new StringBuilder(this.before);
         if (after.length() == 0) {
             after.append("HTTP/1.1 200 OK\r\n");
@@ -61,6 +71,6 @@ public final class SimpleTextOutput implements Output {
 
     @Override
     public void writeTo(final OutputStream output) throws IOException {
-        output.write(this.before.getBytes());
+        output.write(this.before.getBytes(StandardCharsets.UTF_8));
     }
 }
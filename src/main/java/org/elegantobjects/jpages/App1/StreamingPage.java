@@ -0,0 +1,168 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.util.Iterator;
+
+/**
+ * The page that prints its body row by row.
+ *
+ * <p>Rows are taken from the iterable only while the page is printed,
+ * so they may come from a cursor over a big table and never be all in
+ * memory. {@link App} gives this page a {@link ChunkedOutput}, or an
+ * eager {@link Http2Output} over HTTP/2, and every row goes to the
+ * client as a chunk or a DATA frame as soon as it's taken, compressed
+ * on the way if it's wrapped in a {@link PageWithCompression}. Any other
+ * output, like the one of an HTTP/1.0 request, gets all the rows joined
+ * into one body, but only up to a limit: rows that go over it are not
+ * kept in memory, and the client gets 500 Internal Server Error
+ * instead. With a zero limit the rows are not even taken, which suits
+ * rows that never end. Rows are printed as they are, with no
+ * separators. An iterator that is
+ * {@link AutoCloseable} is closed when the rows are sent, or when the
+ * client is gone.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class StreamingPage implements SelectivePage {
+
+    /**
+     * How many bytes of rows are joined at most, by default.
+     */
+    private static final int JOINED = 1024 * 1024;
+
+    private final Iterable<String> rows;
+    private final String type;
+    private final int limit;
+
+    public StreamingPage(final Iterable<String> rows) {
+        this(rows, "text/plain");
+    }
+
+    public StreamingPage(final Iterable<String> rows, final String contentType) {
+        this(rows, contentType, StreamingPage.JOINED);
+    }
+
+    /**
+     * Ctor.
+     * @param rows The rows
+     * @param contentType The type of them all
+     * @param limit How many bytes of rows may be joined into one body
+     */
+    public StreamingPage(final Iterable<String> rows, final String contentType,
+        final int limit) {
+        this.rows = rows;
+        this.type = contentType;
+        this.limit = limit;
+    }
+
+    @Override
+    public Page with(final String key, final String value) {
+        return this;
+    }
+
+    @Override
+    public boolean wants(final String key) {
+        return false;
+    }
+
+    @Override
+    public Output printTo(final Output output) {
+        if (!StreamingPage.streaming(output)) {
+            return this.joined(output);
+        }
+        Output out = output.with("Content-Type", this.type);
+        final Iterator<String> iterator = this.rows.iterator();
+        try {
+            while (iterator.hasNext()) {
+                out = out.with("X-Body", iterator.next());
+            }
+            return out;
+        } finally {
+            StreamingPage.close(iterator);
+        }
+    }
+
+    /**
+     * Will this page be printed row by row, if it's the target?
+     * @param page The page
+     * @return TRUE if it's a streaming page, maybe compressed or typed
+     */
+    static boolean streams(final Page page) {
+        return page instanceof StreamingPage
+            || page instanceof PageWithCompression && ((PageWithCompression) page).streams()
+            || page instanceof PageWithContentType && ((PageWithContentType) page).streams();
+    }
+
+    /**
+     * Does this output send every "X-Body" as soon as it gets it?
+     * @param output The output
+     * @return TRUE if it does
+     */
+    static boolean streaming(final Output output) {
+        return output instanceof ChunkedOutput || output instanceof DeflatingOutput
+            || output instanceof Http2Output && ((Http2Output) output).eager();
+    }
+
+    /**
+     * Print all the rows as one body, if they are not too many.
+     */
+    private Output joined(final Output output) {
+        if (this.limit > 0) {
+            final Iterator<String> iterator = this.rows.iterator();
+            try {
+                final StringBuilder body = new StringBuilder();
+                long size = 0L;
+                while (size <= this.limit && iterator.hasNext()) {
+                    final String row = iterator.next();
+                    size += Utf8.length(row);
+                    body.append(row);
+                }
+                if (size <= this.limit) {
+                    return output
+                        .with("Content-Type", this.type)
+                        .with("X-Body", body.toString());
+                }
+            } finally {
+                StreamingPage.close(iterator);
+            }
+        }
+        final String status = "500 Internal Server Error";
+        return new TextPage(status).printTo(output.with("X-Status", status));
+    }
+
+    /**
+     * Let the rows go, if they hold on to something, like a cursor.
+     */
+    private static void close(final Iterator<String> iterator) {
+        if (iterator instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) iterator).close();
+            } catch (final Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
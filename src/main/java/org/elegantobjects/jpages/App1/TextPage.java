@@ -29,12 +29,14 @@ package org.elegantobjects.jpages.App1;
  * @author Yegor Bugayenko (yegor256@gmail.com)
  * @since 0.1
  */
-public final class TextPage implements Page {
+public final class TextPage implements SelectivePage {
 
     private final String body;
+    private final String length;
 
     public TextPage(final String text) {
         this.body = text;
+        this.length = Integer.toString(Utf8.length(text));
     }
 
     @Override
@@ -42,11 +44,16 @@ public final class TextPage implements Page {
         return this;
     }
 
+    @Override
+    public boolean wants(final String key) {
+        return false;
+    }
+
     @Override
     public Output printTo(final Output output) {
         return output
             .with("Content-Type", "text/plain")
-            .with("Content-Length", Integer.toString(this.body.length()))
+            .with("Content-Length", this.length)
             .with("X-Body", this.body);
     }
 }
@@ -0,0 +1,113 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.time.Duration;
+
+/**
+ * The deadlines of a connection to an {@link App}.
+ *
+ * <p>A persistent connection may wait for its next request only so
+ * long, and once the request starts coming, its head must arrive
+ * completely in time, no matter how slowly the bytes trickle, which is
+ * what keeps a slowloris client from holding a thread forever. The
+ * body, if there is one, must keep coming: every read of it, by the
+ * page or to skip it after the page, may wait for its bytes only so
+ * long, while the time the page spends between reads doesn't count.
+ * Every write to the socket
+ * has a deadline too, since a client that doesn't read would block it
+ * otherwise. A connection that misses any of them is closed.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Timeouts {
+
+    private final long idle;
+    private final long head;
+    private final long body;
+    private final long write;
+
+    /**
+     * Ctor, with 5 seconds to wait for a request, 10 to read its head,
+     * 30 to wait for every part of its body and 10 to write the response.
+     */
+    public Timeouts() {
+        this(
+            Duration.ofSeconds(5L), Duration.ofSeconds(10L),
+            Duration.ofSeconds(30L), Duration.ofSeconds(10L)
+        );
+    }
+
+    /**
+     * Ctor.
+     * @param idle How long a connection may wait for a request
+     * @param head How long the head of a request may take to arrive
+     * @param body How long a read of its body may wait for bytes
+     * @param write How long the response may take to be written
+     */
+    public Timeouts(final Duration idle, final Duration head, final Duration body,
+        final Duration write) {
+        for (final Duration limit : new Duration[] {idle, head, body, write}) {
+            if (limit.isNegative() || limit.isZero()) {
+                throw new IllegalArgumentException(
+                    String.format("Timeouts must be positive, %s given", limit)
+                );
+            }
+        }
+        this.idle = idle.toNanos();
+        this.head = head.toNanos();
+        this.body = body.toNanos();
+        this.write = write.toNanos();
+    }
+
+    /**
+     * How long to wait for a request, in nanoseconds.
+     */
+    public long idle() {
+        return this.idle;
+    }
+
+    /**
+     * How long to read the head of a request, in nanoseconds.
+     */
+    public long head() {
+        return this.head;
+    }
+
+    /**
+     * How long a read of the body of a request may wait for its bytes,
+     * in nanoseconds.
+     */
+    public long body() {
+        return this.body;
+    }
+
+    /**
+     * How long to write a response, in nanoseconds.
+     */
+    public long write() {
+        return this.write;
+    }
+}
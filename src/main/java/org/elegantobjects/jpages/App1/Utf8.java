@@ -0,0 +1,64 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+/**
+ * The size of a text in UTF-8, counted without encoding it.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+final class Utf8 {
+
+    private Utf8() {
+        // Only static methods here
+    }
+
+    /**
+     * How many bytes the text takes in UTF-8.
+     * @param text The text
+     * @return The number of bytes
+     */
+    static int length(final CharSequence text) {
+        final int size = text.length();
+        int bytes = size;
+        for (int idx = 0; idx < size; ++idx) {
+            final char chr = text.charAt(idx);
+            if (Character.isSurrogate(chr)) {
+                if (Character.isHighSurrogate(chr) && idx + 1 < size
+                    && Character.isLowSurrogate(text.charAt(idx + 1))) {
+                    // Four bytes for the pair of two chars
+                    bytes += 2;
+                    ++idx;
+                }
+                // A lone surrogate is encoded as '?', one byte
+            } else if (chr >= 0x800) {
+                bytes += 2;
+            } else if (chr >= 0x80) {
+                ++bytes;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads, when the JDK has them.
+ *
+ * <p>The build targets Java 8, so {@code Thread.ofVirtual()} is looked up
+ * reflectively. On a JDK without virtual threads (or with them still in
+ * preview and disabled) this falls back to daemon platform threads.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class VirtualThreads implements ThreadFactory {
+
+    private final ThreadFactory origin;
+
+    public VirtualThreads() {
+        this(VirtualThreads.lookup());
+    }
+
+    private VirtualThreads(final ThreadFactory factory) {
+        this.origin = factory;
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        return this.origin.newThread(runnable);
+    }
+
+    /**
+     * Are the threads made here really virtual?
+     * @return TRUE if so
+     */
+    public boolean virtual() {
+        return !(this.origin instanceof Platform);
+    }
+
+    private static ThreadFactory lookup() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                .getMethod("factory")
+                .invoke(builder);
+        } catch (final NoSuchMethodException | ClassNotFoundException
+            | IllegalAccessException | InvocationTargetException ex) {
+            return new Platform();
+        }
+    }
+
+    /**
+     * Daemon platform threads, for older JDKs.
+     */
+    private static final class Platform implements ThreadFactory {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
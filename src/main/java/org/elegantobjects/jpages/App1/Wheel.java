@@ -0,0 +1,171 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hashed-wheel timer of {@link Deadline}s.
+ *
+ * <p>The wheel is a ring of buckets, one per tick, and a deadline sits
+ * in the bucket of the tick it expires at, modulo the size of the ring.
+ * One thread turns the wheel: every tick it takes the deadlines armed
+ * since the last one into their buckets and looks through the bucket
+ * under the cursor, where every deadline is either expired, or moved
+ * further, or dropped if it's disarmed. Arming and disarming never
+ * touch the buckets: they only change the time in the deadline, which
+ * the wheel notices when it gets to it, so both are O(1), without
+ * locks, and a connection that arms its deadline again and again
+ * doesn't allocate anything.</p>
+ *
+ * <p>Deadlines expire up to one tick late, and their actions run on the
+ * thread of the wheel, so they must be short.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Wheel implements AutoCloseable {
+
+    private final long tick;
+    private final List<List<Deadline>> buckets;
+    private final Queue<Deadline> armed;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Ctor, with ticks of 100 milliseconds and a ring of 512 of them.
+     */
+    public Wheel() {
+        this(Duration.ofMillis(100L), 512);
+    }
+
+    /**
+     * Ctor, the thread of the wheel starts here.
+     * @param tick How often the wheel turns
+     * @param size How many buckets are in the ring
+     */
+    public Wheel(final Duration tick, final int size) {
+        if (tick.isNegative() || tick.isZero() || size < 2) {
+            throw new IllegalArgumentException(
+                String.format("The tick must be positive and the size above 1, %s and %d given", tick, size)
+            );
+        }
+        this.tick = tick.toNanos();
+        this.buckets = new ArrayList<>(size);
+        for (int idx = 0; idx < size; ++idx) {
+            this.buckets.add(new ArrayList<>(0));
+        }
+        this.armed = new ConcurrentLinkedQueue<>();
+        this.thread = new Thread(this::turn, "wheel");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Make a deadline, disarmed.
+     * @param action What to do when it expires
+     * @return The deadline
+     */
+    public Deadline deadline(final Runnable action) {
+        return new Deadline(this, action);
+    }
+
+    /**
+     * Stop the wheel; deadlines armed after that never expire.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.thread.interrupt();
+    }
+
+    /**
+     * The deadline is armed and isn't in the wheel yet.
+     */
+    void add(final Deadline deadline) {
+        this.armed.add(deadline);
+    }
+
+    private void turn() {
+        List<Deadline> spare = new ArrayList<>(0);
+        long next = System.nanoTime();
+        int cursor = 0;
+        while (!this.closed) {
+            next += this.tick;
+            final long sleep = next - System.nanoTime();
+            if (sleep > 0L) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (final InterruptedException ex) {
+                    break;
+                }
+            }
+            final long now = System.nanoTime();
+            while (true) {
+                final Deadline deadline = this.armed.poll();
+                if (deadline == null) {
+                    break;
+                }
+                this.check(deadline, now, cursor);
+            }
+            // The bucket is swapped for an empty one, since some of its
+            // deadlines may go back into the same place in the ring
+            final List<Deadline> bucket = this.buckets.get(cursor);
+            this.buckets.set(cursor, spare);
+            for (int idx = 0; idx < bucket.size(); ++idx) {
+                this.check(bucket.get(idx), now, cursor);
+            }
+            bucket.clear();
+            spare = bucket;
+            cursor = (cursor + 1) % this.buckets.size();
+        }
+    }
+
+    /**
+     * Expire the deadline, or put it into its bucket, or drop it.
+     */
+    private void check(final Deadline deadline, final long now, final int cursor) {
+        final long at = deadline.at();
+        if (at == Deadline.OFF) {
+            deadline.dropped();
+        } else if (at - now <= 0L) {
+            if (!deadline.expired(at)) {
+                // Armed again just now
+                this.check(deadline, now, cursor);
+            }
+        } else {
+            // Farther than the ring goes, it comes around and is checked again
+            final long ticks = Math.min(
+                Math.max((at - now + this.tick - 1L) / this.tick, 1L),
+                this.buckets.size() - 1L
+            );
+            this.buckets.get((int) ((cursor + ticks) % this.buckets.size())).add(deadline);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The bytes of a connection: what's left in the buffer, then the socket.
+ *
+ * <p>Reads refill the very buffer the request heads are parsed from, so
+ * whatever comes after a body stays there for the next request.</p>
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Wire extends InputStream {
+
+    private final ByteBuffer buffer;
+    private final InputStream input;
+
+    /**
+     * Ctor.
+     * @param buffer Heap buffer, ready to be read
+     * @param input Where to get more bytes from
+     */
+    public Wire(final ByteBuffer buffer, final InputStream input) {
+        this.buffer = buffer;
+        this.input = input;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.fill()) {
+            return -1;
+        }
+        return this.buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!this.fill()) {
+            return -1;
+        }
+        final int total = Math.min(len, this.buffer.remaining());
+        this.buffer.get(bytes, off, total);
+        return total;
+    }
+
+    @Override
+    public int available() {
+        return this.buffer.remaining();
+    }
+
+    private boolean fill() throws IOException {
+        if (this.buffer.hasRemaining()) {
+            return true;
+        }
+        this.buffer.clear();
+        final int read = this.input.read(this.buffer.array(), 0, this.buffer.capacity());
+        this.buffer.limit(Math.max(read, 0));
+        return read > 0;
+    }
+}
@@ -15,6 +15,8 @@ import org.elegantobjects.jpages.LibraryApp.domain.user.data.UserInfoRepo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.function.Consumer;
+
 import static org.elegantobjects.jpages.LibraryApp.domain.Context.ContextKind.PRODUCTION;
 
 /**
@@ -71,6 +73,19 @@ public class Context implements IContext {
         else
             return setupInstance(PRODUCTION, log, null);
     }
+    // The repos pass every BookInfo and LibraryInfo they save to the listeners, ie: for server-sent events
+    public static
+    Context setupProductionInstance(
+        @Nullable ILog log,
+        @NotNull Consumer<String> onBookChange,
+        @NotNull Consumer<String> onLibraryChange
+    ) {
+        return generateDefaultProductionContext(
+            log == null ? new Log() : log,
+            onBookChange,
+            onLibraryChange
+        );
+    }
     public static
     Context setupInstance(
         @NotNull Context.ContextKind contextKind,
@@ -92,14 +107,23 @@ public class Context implements IContext {
     // Generate sensible default singletons for the PRODUCTION application
     private static
     Context generateDefaultProductionContext(@NotNull ILog log) {
+        return generateDefaultProductionContext(log, bookInfo -> {}, libraryInfo -> {});
+    }
+    private static
+    Context generateDefaultProductionContext(
+        @NotNull ILog log,
+        @NotNull Consumer<String> onBookChange,
+        @NotNull Consumer<String> onLibraryChange
+    ) {
         return new Context(
             new BookInfoRepo(
                 new BookInfoApi(),
                 new BookInfoDatabase(),
-                log
+                log,
+                onBookChange
             ),
             new UserInfoRepo(log),
-            new LibraryInfoRepo(log),
+            new LibraryInfoRepo(log, onLibraryChange),
             new AccountInfoRepo(log),
             new GsonBuilder()
                 .registerTypeAdapter(UUID2.HashMap.class, new UUID2.Uuid2HashMapJsonDeserializer())
@@ -13,6 +13,7 @@ import org.elegantobjects.jpages.LibraryApp.domain.common.data.repo.Repo;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * BookInfoRepo is a repository for the BookInfo class.<br>
@@ -20,6 +21,9 @@ import java.util.Map;
  * Business logic for Book Repo (simple CRUD operations; converts to/from DTOs/Entities/Domains)
  * <br>
  * Simulates a database on a server via in-memory HashMap.<br>
+ * <br>
+ * Every BookInfo that is saved is passed as a String to the {@code onChange} listener, so changes
+ * can be pushed to clients (ie: as server-sent events) without the repo knowing how.<br>
  *
  * @author Chris Athanas (realityexpanderdev@gmail.com)
  * @since 0.11
@@ -28,16 +32,27 @@ import java.util.Map;
 public class BookInfoRepo extends Repo implements IBookInfoRepo {
     private final BookInfoApi bookInfoApi;
     private final BookInfoDatabase bookInfoDatabase;
+    private final Consumer<String> onChange;
 
     public
     BookInfoRepo(
         @NotNull BookInfoApi bookInfoApi,
         @NotNull BookInfoDatabase bookInfoDatabase,
-        @NotNull ILog log
+        @NotNull ILog log,
+        @NotNull Consumer<String> onChange
     ) {
         super(log);
         this.bookInfoApi = bookInfoApi;
         this.bookInfoDatabase = bookInfoDatabase;
+        this.onChange = onChange;
+    }
+    public
+    BookInfoRepo(
+        @NotNull BookInfoApi bookInfoApi,
+        @NotNull BookInfoDatabase bookInfoDatabase,
+        @NotNull ILog log
+    ) {
+        this(bookInfoApi, bookInfoDatabase, log, bookInfo -> {});
     }
     public
     BookInfoRepo() {
@@ -182,6 +197,9 @@ public class BookInfoRepo extends Repo implements IBookInfoRepo {
             return new Result.Failure<>(exception);
         }
 
+        // Notify listeners of the change
+        onChange.accept(bookInfo.toString());
+
         return new Result.Success<>(bookInfo);
     }
 
@@ -10,6 +10,7 @@ import org.elegantobjects.jpages.LibraryApp.domain.library.PrivateLibrary;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * LibraryInfoRepo is a repository for LibraryInfo objects.<br>
@@ -17,6 +18,9 @@ import java.util.Objects;
  * Holds Library info for all the libraries in the system (simple CRUD operations).
  * <br>
  * Simulates a database on a server via in-memory HashMap.<br>
+ * <br>
+ * Every LibraryInfo that is saved is passed as a String to the {@code onChange} listener, so changes
+ * can be pushed to clients (ie: as server-sent events) without the repo knowing how.<br>
  *
  * @author Chris Athanas (realityexpanderdev@gmail.com)
  * @since 0.11
@@ -25,10 +29,16 @@ import java.util.Objects;
 public class LibraryInfoRepo extends Repo implements ILibraryInfoRepo {
     // simulate a database on a server
     private final UUID2.HashMap<UUID2<Library>, LibraryInfo> database = new UUID2.HashMap<>();
+    private final Consumer<String> onChange;
 
     public
-    LibraryInfoRepo(@NotNull  ILog log) {
+    LibraryInfoRepo(@NotNull ILog log, @NotNull Consumer<String> onChange) {
         super(log);
+        this.onChange = onChange;
+    }
+    public
+    LibraryInfoRepo(@NotNull  ILog log) {
+        this(log, libraryInfo -> {});
     }
 
     @Override
@@ -50,6 +60,7 @@ public class LibraryInfoRepo extends Repo implements ILibraryInfoRepo {
         // Simulate network/database
         if (database.containsKey(libraryInfo.id())) {
             database.put(libraryInfo.id(), libraryInfo);
+            onChange.accept(libraryInfo.toString());
 
             return new Result.Success<>(libraryInfo);
         }
@@ -63,6 +74,7 @@ public class LibraryInfoRepo extends Repo implements ILibraryInfoRepo {
 
         // Simulate network/database
         database.put(libraryInfo.id(), libraryInfo);
+        onChange.accept(libraryInfo.toString());
 
         return new Result.Success<>(libraryInfo);
     }
@@ -0,0 +1,135 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.Admission;
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.Listeners;
+import org.elegantobjects.jpages.App1.Metrics;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The benchmark of accepting connections over loopback, with one and
+ * with a few listeners on the same port: every benchmark thread opens
+ * a connection, sends one request, reads the response and resets the
+ * connection, to leave nothing in TIME_WAIT.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class AcceptBenchmark {
+
+    private static final int PORT = 12361;
+
+    private static final byte[] REQUEST =
+        "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"1", "2", "4", "8"})
+    public int listeners;
+
+    private App app;
+
+    private Thread thread;
+
+    @Setup(Level.Trial)
+    public void start() throws InterruptedException {
+        this.app = new App(
+            new TextPage("Hello, world!"),
+            16,
+            new Metrics(),
+            new Admission(),
+            new Listeners(this.listeners)
+        );
+        this.thread = new Thread(
+            () -> {
+                try {
+                    this.app.start(AcceptBenchmark.PORT);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        this.thread.start();
+        TimeUnit.MILLISECONDS.sleep(300L);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException, InterruptedException {
+        this.app.stop(Duration.ofSeconds(1L));
+        this.thread.join();
+    }
+
+    @Benchmark
+    public int connect() throws IOException {
+        final byte[] buffer = new byte[1024];
+        try (final Socket socket = new Socket("localhost", AcceptBenchmark.PORT)) {
+            socket.setSoLinger(true, 0);
+            socket.getOutputStream().write(AcceptBenchmark.REQUEST);
+            final InputStream input = socket.getInputStream();
+            int size = 0;
+            int expected = Integer.MAX_VALUE;
+            while (size < expected) {
+                final int read = input.read(buffer, size, buffer.length - size);
+                if (read < 0) {
+                    throw new IOException("The server closed the connection");
+                }
+                size += read;
+                if (expected == Integer.MAX_VALUE) {
+                    expected = AppBenchmark.Client.length(buffer, size);
+                }
+            }
+            return size;
+        }
+    }
+}
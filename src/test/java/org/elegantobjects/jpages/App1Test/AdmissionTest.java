@@ -0,0 +1,150 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.Admission;
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.Metrics;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the Admission.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class AdmissionTest {
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        final App app = new App(new SlowPage(), 1, new Metrics(), new Admission(100, 1, 100));
+        final Thread thread = AdmissionTest.run(app);
+        try (final Socket first = AdmissionTest.send(app.port());
+            final Socket second = AdmissionTest.send(app.port());
+            final Socket third = AdmissionTest.send(app.port())) {
+            final String rejected = AdmissionTest.response(third);
+            MatcherAssert.assertThat(
+                rejected, Matchers.startsWith("HTTP/1.1 503 Service Unavailable\r\n")
+            );
+            MatcherAssert.assertThat(rejected, Matchers.containsString("Retry-After: 1\r\n"));
+            MatcherAssert.assertThat(AdmissionTest.response(first), Matchers.endsWith("slow"));
+            MatcherAssert.assertThat(AdmissionTest.response(second), Matchers.endsWith("slow"));
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testRejectsTooManyRequestsInFlight() throws Exception {
+        final App app = new App(
+            new SlowPage(), Thread::new, new Metrics(), new Admission(1, 16, 100, 7)
+        );
+        final Thread thread = AdmissionTest.run(app);
+        try (final Socket first = AdmissionTest.send(app.port());
+            final Socket second = AdmissionTest.send(app.port())) {
+            final String rejected = AdmissionTest.response(second);
+            MatcherAssert.assertThat(
+                rejected, Matchers.startsWith("HTTP/1.1 503 Service Unavailable\r\n")
+            );
+            MatcherAssert.assertThat(rejected, Matchers.containsString("Retry-After: 7\r\n"));
+            MatcherAssert.assertThat(AdmissionTest.response(first), Matchers.endsWith("slow"));
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    private static Thread run(final App app) throws Exception {
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(0);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        while (app.port() == 0 && thread.isAlive()) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        return thread;
+    }
+
+    private static Socket send(final int port) throws Exception {
+        final Socket socket = new Socket("localhost", port);
+        socket.getOutputStream().write(
+            "GET / HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+        );
+        TimeUnit.MILLISECONDS.sleep(100);
+        return socket;
+    }
+
+    private static String response(final Socket socket) throws Exception {
+        final InputStream input = socket.getInputStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[4096];
+        while (true) {
+            final int size = input.read(chunk);
+            if (size < 0) {
+                break;
+            }
+            bytes.write(chunk, 0, size);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static final class SlowPage implements Page {
+
+        @Override
+        public Page with(final String key, final String value) {
+            return this;
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(500);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new TextPage("slow").printTo(output);
+        }
+    }
+}
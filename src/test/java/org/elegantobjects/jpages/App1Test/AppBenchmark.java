@@ -0,0 +1,179 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.PageWithRoutes;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The benchmark of the whole App over loopback: every benchmark thread
+ * keeps one persistent connection and sends requests one by one.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class AppBenchmark {
+
+    private static final int PORT = 12354;
+
+    private static final byte[] REQUEST =
+        "GET /robots.txt HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Benchmark
+    public int request(final Client client) throws IOException {
+        return client.exchange();
+    }
+
+    /**
+     * The server, one for all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        private App app;
+
+        private Thread thread;
+
+        @Setup(Level.Trial)
+        public void start() throws InterruptedException {
+            this.app = new App(
+                new PageWithRoutes(
+                    "/robots.txt",
+                    new TextPage("Kill all humans!"),
+                    new TextPage("Not found!")
+                )
+            );
+            this.thread = new Thread(
+                () -> {
+                    try {
+                        this.app.start(AppBenchmark.PORT);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (IOException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            );
+            this.thread.start();
+            TimeUnit.MILLISECONDS.sleep(300L);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException, InterruptedException {
+            this.app.stop(Duration.ofSeconds(1L));
+            this.thread.join();
+        }
+    }
+
+    /**
+     * The connection of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        private final byte[] buffer = new byte[4096];
+
+        private Socket socket;
+
+        private InputStream input;
+
+        private OutputStream output;
+
+        @Setup(Level.Trial)
+        public void connect(final Server server) throws IOException {
+            this.socket = new Socket("localhost", AppBenchmark.PORT);
+            this.socket.setTcpNoDelay(true);
+            this.input = this.socket.getInputStream();
+            this.output = this.socket.getOutputStream();
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() throws IOException {
+            this.socket.close();
+        }
+
+        /**
+         * Send one request and read its response.
+         * @return Size of the response
+         * @throws IOException If fails
+         */
+        public int exchange() throws IOException {
+            this.output.write(AppBenchmark.REQUEST);
+            int size = 0;
+            int expected = Integer.MAX_VALUE;
+            while (size < expected) {
+                final int read = this.input.read(this.buffer, size, this.buffer.length - size);
+                if (read < 0) {
+                    throw new IOException("The server closed the connection");
+                }
+                size += read;
+                if (expected == Integer.MAX_VALUE) {
+                    expected = Client.length(this.buffer, size);
+                }
+            }
+            return size;
+        }
+
+        /**
+         * Full size of the response, if its head is read already.
+         */
+        static int length(final byte[] bytes, final int size) {
+            final String text = new String(bytes, 0, size, StandardCharsets.US_ASCII);
+            final int end = text.indexOf("\r\n\r\n");
+            if (end < 0) {
+                return Integer.MAX_VALUE;
+            }
+            final int start = text.indexOf("Content-Length: ") + "Content-Length: ".length();
+            return end + 4 + Integer.parseInt(text.substring(start, text.indexOf('\r', start)));
+        }
+    }
+}
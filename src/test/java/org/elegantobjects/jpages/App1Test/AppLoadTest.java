@@ -0,0 +1,182 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.elegantobjects.jpages.App1.VirtualThreads;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The load test of the App, fixed pool against thread per connection.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class AppLoadTest {
+
+    @Test
+    public void testThreadPerConnection() throws Exception {
+        final AtomicInteger failures = new AtomicInteger();
+        AppLoadTest.load(new App(new SlowPage(), new VirtualThreads()), 50, failures);
+        MatcherAssert.assertThat(failures.get(), Matchers.equalTo(0));
+    }
+
+    @Test
+    public void testThreadPerConnectionBeatsPoolAtP99() throws Exception {
+        // Ten workers answer 200 clients of a 20ms page in 400ms at best,
+        // while a thread per connection answers them all at once
+        final AtomicInteger pooled = new AtomicInteger();
+        final AtomicInteger unbound = new AtomicInteger();
+        final long pool = AppLoadTest.load(new App(new SlowPage(), 10), 200, pooled);
+        final long own = AppLoadTest.load(
+            new App(new SlowPage(), new VirtualThreads()), 200, unbound
+        );
+        MatcherAssert.assertThat(pooled.get(), Matchers.equalTo(0));
+        MatcherAssert.assertThat(unbound.get(), Matchers.equalTo(0));
+        MatcherAssert.assertThat(
+            String.format("p99 of the pool is %dms", pool),
+            own, Matchers.lessThan(pool)
+        );
+    }
+
+    /**
+     * Run all the clients at once and return the p99 latency of those
+     * that succeeded.
+     */
+    private static long load(final App app, final int clients,
+        final AtomicInteger failures) throws Exception {
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(0);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        while (app.port() == 0 && thread.isAlive()) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        try {
+            return AppLoadTest.p99(app.port(), clients, failures);
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    private static long p99(final int port, final int clients,
+        final AtomicInteger failures) throws Exception {
+        final long[] latencies = new long[clients];
+        Arrays.fill(latencies, Long.MAX_VALUE);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(clients);
+        final ThreadFactory factory = new VirtualThreads();
+        for (int idx = 0; idx < clients; ++idx) {
+            final int client = idx;
+            factory.newThread(
+                () -> {
+                    try {
+                        start.await();
+                        final long begin = System.nanoTime();
+                        if (AppLoadTest.fetch(port).endsWith("slow")) {
+                            latencies[client] = System.nanoTime() - begin;
+                        } else {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception ex) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            ).start();
+        }
+        start.countDown();
+        done.await();
+        Arrays.sort(latencies);
+        final int succeeded = clients - failures.get();
+        if (succeeded == 0) {
+            return -1L;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(
+            latencies[(int) Math.ceil(succeeded * 0.99) - 1]
+        );
+    }
+
+    private static String fetch(final int port) throws Exception {
+        try (final Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(
+                "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+            final InputStream input = socket.getInputStream();
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * A page that waits a bit, like one that talks to a database.
+     */
+    private static final class SlowPage implements Page {
+        @Override
+        public Page with(final String key, final String value) {
+            return this;
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new TextPage("slow").printTo(output);
+        }
+    }
+}
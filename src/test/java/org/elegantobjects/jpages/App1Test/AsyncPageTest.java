@@ -0,0 +1,172 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.FuturePage;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.PageWithRoutes;
+import org.elegantobjects.jpages.App1.SelectorApp;
+import org.elegantobjects.jpages.App1.Session;
+import org.elegantobjects.jpages.App1.SimpleTextOutput;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the AsyncPage.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class AsyncPageTest {
+
+    @Test
+    public void testCombinesStagesAndGivesThemPairs() throws Exception {
+        final Page page = new FuturePage(
+            () -> CompletableFuture.supplyAsync(() -> "Moby Dick").thenCombine(
+                CompletableFuture.supplyAsync(() -> "Melville"),
+                (book, author) -> new PageWithRoutes(
+                    "/books", new TextPage(book + " by " + author), new TextPage("none")
+                )
+            )
+        );
+        MatcherAssert.assertThat(
+            new Session(page).with("GET /books HTTP/1.1\r\n")
+                .printTo(new SimpleTextOutput("")).toString(),
+            Matchers.endsWith("\r\n\r\nMoby Dick by Melville")
+        );
+        MatcherAssert.assertThat(
+            new Session(page).with("GET /films HTTP/1.1\r\n")
+                .printTo(new SimpleTextOutput("")).toString(),
+            Matchers.endsWith("\r\n\r\nnone")
+        );
+    }
+
+    @Test
+    public void testSelectorAppServesOthersWhileWaiting() throws Exception {
+        final int port = 12355;
+        final CompletableFuture<Page> gate = new CompletableFuture<>();
+        final Thread thread = new Thread(
+            () -> {
+                final SelectorApp app = new SelectorApp(
+                    new PageWithRoutes("/slow", new FuturePage(() -> gate), new TextPage("fast")),
+                    1
+                );
+                try {
+                    app.start(port);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        try (final Socket slow = AsyncPageTest.send(port, "/slow");
+             final Socket fast = AsyncPageTest.send(port, "/fast")) {
+            MatcherAssert.assertThat(AsyncPageTest.response(fast), Matchers.endsWith("fast"));
+            gate.complete(new TextPage("slow"));
+            MatcherAssert.assertThat(AsyncPageTest.response(slow), Matchers.endsWith("slow"));
+        }
+        thread.interrupt();
+        thread.join();
+    }
+
+    @Test
+    public void testAppRefusesWhenStageFails() throws Exception {
+        final int port = 12356;
+        final App app = new App(
+            new PageWithRoutes(
+                "/broken",
+                new FuturePage(
+                    () -> CompletableFuture.supplyAsync(
+                        () -> {
+                            throw new IllegalStateException("The repository is gone");
+                        }
+                    )
+                ),
+                new FuturePage(() -> CompletableFuture.completedFuture(new TextPage("fine")))
+            ),
+            2
+        );
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(port);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        try (final Socket socket = AsyncPageTest.send(port, "/broken")) {
+            MatcherAssert.assertThat(
+                AsyncPageTest.response(socket),
+                Matchers.startsWith("HTTP/1.1 500 Internal Server Error\r\n")
+            );
+        }
+        try (final Socket socket = AsyncPageTest.send(port, "/")) {
+            MatcherAssert.assertThat(AsyncPageTest.response(socket), Matchers.endsWith("fine"));
+        }
+        app.stop(Duration.ofSeconds(1L));
+        thread.join(1000L);
+    }
+
+    private static Socket send(final int port, final String path) throws Exception {
+        final Socket socket = new Socket("localhost", port);
+        socket.getOutputStream().write(
+            String.format("GET %s HTTP/1.1\r\nConnection: close\r\n\r\n", path)
+                .getBytes(StandardCharsets.US_ASCII)
+        );
+        return socket;
+    }
+
+    private static String response(final Socket socket) throws Exception {
+        final InputStream input = socket.getInputStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[1024];
+        while (true) {
+            final int size = input.read(chunk);
+            if (size < 0) {
+                break;
+            }
+            bytes.write(chunk, 0, size);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.BodyPage;
+import org.elegantobjects.jpages.App1.ChunkedBody;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of request bodies.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class BodyTest {
+
+    @Test
+    public void testDecodesChunks() throws Exception {
+        final InputStream body = new ChunkedBody(
+            new ByteArrayInputStream(
+                "5;ext=1\r\nHello\r\n8\r\n, world!\r\n0\r\nX-Trailer: yes\r\n\r\nREST"
+                    .getBytes(StandardCharsets.US_ASCII)
+            )
+        );
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int chr;
+        while ((chr = body.read()) >= 0) {
+            bytes.write(chr);
+        }
+        MatcherAssert.assertThat(
+            new String(bytes.toByteArray(), StandardCharsets.US_ASCII),
+            Matchers.equalTo("Hello, world!")
+        );
+    }
+
+    @Test
+    public void testStreamsBodiesToPage() throws Exception {
+        final int port = 12350;
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    new App(new CountingPage()).start(port);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    System.out.println(ex.getMessage());
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        try (final Socket socket = new Socket("localhost", port)) {
+            final OutputStream output = socket.getOutputStream();
+            final StringBuilder chunked = new StringBuilder(
+                "POST /import HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+            );
+            for (int idx = 0; idx < 100; ++idx) {
+                chunked.append("400\r\n");
+                for (int pos = 0; pos < 1024; ++pos) {
+                    chunked.append('x');
+                }
+                chunked.append("\r\n");
+            }
+            chunked.append("0\r\n\r\n");
+            output.write(
+                (
+                    chunked
+                    + "PUT /import HTTP/1.1\r\nContent-Length: 11\r\n\r\nhello world"
+                    + "POST /skipped HTTP/1.1\r\nContent-Length: 3\r\n\r\nabc"
+                ).getBytes(StandardCharsets.US_ASCII)
+            );
+            final InputStream input = socket.getInputStream();
+            MatcherAssert.assertThat(BodyTest.response(input), Matchers.endsWith("102400"));
+            MatcherAssert.assertThat(BodyTest.response(input), Matchers.endsWith("11"));
+            MatcherAssert.assertThat(BodyTest.response(input), Matchers.endsWith("skipped"));
+        }
+        thread.interrupt();
+        thread.join();
+    }
+
+    /**
+     * Read one response, framed by its Content-Length.
+     */
+    private static String response(final InputStream input) throws IOException {
+        final StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            final int chr = input.read();
+            if (chr < 0) {
+                throw new IOException("Connection closed in the middle of a response");
+            }
+            head.append((char) chr);
+        }
+        int length = 0;
+        for (final String line : head.toString().split("\r\n")) {
+            if (line.startsWith("Content-Length:")) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        final StringBuilder body = new StringBuilder();
+        for (int idx = 0; idx < length; ++idx) {
+            body.append((char) input.read());
+        }
+        return head.append(body).toString();
+    }
+
+    /**
+     * The page that counts bytes in the body, at /import only.
+     */
+    private static final class CountingPage implements BodyPage {
+        private final boolean counting;
+
+        CountingPage() {
+            this(false);
+        }
+
+        CountingPage(final boolean counting) {
+            this.counting = counting;
+        }
+
+        @Override
+        public Page with(final String key, final String value) {
+            if ("X-Path".equals(key)) {
+                return new CountingPage("/import".equals(value));
+            }
+            return this;
+        }
+
+        @Override
+        public Page withBody(final InputStream body) throws IOException {
+            if (!this.counting) {
+                return new TextPage("skipped");
+            }
+            final byte[] buffer = new byte[512];
+            long total = 0L;
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                total += read;
+            }
+            return new TextPage(Long.toString(total));
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            return new TextPage("no body").printTo(output);
+        }
+    }
+}
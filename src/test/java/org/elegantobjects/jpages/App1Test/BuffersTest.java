@@ -0,0 +1,252 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.BinaryOutput;
+import org.elegantobjects.jpages.App1.Buffers;
+import org.elegantobjects.jpages.App1.Metrics;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * The test of the Buffers.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class BuffersTest {
+
+    @Test
+    public void testReusesReleasedBuffers() {
+        final Metrics metrics = new Metrics();
+        final Buffers buffers = new Buffers(64, 2, metrics);
+        final ByteBuffer first = buffers.borrow();
+        first.put((byte) 1);
+        buffers.release(first);
+        final ByteBuffer second = buffers.borrow();
+        MatcherAssert.assertThat(second == first, Matchers.is(true));
+        MatcherAssert.assertThat(second.position(), Matchers.equalTo(0));
+        MatcherAssert.assertThat(metrics.buffers(), Matchers.equalTo(1L));
+        final ByteBuffer third = buffers.borrow();
+        MatcherAssert.assertThat(third == first, Matchers.is(false));
+        buffers.release(second);
+        buffers.release(third);
+        MatcherAssert.assertThat(metrics.buffers(), Matchers.equalTo(0L));
+        MatcherAssert.assertThat(
+            metrics.printTo(new StringBuilder()).toString(),
+            Matchers.allOf(
+                Matchers.containsString("\njpages_buffers_misses_total 2\n"),
+                Matchers.containsString("\njpages_buffers_pooled 2\n"),
+                Matchers.containsString("\njpages_buffers_borrowed 0\n")
+            )
+        );
+    }
+
+    @Test
+    public void testCatchesBufferReleasedTwice() {
+        Assume.assumeTrue(Buffers.class.desiredAssertionStatus());
+        final Buffers buffers = new Buffers(64, 2, new Metrics());
+        final ByteBuffer buffer = buffers.borrow();
+        buffers.release(buffer);
+        String error = "";
+        try {
+            buffers.release(buffer);
+        } catch (final AssertionError ex) {
+            error = ex.getMessage();
+        }
+        MatcherAssert.assertThat(error, Matchers.containsString("twice"));
+    }
+
+    @Test
+    public void testAppReturnsEveryBuffer() throws Exception {
+        final int port = 12362;
+        final Metrics metrics = new Metrics();
+        final App app = new App(new TextPage("Hello, world!"), 2, metrics);
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(port);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        for (int idx = 0; idx < 5; ++idx) {
+            try (final Socket socket = new Socket("localhost", port)) {
+                socket.getOutputStream().write(
+                    "GET / HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+                );
+                final InputStream input = socket.getInputStream();
+                while (input.read() >= 0) {
+                    continue;
+                }
+            }
+            BuffersTest.returned(metrics);
+        }
+        app.stop(Duration.ofSeconds(1L));
+        thread.join(1000L);
+        MatcherAssert.assertThat(metrics.buffers(), Matchers.equalTo(0L));
+        // Every connection after the first took its buffers from the pool
+        MatcherAssert.assertThat(
+            metrics.printTo(new StringBuilder()).toString(),
+            Matchers.containsString("\njpages_buffers_misses_total 2\n")
+        );
+    }
+
+    @Test
+    public void testIdleConnectionHoldsNoBuffers() throws Exception {
+        final int port = 12367;
+        final Metrics metrics = new Metrics();
+        final App app = new App(new TextPage("Hello, world!"), 2, metrics);
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(port);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        try (final Socket socket = new Socket("localhost", port)) {
+            final InputStream input = socket.getInputStream();
+            for (int idx = 0; idx < 3; ++idx) {
+                socket.getOutputStream().write(
+                    "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+                );
+                final StringBuilder response = new StringBuilder();
+                while (!response.toString().endsWith("Hello, world!")) {
+                    response.append((char) input.read());
+                }
+                // The connection is kept, waiting for the next request
+                BuffersTest.returned(metrics);
+            }
+        }
+        app.stop(Duration.ofSeconds(1L));
+        thread.join(1000L);
+    }
+
+    @Test
+    public void testAppClosesFileOfFailedPage() throws Exception {
+        final Path file = Files.createTempFile("jpages", ".txt");
+        Files.write(file, "Hello, file!".getBytes(StandardCharsets.US_ASCII));
+        final AtomicReference<FileChannel> channel = new AtomicReference<>();
+        final Metrics metrics = new Metrics();
+        final App app = new App(
+            new Page() {
+                @Override
+                public Page with(final String key, final String value) {
+                    return this;
+                }
+
+                @Override
+                public Output printTo(final Output output) {
+                    try {
+                        channel.set(FileChannel.open(file, StandardOpenOption.READ));
+                    } catch (final IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    ((BinaryOutput) output).withBody(channel.get(), 0L, 12L);
+                    throw new IllegalStateException("The page fails after the body");
+                }
+            },
+            2,
+            metrics
+        );
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(0);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        try {
+            while (app.port() == 0 && thread.isAlive()) {
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+            try (final Socket socket = new Socket("localhost", app.port())) {
+                socket.getOutputStream().write(
+                    "GET / HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+                );
+                final InputStream input = socket.getInputStream();
+                final StringBuilder response = new StringBuilder();
+                int chr;
+                while ((chr = input.read()) >= 0) {
+                    response.append((char) chr);
+                }
+                MatcherAssert.assertThat(
+                    response.toString(),
+                    Matchers.startsWith("HTTP/1.1 500 Internal Server Error\r\n")
+                );
+            }
+            BuffersTest.returned(metrics);
+            MatcherAssert.assertThat(channel.get().isOpen(), Matchers.is(false));
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+            Files.delete(file);
+        }
+    }
+
+    private static void returned(final Metrics metrics) throws InterruptedException {
+        final long start = System.nanoTime();
+        while (metrics.buffers() > 0L
+            && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2L)) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        MatcherAssert.assertThat(metrics.buffers(), Matchers.equalTo(0L));
+    }
+}
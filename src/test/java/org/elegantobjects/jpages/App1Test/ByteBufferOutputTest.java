@@ -0,0 +1,96 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.elegantobjects.jpages.App1.ByteBufferOutput;
+import org.elegantobjects.jpages.App1.SimpleTextOutput;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the ByteBufferOutput.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class ByteBufferOutputTest {
+
+    @Test
+    public void testPrintsLikeSimpleTextOutput() throws Exception {
+        final ByteArrayOutputStream simple = new ByteArrayOutputStream();
+        new TextPage("Hello, world!").printTo(new SimpleTextOutput("")).writeTo(simple);
+        final ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+        new TextPage("Hello, world!")
+            .printTo(new ByteBufferOutput(ByteBuffer.allocateDirect(64)))
+            .writeTo(buffered);
+        MatcherAssert.assertThat(
+            buffered.toByteArray(),
+            Matchers.equalTo(simple.toByteArray())
+        );
+    }
+
+    @Test
+    public void testGrowsPastItsBuffer() throws Exception {
+        final StringBuilder body = new StringBuilder();
+        while (body.length() < 100000) {
+            body.append("\u041f\u0440\u0438\u0432\u0435\u0442, ");
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ByteBufferOutput(ByteBuffer.allocate(16))
+            .with("Content-Type", "text/plain")
+            .with("X-Body", body.toString())
+            .writeTo(bytes);
+        MatcherAssert.assertThat(
+            new String(bytes.toByteArray(), StandardCharsets.UTF_8),
+            Matchers.equalTo(
+                "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n\r\n" + body
+            )
+        );
+    }
+
+    @Test
+    public void testClosesFileNeverSent() throws Exception {
+        final Path file = Files.createTempFile("region", ".bin");
+        try {
+            Files.write(file, new byte[] {1, 2, 3});
+            final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            final ByteBufferOutput output = new ByteBufferOutput();
+            output.withBody(channel, 0L, 3L);
+            output.close();
+            MatcherAssert.assertThat(channel.isOpen(), Matchers.is(false));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
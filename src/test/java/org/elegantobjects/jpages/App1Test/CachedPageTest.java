@@ -0,0 +1,242 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elegantobjects.jpages.App1.ByteBufferOutput;
+import org.elegantobjects.jpages.App1.CachedPage;
+import org.elegantobjects.jpages.App1.FilePage;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.OutputWithLength;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.SimpleTextOutput;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the CachedPage.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class CachedPageTest {
+
+    @Test
+    public void testRendersOnlyOnce() throws Exception {
+        final AtomicInteger renders = new AtomicInteger();
+        final Page page = new CachedPage(new CountingPage(renders));
+        final String first = CachedPageTest.print(page.with("X-Path", "/"));
+        final String second = CachedPageTest.print(page.with("X-Path", "/other"));
+        MatcherAssert.assertThat(renders.get(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(second, Matchers.equalTo(first));
+        MatcherAssert.assertThat(first, Matchers.startsWith("HTTP/1.1 200 OK\r\n"));
+        MatcherAssert.assertThat(first, Matchers.containsString("ETag: \""));
+        MatcherAssert.assertThat(first, Matchers.endsWith("\r\n\r\nrendered 1"));
+    }
+
+    @Test
+    public void testAnswersNotModified() throws Exception {
+        final Page page = new CachedPage(new TextPage("Kill all humans!"));
+        final String etag = CachedPageTest.etag(CachedPageTest.print(page));
+        final String response = CachedPageTest.print(
+            page.with("If-None-Match", String.format("\"other\", %s", etag))
+        );
+        MatcherAssert.assertThat(response, Matchers.startsWith("HTTP/1.1 304 Not Modified\r\n"));
+        // The length of the body that isn't sent, not of an empty one
+        MatcherAssert.assertThat(response, Matchers.endsWith("Content-Length: 16\r\n\r\n"));
+        MatcherAssert.assertThat(
+            CachedPageTest.print(page.with("If-None-Match", "\"other\"")),
+            Matchers.endsWith("\r\n\r\nKill all humans!")
+        );
+    }
+
+    @Test
+    public void testAnswersHeadWithoutBody() throws Exception {
+        MatcherAssert.assertThat(
+            CachedPageTest.print(
+                new CachedPage(new TextPage("Kill all humans!")).with("X-Method", "HEAD")
+            ),
+            Matchers.endsWith("Content-Length: 16\r\n\r\n")
+        );
+    }
+
+    @Test
+    public void testRendersAgainWhenExpired() throws Exception {
+        final AtomicInteger renders = new AtomicInteger();
+        final Page page = new CachedPage(new CountingPage(renders), Duration.ofMillis(50L));
+        final String first = CachedPageTest.print(page);
+        MatcherAssert.assertThat(CachedPageTest.print(page), Matchers.equalTo(first));
+        Thread.sleep(100L);
+        MatcherAssert.assertThat(
+            CachedPageTest.print(page), Matchers.endsWith("\r\n\r\nrendered 2")
+        );
+    }
+
+    @Test
+    public void testPassesOtherMethodsToPage() throws Exception {
+        final AtomicInteger renders = new AtomicInteger();
+        final Page page = new CachedPage(new CountingPage(renders));
+        CachedPageTest.print(page.with("X-Method", "GET"));
+        final String posted = CachedPageTest.print(page.with("X-Method", "POST"));
+        MatcherAssert.assertThat(posted, Matchers.endsWith("\r\n\r\nrendered 2"));
+        MatcherAssert.assertThat(posted, Matchers.not(Matchers.containsString("ETag")));
+        MatcherAssert.assertThat(
+            CachedPageTest.print(page.with("X-Method", "HEAD")),
+            Matchers.containsString("ETag")
+        );
+        MatcherAssert.assertThat(renders.get(), Matchers.equalTo(2));
+    }
+
+    @Test
+    public void testServesExpiredCopyWhileRenderingAgain() throws Exception {
+        final AtomicInteger renders = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Page page = new CachedPage(
+            new Page() {
+                @Override
+                public Page with(final String key, final String value) {
+                    return this;
+                }
+
+                @Override
+                public Output printTo(final Output output) {
+                    if (renders.incrementAndGet() > 1) {
+                        try {
+                            release.await();
+                        } catch (final InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return new TextPage(String.format("rendered %d", renders.get()))
+                        .printTo(output);
+                }
+            },
+            Duration.ofMillis(50L)
+        );
+        MatcherAssert.assertThat(CachedPageTest.print(page), Matchers.endsWith("rendered 1"));
+        Thread.sleep(100L);
+        final Thread refresher = new Thread(
+            () -> {
+                try {
+                    CachedPageTest.print(page);
+                } catch (final Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        refresher.start();
+        while (renders.get() < 2) {
+            Thread.sleep(10L);
+        }
+        MatcherAssert.assertThat(CachedPageTest.print(page), Matchers.endsWith("rendered 1"));
+        release.countDown();
+        refresher.join();
+        MatcherAssert.assertThat(CachedPageTest.print(page), Matchers.endsWith("rendered 2"));
+        MatcherAssert.assertThat(renders.get(), Matchers.equalTo(2));
+    }
+
+    @Test
+    public void testPrintsToTextOutput() {
+        MatcherAssert.assertThat(
+            new CachedPage(new TextPage("Kill all humans!"))
+                .printTo(new SimpleTextOutput(""))
+                .toString(),
+            Matchers.endsWith("\r\n\r\nKill all humans!")
+        );
+    }
+
+    @Test
+    public void testCachesFilesAndPassesHugeOnes() throws Exception {
+        final Path dir = Files.createTempDirectory("cached");
+        try {
+            for (final int size : new int[] {300 * 1024, 5 * 1024 * 1024}) {
+                final byte[] content = new byte[size];
+                Arrays.fill(content, (byte) 'z');
+                Files.write(dir.resolve("file.txt"), content);
+                final Page page = new CachedPage(
+                    new FilePage(dir).with("X-Path", "/file.txt")
+                );
+                for (int idx = 0; idx < 2; ++idx) {
+                    final String response = CachedPageTest.print(page);
+                    MatcherAssert.assertThat(
+                        response,
+                        Matchers.containsString(String.format("Content-Length: %d\r\n", size))
+                    );
+                    MatcherAssert.assertThat(
+                        response.substring(response.indexOf("\r\n\r\n") + 4).length(),
+                        Matchers.equalTo(size)
+                    );
+                }
+            }
+        } finally {
+            Files.delete(dir.resolve("file.txt"));
+            Files.delete(dir);
+        }
+    }
+
+    private static String print(final Page page) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        page.printTo(new OutputWithLength(new ByteBufferOutput())).writeTo(bytes);
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String etag(final String response) {
+        return Arrays.stream(response.split("\r\n"))
+            .filter(line -> line.startsWith("ETag: "))
+            .findFirst()
+            .get()
+            .substring("ETag: ".length());
+    }
+
+    private static final class CountingPage implements Page {
+
+        private final AtomicInteger renders;
+
+        CountingPage(final AtomicInteger counter) {
+            this.renders = counter;
+        }
+
+        @Override
+        public Page with(final String key, final String value) {
+            return this;
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            return new TextPage(
+                String.format("rendered %d", this.renders.incrementAndGet())
+            ).printTo(output);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.App1;
+import org.elegantobjects.jpages.App1.ChunkedBody;
+import org.elegantobjects.jpages.App1.Events;
+import org.elegantobjects.jpages.LibraryApp.common.util.log.Log;
+import org.elegantobjects.jpages.LibraryApp.presentation.testingUtils.TestingUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the Events.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class EventsTest {
+
+    @Test
+    public void testFormatsEventsWithFewLines() {
+        final Events events = new Events();
+        final Iterator<String> subscriber = events.iterator();
+        MatcherAssert.assertThat(subscriber.next(), Matchers.equalTo(":\n\n"));
+        events.publish("book", "first\nsecond");
+        MatcherAssert.assertThat(
+            subscriber.next(),
+            Matchers.equalTo("id: 1\nevent: book\ndata: first\ndata: second\n\n")
+        );
+    }
+
+    @Test
+    public void testDropsSlowSubscriberOnly() {
+        final Events events = new Events(2, Duration.ofMinutes(1L));
+        final Iterator<String> fast = events.iterator();
+        final Iterator<String> slow = events.iterator();
+        fast.next();
+        slow.next();
+        for (int idx = 1; idx <= 3; ++idx) {
+            events.publish("book", Integer.toString(idx));
+            MatcherAssert.assertThat(fast.next(), Matchers.endsWith(String.format("data: %d\n\n", idx)));
+        }
+        MatcherAssert.assertThat(events.dropped(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(events.subscribers(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(slow.hasNext(), Matchers.is(false));
+        events.publish("book", "4");
+        MatcherAssert.assertThat(fast.next(), Matchers.endsWith("data: 4\n\n"));
+    }
+
+    @Test
+    public void testSendsHeartbeatWhenIdle() {
+        final Iterator<String> subscriber = new Events(8, Duration.ofMillis(10L)).iterator();
+        subscriber.next();
+        MatcherAssert.assertThat(subscriber.next(), Matchers.equalTo(":\n\n"));
+    }
+
+    @Test
+    public void testAppPushesEventsToClient() throws Exception {
+        final int port = 12358;
+        final Events events = new Events();
+        final App app = new App(events.page(), 2);
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(port);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        try (final Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(
+                "GET /events HTTP/1.1\r\nAccept: text/event-stream\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII)
+            );
+            final InputStream input = socket.getInputStream();
+            final StringBuilder head = new StringBuilder();
+            while (!head.toString().endsWith("\r\n\r\n")) {
+                head.append((char) input.read());
+            }
+            MatcherAssert.assertThat(
+                head.toString(), Matchers.containsString("Content-Type: text/event-stream\r\n")
+            );
+            MatcherAssert.assertThat(events.subscribers(), Matchers.equalTo(1));
+            events.publish("book", "Moby Dick");
+            final InputStream body = new ChunkedBody(input);
+            final StringBuilder text = new StringBuilder();
+            while (!text.toString().endsWith("data: Moby Dick\n\n")) {
+                text.append((char) body.read());
+            }
+            MatcherAssert.assertThat(text.toString(), Matchers.startsWith(":\n\nid: 1\n"));
+        }
+        app.stop(Duration.ofSeconds(1L));
+        thread.join(1000L);
+        MatcherAssert.assertThat(events.subscribers(), Matchers.equalTo(0));
+    }
+
+    @Test
+    public void testPublishesLibraryChanges() {
+        final Events events = new Events();
+        final Iterator<String> subscriber = events.iterator();
+        subscriber.next();
+        new TestingUtils(App1.context(new Log(), events))
+            .createFakeLibraryInfoInLibraryInfoRepo(1);
+        MatcherAssert.assertThat(
+            subscriber.next(), Matchers.startsWith("id: 1\nevent: library\ndata: ")
+        );
+    }
+
+    @Test
+    public void testServesEventsNextToResources() throws Exception {
+        final int port = 12366;
+        final Events events = new Events();
+        final App1 app = new App1(
+            new App1.Session(
+                new App1.Resource() {
+                    @Override
+                    public App1.Resource define(final String name, final String value) {
+                        return this;
+                    }
+
+                    @Override
+                    public void printTo(final App1.Output output) throws IOException {
+                        output.print("X-Body", "resource");
+                    }
+                }
+            ),
+            events
+        );
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(port);
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        final List<Socket> subscribers = new ArrayList<>(12);
+        try {
+            // More subscribers than a pool of ten threads would have
+            for (int idx = 0; idx < 12; ++idx) {
+                final Socket socket = new Socket("localhost", port);
+                subscribers.add(socket);
+                socket.getOutputStream().write(
+                    "GET /events HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+                );
+                MatcherAssert.assertThat(
+                    EventsTest.head(socket.getInputStream()),
+                    Matchers.containsString("Content-Type: text/event-stream\r\n")
+                );
+            }
+            try (final Socket socket = new Socket("localhost", port)) {
+                socket.getOutputStream().write(
+                    "GET / HTTP/1.1\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII)
+                );
+                MatcherAssert.assertThat(
+                    EventsTest.head(socket.getInputStream()),
+                    Matchers.startsWith("HTTP/1.1 200 OK\r\n")
+                );
+            }
+        } finally {
+            for (final Socket socket : subscribers) {
+                socket.close();
+            }
+        }
+        app.stop(Duration.ofSeconds(1L));
+        thread.join(1000L);
+    }
+
+    /**
+     * Read the head of the response.
+     */
+    private static String head(final InputStream input) throws IOException {
+        final StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            final int chr = input.read();
+            if (chr < 0) {
+                break;
+            }
+            head.append((char) chr);
+        }
+        return head.toString();
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.elegantobjects.jpages.App1.ByteBufferOutput;
+import org.elegantobjects.jpages.App1.FilePage;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.SimpleTextOutput;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the FilePage.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class FilePageTest {
+
+    @Test
+    public void testServesSmallFile() throws Exception {
+        final Path root = Files.createTempDirectory("jpages");
+        Files.write(root.resolve("robots.txt"), "Kill all humans!".getBytes(StandardCharsets.UTF_8));
+        final String response = FilePageTest.print(
+            new FilePage(root, "/static").with("X-Path", "/static/robots.txt")
+        );
+        MatcherAssert.assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK\r\n"));
+        MatcherAssert.assertThat(response, Matchers.containsString("Content-Length: 16\r\n"));
+        MatcherAssert.assertThat(response, Matchers.containsString("Last-Modified: "));
+        MatcherAssert.assertThat(response, Matchers.endsWith("\r\n\r\nKill all humans!"));
+    }
+
+    @Test
+    public void testServesRangeOfBigFile() throws Exception {
+        final Path root = Files.createTempDirectory("jpages");
+        final byte[] content = new byte[1024 * 1024];
+        for (int idx = 0; idx < content.length; ++idx) {
+            content[idx] = (byte) ('a' + idx % 26);
+        }
+        Files.write(root.resolve("big.bin"), content);
+        final Page page = new FilePage(root).with("X-Path", "/big.bin");
+        MatcherAssert.assertThat(
+            FilePageTest.print(page).length(),
+            Matchers.greaterThan(content.length)
+        );
+        final String partial = FilePageTest.print(page.with("Range", "bytes=26-51"));
+        MatcherAssert.assertThat(partial, Matchers.startsWith("HTTP/1.1 206 Partial Content\r\n"));
+        MatcherAssert.assertThat(
+            partial, Matchers.containsString("Content-Range: bytes 26-51/1048576\r\n")
+        );
+        MatcherAssert.assertThat(partial, Matchers.endsWith("\r\n\r\nabcdefghijklmnopqrstuvwxyz"));
+        MatcherAssert.assertThat(
+            FilePageTest.print(page.with("Range", "bytes=-3")), Matchers.endsWith("\r\n\r\ntuv")
+        );
+        MatcherAssert.assertThat(
+            FilePageTest.print(page.with("Range", "bytes=2000000-")),
+            Matchers.startsWith("HTTP/1.1 416 Range Not Satisfiable\r\n")
+        );
+    }
+
+    @Test
+    public void testAnswersNotModified() throws Exception {
+        final Path root = Files.createTempDirectory("jpages");
+        Files.write(root.resolve("a.html"), "<p>Hi</p>".getBytes(StandardCharsets.UTF_8));
+        final String first = FilePageTest.print(new FilePage(root).with("X-Path", "/a.html"));
+        final String modified = Arrays.stream(first.split("\r\n"))
+            .filter(line -> line.startsWith("Last-Modified: "))
+            .findFirst()
+            .get()
+            .substring("Last-Modified: ".length());
+        MatcherAssert.assertThat(first, Matchers.containsString("Content-Type: text/html\r\n"));
+        MatcherAssert.assertThat(
+            FilePageTest.print(
+                new FilePage(root)
+                    .with("X-Path", "/a.html")
+                    .with("If-Modified-Since", modified)
+            ),
+            Matchers.startsWith("HTTP/1.1 304 Not Modified\r\n")
+        );
+    }
+
+    @Test
+    public void testRefusesPathsOutsideOfRoot() throws Exception {
+        final Path root = Files.createTempDirectory("jpages");
+        Files.write(root.resolveSibling("secret.txt"), "secret".getBytes(StandardCharsets.UTF_8));
+        MatcherAssert.assertThat(
+            FilePageTest.print(new FilePage(root).with("X-Path", "/../secret.txt")),
+            Matchers.startsWith("HTTP/1.1 404 Not Found\r\n")
+        );
+        MatcherAssert.assertThat(
+            FilePageTest.print(new FilePage(root).with("X-Path", "/missing.txt")),
+            Matchers.startsWith("HTTP/1.1 404 Not Found\r\n")
+        );
+    }
+
+    @Test
+    public void testRefusesPathsThatOnlyStartLikePrefix() throws Exception {
+        final Path root = Files.createTempDirectory("jpages");
+        Files.write(root.resolve("x.txt"), "x".getBytes(StandardCharsets.UTF_8));
+        MatcherAssert.assertThat(
+            FilePageTest.print(new FilePage(root, "/static").with("X-Path", "/staticx.txt")),
+            Matchers.startsWith("HTTP/1.1 404 Not Found\r\n")
+        );
+        MatcherAssert.assertThat(
+            FilePageTest.print(new FilePage(root, "/static").with("X-Path", "/static/x.txt")),
+            Matchers.startsWith("HTTP/1.1 200 OK\r\n")
+        );
+    }
+
+    @Test
+    public void testKeepsServingWhenManyFilesAreMapped() throws Exception {
+        final Path root = Files.createTempDirectory("jpages");
+        final Page page = new FilePage(root);
+        for (int idx = 0; idx < 600; ++idx) {
+            Files.write(
+                root.resolve(String.format("%d.txt", idx)),
+                Integer.toString(idx).getBytes(StandardCharsets.UTF_8)
+            );
+        }
+        for (int idx = 0; idx < 600; ++idx) {
+            MatcherAssert.assertThat(
+                FilePageTest.print(page.with("X-Path", String.format("/%d.txt", idx))),
+                Matchers.endsWith(String.format("\r\n\r\n%d", idx))
+            );
+        }
+        // The first ones are mapped again, since they were let go
+        MatcherAssert.assertThat(
+            FilePageTest.print(page.with("X-Path", "/0.txt")), Matchers.endsWith("\r\n\r\n0")
+        );
+    }
+
+    @Test
+    public void testRefusesTextOnlyOutput() throws Exception {
+        final Path root = Files.createTempDirectory("jpages");
+        Files.write(root.resolve("a.bin"), new byte[] {(byte) 0xFF, 0x00, (byte) 0xC3});
+        MatcherAssert.assertThat(
+            new FilePage(root).with("X-Path", "/a.bin").printTo(new SimpleTextOutput("")).toString(),
+            Matchers.containsString("500 Internal Server Error")
+        );
+    }
+
+    private static String print(final Page page) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        page.printTo(new ByteBufferOutput()).writeTo(bytes);
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.elegantobjects.jpages.App1.BadRequest;
+import org.elegantobjects.jpages.App1.Hpack;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the header compression of HTTP/2.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class HpackTest {
+
+    @Test
+    public void testDecodesRequestsOfRfc() throws Exception {
+        // The examples of RFC 7541, C.4, with Huffman and the dynamic table
+        final Hpack hpack = new Hpack();
+        MatcherAssert.assertThat(
+            HpackTest.decoded(hpack, "828684418cf1e3c2e5f23a6ba0ab90f4ff"),
+            Matchers.contains(
+                ":method", "GET", ":scheme", "http", ":path", "/",
+                ":authority", "www.example.com"
+            )
+        );
+        MatcherAssert.assertThat(hpack.size(), Matchers.equalTo(57));
+        MatcherAssert.assertThat(
+            HpackTest.decoded(hpack, "828684be5886a8eb10649cbf"),
+            Matchers.contains(
+                ":method", "GET", ":scheme", "http", ":path", "/",
+                ":authority", "www.example.com", "cache-control", "no-cache"
+            )
+        );
+        MatcherAssert.assertThat(
+            HpackTest.decoded(
+                hpack, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"
+            ),
+            Matchers.contains(
+                ":method", "GET", ":scheme", "https", ":path", "/index.html",
+                ":authority", "www.example.com", "custom-key", "custom-value"
+            )
+        );
+        MatcherAssert.assertThat(hpack.size(), Matchers.equalTo(164));
+    }
+
+    @Test
+    public void testEncodesWhatDecoderReads() throws Exception {
+        final Hpack encoder = new Hpack();
+        final Hpack decoder = new Hpack();
+        final String[] fields = {
+            ":status", "200", "content-type", "text/html", "x-frame-options", "deny",
+            "content-length", "12345", "server", "jpages",
+        };
+        final ByteArrayOutputStream first = new ByteArrayOutputStream();
+        encoder.encode(fields, first);
+        final ByteArrayOutputStream second = new ByteArrayOutputStream();
+        encoder.encode(fields, second);
+        MatcherAssert.assertThat(
+            HpackTest.decoded(decoder, first.toByteArray()), Matchers.contains((Object[]) fields)
+        );
+        MatcherAssert.assertThat(
+            HpackTest.decoded(decoder, second.toByteArray()), Matchers.contains((Object[]) fields)
+        );
+        // Repeated headers are indexed, only the changing length is sent again
+        MatcherAssert.assertThat(second.size(), Matchers.lessThan(first.size() / 2));
+        MatcherAssert.assertThat(decoder.size(), Matchers.equalTo(encoder.size()));
+    }
+
+    @Test
+    public void testTellsDecoderOfSmallerTable() throws Exception {
+        final Hpack encoder = new Hpack();
+        final Hpack decoder = new Hpack();
+        final String[] fields = {":status", "200", "content-type", "text/html"};
+        final ByteArrayOutputStream first = new ByteArrayOutputStream();
+        encoder.encode(fields, first);
+        HpackTest.decoded(decoder, first.toByteArray());
+        encoder.resize(0);
+        final ByteArrayOutputStream second = new ByteArrayOutputStream();
+        encoder.encode(fields, second);
+        MatcherAssert.assertThat(
+            HpackTest.decoded(decoder, second.toByteArray()), Matchers.contains((Object[]) fields)
+        );
+        MatcherAssert.assertThat(decoder.size(), Matchers.equalTo(0));
+    }
+
+    @Test
+    public void testRefusesBrokenHuffmanPadding() throws Exception {
+        String status = "";
+        try {
+            // '0' is five zero bits, the three bits after it must be ones
+            HpackTest.decoded(new Hpack(), "0081000161");
+        } catch (final BadRequest ex) {
+            status = ex.status();
+        }
+        MatcherAssert.assertThat(status, Matchers.startsWith("400"));
+    }
+
+    @Test
+    public void testRefusesUnknownIndex() throws Exception {
+        String status = "";
+        try {
+            HpackTest.decoded(new Hpack(), "ff00");
+        } catch (final BadRequest ex) {
+            status = ex.status();
+        }
+        MatcherAssert.assertThat(status, Matchers.startsWith("400"));
+    }
+
+    @Test
+    public void testRefusesTooManyFieldsButKeepsTable() throws Exception {
+        final Hpack encoder = new Hpack();
+        final Hpack decoder = new Hpack();
+        final String[] fields = {"cookie", "a=1", "cookie", "a=1", "cookie", "a=1"};
+        final ByteArrayOutputStream first = new ByteArrayOutputStream();
+        encoder.encode(fields, first);
+        final List<String> seen = new ArrayList<>(0);
+        String status = "";
+        try {
+            // Every field is 6 + 3 + 32 octets, only two of them fit
+            decoder.decode(
+                first.toByteArray(), 0, first.size(), 100,
+                (name, value) -> {
+                    seen.add(name);
+                    seen.add(value);
+                }
+            );
+        } catch (final BadRequest ex) {
+            status = ex.status();
+        }
+        MatcherAssert.assertThat(status, Matchers.startsWith("431"));
+        MatcherAssert.assertThat(seen.size(), Matchers.equalTo(4));
+        final ByteArrayOutputStream second = new ByteArrayOutputStream();
+        encoder.encode(fields, second);
+        MatcherAssert.assertThat(
+            HpackTest.decoded(decoder, second.toByteArray()), Matchers.contains((Object[]) fields)
+        );
+    }
+
+    private static List<String> decoded(final Hpack hpack, final String hex)
+        throws BadRequest {
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int idx = 0; idx < bytes.length; ++idx) {
+            bytes[idx] = (byte) Integer.parseInt(hex.substring(idx * 2, idx * 2 + 2), 16);
+        }
+        return HpackTest.decoded(hpack, bytes);
+    }
+
+    private static List<String> decoded(final Hpack hpack, final byte[] bytes)
+        throws BadRequest {
+        final List<String> fields = new ArrayList<>(0);
+        hpack.decode(
+            bytes, 0, bytes.length,
+            (name, value) -> {
+                fields.add(name);
+                fields.add(value);
+            }
+        );
+        return fields;
+    }
+}
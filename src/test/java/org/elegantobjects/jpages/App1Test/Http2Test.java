@@ -0,0 +1,475 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.BodyPage;
+import org.elegantobjects.jpages.App1.Hpack;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.StreamingPage;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of HTTP/2 over cleartext, spoken by hand.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class Http2Test {
+
+    private static final byte[] PREFACE =
+        "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void testServesWithPriorKnowledge() throws Exception {
+        final App app = new App(new Pages(new CountDownLatch(0)));
+        final Thread thread = Http2Test.run(app);
+        try (final Client client = new Client(app.port(), true, new byte[0])) {
+            client.headers(1, "GET", "/", true);
+            client.headers(3, "GET", "/", true);
+            MatcherAssert.assertThat(client.response(1), Matchers.equalTo("200 hello"));
+            MatcherAssert.assertThat(client.response(3), Matchers.equalTo("200 hello"));
+            MatcherAssert.assertThat(
+                client.header(1, "content-length"), Matchers.equalTo("5")
+            );
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testUpgradesConnection() throws Exception {
+        final App app = new App(new Pages(new CountDownLatch(0)));
+        final Thread thread = Http2Test.run(app);
+        try (final Client client = new Client(app.port(), false, new byte[0])) {
+            client.output.write(
+                (
+                    "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: Upgrade, HTTP2-Settings\r\n"
+                    + "Upgrade: h2c\r\nHTTP2-Settings: AAMAAABk\r\n\r\n"
+                ).getBytes(StandardCharsets.US_ASCII)
+            );
+            final byte[] switching = new byte[
+                "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n".length()
+            ];
+            client.input.readFully(switching);
+            MatcherAssert.assertThat(
+                new String(switching, StandardCharsets.US_ASCII),
+                Matchers.startsWith("HTTP/1.1 101 ")
+            );
+            client.output.write(Http2Test.PREFACE);
+            client.frame(0x4, 0, 0, new byte[0]);
+            // The request of the upgrade is answered on the first stream
+            MatcherAssert.assertThat(client.response(1), Matchers.equalTo("200 hello"));
+            client.headers(3, "GET", "/", true);
+            MatcherAssert.assertThat(client.response(3), Matchers.equalTo("200 hello"));
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testAnswersStreamsOutOfOrder() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final App app = new App(new Pages(latch));
+        final Thread thread = Http2Test.run(app);
+        try (final Client client = new Client(app.port(), true, new byte[0])) {
+            client.headers(1, "GET", "/wait", true);
+            client.headers(3, "GET", "/go", true);
+            // The first stream waits for the second, on the same connection
+            MatcherAssert.assertThat(client.response(3), Matchers.equalTo("200 went"));
+            MatcherAssert.assertThat(client.response(1), Matchers.equalTo("200 waited"));
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testSendsNoMoreThanWindow() throws Exception {
+        final App app = new App(new Pages(new CountDownLatch(0)));
+        final Thread thread = Http2Test.run(app);
+        // SETTINGS_INITIAL_WINDOW_SIZE of 100 bytes
+        try (final Client client = new Client(app.port(), true, new byte[] {0, 4, 0, 0, 0, 100})) {
+            client.headers(1, "GET", "/big", true);
+            client.socket.setSoTimeout(500);
+            boolean stalled = false;
+            try {
+                client.response(1);
+            } catch (final SocketTimeoutException ex) {
+                stalled = true;
+            }
+            MatcherAssert.assertThat(stalled, Matchers.is(true));
+            MatcherAssert.assertThat(client.body(1), Matchers.equalTo(100));
+            client.frame(0x8, 0, 1, new byte[] {0, 0, 0x03, (byte) 0x84});
+            MatcherAssert.assertThat(client.response(1), Matchers.startsWith("200 xxx"));
+            MatcherAssert.assertThat(client.body(1), Matchers.equalTo(1000));
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testStreamsBodiesToPage() throws Exception {
+        final App app = new App(new Pages(new CountDownLatch(0)));
+        final Thread thread = Http2Test.run(app);
+        try (final Client client = new Client(app.port(), true, new byte[0])) {
+            client.headers(1, "POST", "/count", false);
+            final byte[] chunk = new byte[10000];
+            for (int idx = 0; idx < 6; ++idx) {
+                client.frame(0x0, 0x0, 1, chunk);
+            }
+            // More than the window of the stream, given back as the page reads
+            client.update(1);
+            for (int idx = 0; idx < 3; ++idx) {
+                client.frame(0x0, idx == 2 ? 0x1 : 0x0, 1, chunk);
+            }
+            MatcherAssert.assertThat(client.response(1), Matchers.equalTo("200 90000"));
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testRefusesTooManyCookies() throws Exception {
+        final App app = new App(new Pages(new CountDownLatch(0)));
+        final Thread thread = Http2Test.run(app);
+        try (final Client client = new Client(app.port(), true, new byte[0])) {
+            final StringBuilder crumb = new StringBuilder(100);
+            while (crumb.length() < 100) {
+                crumb.append('c');
+            }
+            final String[] fields = new String[1008];
+            fields[0] = ":method";
+            fields[1] = "GET";
+            fields[2] = ":scheme";
+            fields[3] = "http";
+            fields[4] = ":path";
+            fields[5] = "/";
+            fields[6] = ":authority";
+            fields[7] = "localhost";
+            for (int idx = 8; idx < fields.length; idx += 2) {
+                fields[idx] = "cookie";
+                fields[idx + 1] = crumb.toString();
+            }
+            // A few hundred bytes on the wire, many kilobytes decoded
+            final ByteArrayOutputStream block = new ByteArrayOutputStream();
+            client.encoder.encode(fields, block);
+            client.frame(0x1, 0x5, 1, block.toByteArray());
+            MatcherAssert.assertThat(client.response(1), Matchers.equalTo("431 "));
+            client.headers(3, "GET", "/", true);
+            MatcherAssert.assertThat(client.response(3), Matchers.equalTo("200 hello"));
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testAnswersBrokenPages() throws Exception {
+        final App app = new App(new Pages(new CountDownLatch(0)));
+        final Thread thread = Http2Test.run(app);
+        try (final Client client = new Client(app.port(), true, new byte[0])) {
+            client.headers(1, "GET", "/broken", true);
+            MatcherAssert.assertThat(client.response(1), Matchers.equalTo("500 "));
+            // The headers are out already, so the stream is reset
+            client.headers(3, "GET", "/rows", true);
+            MatcherAssert.assertThat(client.reset(3), Matchers.equalTo(0x2));
+            MatcherAssert.assertThat(client.header(3, ":status"), Matchers.equalTo("200"));
+            client.headers(5, "GET", "/", true);
+            MatcherAssert.assertThat(client.response(5), Matchers.equalTo("200 hello"));
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    private static Thread run(final App app) throws Exception {
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(0);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        while (app.port() == 0 && thread.isAlive()) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        return thread;
+    }
+
+    /**
+     * The client, which reads frames of all streams as they come.
+     */
+    private static final class Client implements AutoCloseable {
+
+        private final Socket socket;
+        private final DataInputStream input;
+        private final OutputStream output;
+        private final Hpack encoder;
+        private final Hpack decoder;
+        private final Map<String, String> headers;
+        private final Map<Integer, ByteArrayOutputStream> bodies;
+        private final Set<Integer> ended;
+        private final Set<Integer> updated;
+        private final Map<Integer, Integer> resets;
+
+        Client(final int port, final boolean preface, final byte[] settings)
+            throws IOException {
+            this.socket = new Socket("localhost", port);
+            this.input = new DataInputStream(this.socket.getInputStream());
+            this.output = this.socket.getOutputStream();
+            this.encoder = new Hpack();
+            this.decoder = new Hpack();
+            this.headers = new HashMap<>(0);
+            this.bodies = new HashMap<>(0);
+            this.ended = new HashSet<>(0);
+            this.updated = new HashSet<>(0);
+            this.resets = new HashMap<>(0);
+            if (preface) {
+                this.output.write(Http2Test.PREFACE);
+                this.frame(0x4, 0, 0, settings);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.socket.close();
+        }
+
+        void headers(final int id, final String method, final String path,
+            final boolean end) throws IOException {
+            final ByteArrayOutputStream block = new ByteArrayOutputStream();
+            this.encoder.encode(
+                new String[] {
+                    ":method", method, ":scheme", "http", ":path", path,
+                    ":authority", "localhost",
+                },
+                block
+            );
+            this.frame(0x1, end ? 0x5 : 0x4, id, block.toByteArray());
+        }
+
+        void frame(final int type, final int flags, final int id, final byte[] payload)
+            throws IOException {
+            final byte[] head = {
+                (byte) (payload.length >>> 16), (byte) (payload.length >>> 8),
+                (byte) payload.length, (byte) type, (byte) flags,
+                (byte) (id >>> 24), (byte) (id >>> 16), (byte) (id >>> 8), (byte) id,
+            };
+            this.output.write(head);
+            this.output.write(payload);
+            this.output.flush();
+        }
+
+        /**
+         * Read frames till the stream ends.
+         * @return The status and the body
+         */
+        String response(final int id) throws IOException {
+            while (!this.ended.contains(id)) {
+                this.read();
+            }
+            return String.format(
+                "%s %s", this.header(id, ":status"),
+                new String(this.bodies.get(id).toByteArray(), StandardCharsets.UTF_8)
+            );
+        }
+
+        /**
+         * Read frames till the window of the stream grows.
+         */
+        void update(final int id) throws IOException {
+            while (!this.updated.contains(id)) {
+                this.read();
+            }
+        }
+
+        /**
+         * Read frames till the stream is reset.
+         * @return The code of the error
+         */
+        int reset(final int id) throws IOException {
+            while (!this.resets.containsKey(id)) {
+                this.read();
+            }
+            return this.resets.get(id);
+        }
+
+        String header(final int id, final String name) {
+            return this.headers.get(String.format("%d %s", id, name));
+        }
+
+        int body(final int id) {
+            return this.bodies.get(id).size();
+        }
+
+        private void read() throws IOException {
+            final byte[] head = new byte[9];
+            this.input.readFully(head);
+            final int length = (head[0] & 0xFF) << 16 | (head[1] & 0xFF) << 8 | head[2] & 0xFF;
+            final int type = head[3];
+            final int flags = head[4];
+            final int id = (head[5] & 0x7F) << 24 | (head[6] & 0xFF) << 16
+                | (head[7] & 0xFF) << 8 | head[8] & 0xFF;
+            final byte[] payload = new byte[length];
+            this.input.readFully(payload);
+            if (type == 0x4 && (flags & 0x1) == 0) {
+                this.frame(0x4, 0x1, 0, new byte[0]);
+            }
+            if (type == 0x1) {
+                this.bodies.put(id, new ByteArrayOutputStream());
+                this.decoder.decode(
+                    payload, 0, length,
+                    (name, value) -> this.headers.put(String.format("%d %s", id, name), value)
+                );
+            }
+            if (type == 0x0) {
+                this.bodies.get(id).write(payload, 0, length);
+            }
+            if (type == 0x8) {
+                this.updated.add(id);
+            }
+            if (type == 0x3) {
+                this.resets.put(
+                    id, (payload[0] & 0xFF) << 24 | (payload[1] & 0xFF) << 16
+                        | (payload[2] & 0xFF) << 8 | payload[3] & 0xFF
+                );
+            }
+            if ((type == 0x0 || type == 0x1) && (flags & 0x1) != 0) {
+                this.ended.add(id);
+            }
+        }
+    }
+
+    /**
+     * The pages: one waits for another, one counts the body, one is big,
+     * two are broken.
+     */
+    private static final class Pages implements BodyPage {
+
+        private final CountDownLatch latch;
+        private final String path;
+
+        Pages(final CountDownLatch latch) {
+            this(latch, "/");
+        }
+
+        Pages(final CountDownLatch latch, final String path) {
+            this.latch = latch;
+            this.path = path;
+        }
+
+        @Override
+        public Page with(final String key, final String value) {
+            if ("X-Path".equals(key) && "/rows".equals(value)) {
+                return new StreamingPage(
+                    () -> Stream.of("first", "second").map(
+                        row -> {
+                            if ("second".equals(row)) {
+                                throw new IllegalStateException("The rows are broken");
+                            }
+                            return row;
+                        }
+                    ).iterator()
+                );
+            }
+            if ("X-Path".equals(key)) {
+                return new Pages(this.latch, value);
+            }
+            return this;
+        }
+
+        @Override
+        public Page withBody(final InputStream body) throws IOException {
+            if (!"/count".equals(this.path)) {
+                return this;
+            }
+            final byte[] buffer = new byte[512];
+            long total = 0L;
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                total += read;
+            }
+            return new TextPage(Long.toString(total));
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            final String text;
+            if ("/wait".equals(this.path)) {
+                try {
+                    this.latch.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(ex);
+                }
+                text = "waited";
+            } else if ("/broken".equals(this.path)) {
+                throw new IllegalStateException("The page is broken");
+            } else if ("/go".equals(this.path)) {
+                this.latch.countDown();
+                text = "went";
+            } else if ("/big".equals(this.path)) {
+                final StringBuilder big = new StringBuilder(1000);
+                while (big.length() < 1000) {
+                    big.append('x');
+                }
+                text = big.toString();
+            } else {
+                text = "hello";
+            }
+            return new TextPage(text).printTo(output);
+        }
+    }
+}
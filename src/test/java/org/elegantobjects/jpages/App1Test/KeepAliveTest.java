@@ -0,0 +1,267 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.PageWithRoutes;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * The test of persistent connections in the App.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class KeepAliveTest {
+
+    private App app;
+
+    private Thread thread;
+
+    private int port;
+
+    @Before
+    public void start() throws Exception {
+        this.app = new App(
+            new PageWithRoutes(
+                "/a",
+                new TextPage("alpha"),
+                new PageWithRoutes(
+                    "/empty",
+                    new Page() {
+                        @Override
+                        public Page with(final String key, final String value) {
+                            return this;
+                        }
+                        @Override
+                        public Output printTo(final Output output) {
+                            return output;
+                        }
+                    },
+                    new PageWithRoutes(
+                        "/broken",
+                        new Page() {
+                            @Override
+                            public Page with(final String key, final String value) {
+                                return this;
+                            }
+                            @Override
+                            public Output printTo(final Output output) {
+                                throw new IllegalStateException("The page is broken");
+                            }
+                        },
+                        new TextPage("beta")
+                    )
+                )
+            )
+        );
+        final App server = this.app;
+        this.thread = new Thread(
+            () -> {
+                try {
+                    server.start(0);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        this.thread.start();
+        while (this.app.port() == 0 && this.thread.isAlive()) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        this.port = this.app.port();
+    }
+
+    @After
+    public void stop() throws Exception {
+        this.app.stop(Duration.ofSeconds(1L));
+        this.thread.join();
+    }
+
+    @Test
+    public void testManyRequestsOnOneConnection() throws Exception {
+        try (final Socket socket = new Socket("localhost", this.port)) {
+            for (int attempt = 0; attempt < 10; ++attempt) {
+                KeepAliveTest.send(socket, "/a", "");
+                MatcherAssert.assertThat(
+                    KeepAliveTest.response(socket.getInputStream()),
+                    Matchers.allOf(
+                        Matchers.containsString("Connection: keep-alive\r\n"),
+                        Matchers.endsWith("\r\n\r\nalpha")
+                    )
+                );
+            }
+        }
+    }
+
+    @Test
+    public void testPipelinedRequestsInOrder() throws Exception {
+        try (final Socket socket = new Socket("localhost", this.port)) {
+            socket.getOutputStream().write(
+                (
+                    "GET /a HTTP/1.1\r\n\r\n"
+                    + "GET /b HTTP/1.1\r\n\r\n"
+                    + "GET /empty HTTP/1.1\r\n\r\n"
+                    + "GET /a HTTP/1.1\r\n\r\n"
+                ).getBytes(StandardCharsets.US_ASCII)
+            );
+            final InputStream input = socket.getInputStream();
+            MatcherAssert.assertThat(KeepAliveTest.response(input), Matchers.endsWith("alpha"));
+            MatcherAssert.assertThat(KeepAliveTest.response(input), Matchers.endsWith("beta"));
+            MatcherAssert.assertThat(
+                KeepAliveTest.response(input),
+                Matchers.containsString("Content-Length: 0\r\n")
+            );
+            MatcherAssert.assertThat(KeepAliveTest.response(input), Matchers.endsWith("alpha"));
+        }
+    }
+
+    @Test
+    public void testClosesWhenAsked() throws Exception {
+        try (final Socket socket = new Socket("localhost", this.port)) {
+            KeepAliveTest.send(socket, "/a", "Connection: close\r\n");
+            final InputStream input = socket.getInputStream();
+            MatcherAssert.assertThat(
+                KeepAliveTest.response(input),
+                Matchers.containsString("Connection: close\r\n")
+            );
+            MatcherAssert.assertThat(input.read(), Matchers.equalTo(-1));
+        }
+    }
+
+    @Test
+    public void testOutlivesBrokenPages() throws Exception {
+        // More broken requests than threads in the pool
+        for (int attempt = 0; attempt < 15; ++attempt) {
+            try (final Socket socket = new Socket("localhost", this.port)) {
+                socket.setSoTimeout(2000);
+                KeepAliveTest.send(socket, "/broken", "");
+                MatcherAssert.assertThat(
+                    KeepAliveTest.response(socket.getInputStream()),
+                    Matchers.startsWith("HTTP/1.1 500 Internal Server Error\r\n")
+                );
+            }
+        }
+        try (final Socket socket = new Socket("localhost", this.port)) {
+            socket.setSoTimeout(2000);
+            KeepAliveTest.send(socket, "/a", "");
+            MatcherAssert.assertThat(
+                KeepAliveTest.response(socket.getInputStream()),
+                Matchers.endsWith("alpha")
+            );
+        }
+    }
+
+    @Test
+    @Ignore
+    public void testRequestsPerSecond() throws Exception {
+        final int total = 20000;
+        long start = System.nanoTime();
+        for (int idx = 0; idx < total; ++idx) {
+            try (final Socket socket = new Socket("localhost", this.port)) {
+                KeepAliveTest.send(socket, "/a", "Connection: close\r\n");
+                KeepAliveTest.response(socket.getInputStream());
+            }
+        }
+        final long fresh = total * TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start);
+        start = System.nanoTime();
+        try (final Socket socket = new Socket("localhost", this.port)) {
+            for (int idx = 0; idx < total; ++idx) {
+                KeepAliveTest.send(socket, "/a", "");
+                KeepAliveTest.response(socket.getInputStream());
+            }
+        }
+        final long reused = total * TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start);
+        System.out.printf(
+            "New connection per request: %d rq/s, one reused connection: %d rq/s%n",
+            fresh, reused
+        );
+    }
+
+    private static void send(final Socket socket, final String path, final String headers)
+        throws IOException {
+        final OutputStream output = socket.getOutputStream();
+        output.write(
+            String.format("GET %s HTTP/1.1\r\nHost: localhost\r\n%s\r\n", path, headers)
+                .getBytes(StandardCharsets.US_ASCII)
+        );
+        output.flush();
+    }
+
+    /**
+     * Read exactly one response, framed by its Content-Length.
+     */
+    private static String response(final InputStream input) throws IOException {
+        final ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            final int chr = input.read();
+            if (chr < 0) {
+                throw new IOException("Connection closed in the middle of a response");
+            }
+            head.write(chr);
+            if (chr == (matched % 2 == 0 ? '\r' : '\n')) {
+                ++matched;
+            } else {
+                matched = chr == '\r' ? 1 : 0;
+            }
+        }
+        final String text = new String(head.toByteArray(), StandardCharsets.US_ASCII);
+        int length = 0;
+        for (final String line : text.split("\r\n")) {
+            if (line.startsWith("Content-Length:")) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        final byte[] body = new byte[length];
+        int done = 0;
+        while (done < length) {
+            final int read = input.read(body, done, length - done);
+            if (read < 0) {
+                throw new IOException("Connection closed in the middle of a body");
+            }
+            done += read;
+        }
+        return text + new String(body, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.elegantobjects.jpages.App1.KeyValuePage;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.RequestScopedPage;
+import org.elegantobjects.jpages.App1.SimpleTextOutput;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the KeyValuePage.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class KeyValuePageTest {
+
+    @Test
+    public void testKeepsRequestsApart() throws Exception {
+        final Page root = new KeyValuePage();
+        final ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> results = new ArrayList<>(100);
+            for (int idx = 0; idx < 100; ++idx) {
+                final String path = String.format("/%d", idx);
+                results.add(
+                    threads.submit(
+                        () -> root.with("X-Path", path)
+                            .with("Host", "localhost")
+                            .printTo(new SimpleTextOutput(""))
+                            .toString()
+                    )
+                );
+            }
+            for (int idx = 0; idx < 100; ++idx) {
+                MatcherAssert.assertThat(
+                    results.get(idx).get(),
+                    Matchers.endsWith(String.format("X-Path: /%d\nHost: localhost", idx))
+                );
+            }
+        } finally {
+            threads.shutdown();
+        }
+        MatcherAssert.assertThat(
+            root.printTo(new SimpleTextOutput("")).toString(),
+            Matchers.containsString("Content-Length: 0\r\n")
+        );
+    }
+
+    @Test
+    public void testLatestValueWins() {
+        MatcherAssert.assertThat(
+            new KeyValuePage()
+                .with("a", "1")
+                .with("b", "2")
+                .with("a", "3")
+                .printTo(new SimpleTextOutput(""))
+                .toString(),
+            Matchers.endsWith("\r\n\r\na: 3\nb: 2")
+        );
+    }
+
+    @Test
+    public void testMakesPagePerRequest() throws Exception {
+        final Page root = new RequestScopedPage(MutablePage::new);
+        final Callable<String> request = () -> root
+            .with("X-Path", "/")
+            .printTo(new SimpleTextOutput(""))
+            .toString();
+        request.call();
+        MatcherAssert.assertThat(request.call(), Matchers.endsWith("\r\n\r\n1"));
+    }
+
+    /**
+     * The page that counts pairs in a mutable map.
+     */
+    private static final class MutablePage implements Page {
+
+        private final Map<String, String> args = new HashMap<>(0);
+
+        @Override
+        public Page with(final String key, final String value) {
+            this.args.put(key + this.args.size(), value);
+            return this;
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            final String body = Integer.toString(this.args.size());
+            return output.with("Content-Length", "1").with("X-Body", body);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.Admission;
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.Listeners;
+import org.elegantobjects.jpages.App1.Metrics;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * The test of the Listeners.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class ListenersTest {
+
+    @Test
+    public void testOpensFewListenersOnOnePort() throws Exception {
+        final Listeners listeners = new Listeners(3);
+        Assume.assumeTrue(listeners.reusable());
+        final List<ServerSocket> servers = listeners.open(0, 50);
+        try {
+            MatcherAssert.assertThat(servers.size(), Matchers.equalTo(3));
+            final int port = servers.get(0).getLocalPort();
+            MatcherAssert.assertThat(port, Matchers.greaterThan(0));
+            for (final ServerSocket server : servers) {
+                MatcherAssert.assertThat(server.getLocalPort(), Matchers.equalTo(port));
+            }
+        } finally {
+            for (final ServerSocket server : servers) {
+                server.close();
+            }
+        }
+    }
+
+    @Test
+    public void testAppServesOnAllListeners() throws Exception {
+        final App app = new App(
+            new TextPage("Hello, world!"), 2, new Metrics(), new Admission(), new Listeners(4)
+        );
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(0);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        while (app.port() == 0 && thread.isAlive()) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        final int port = app.port();
+        for (int idx = 0; idx < 40; ++idx) {
+            try (final Socket socket = new Socket("localhost", port)) {
+                socket.getOutputStream().write(
+                    "GET / HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+                );
+                MatcherAssert.assertThat(
+                    ListenersTest.response(socket), Matchers.endsWith("Hello, world!")
+                );
+            }
+        }
+        app.stop(Duration.ofSeconds(1L));
+        thread.join(3000L);
+        MatcherAssert.assertThat(thread.isAlive(), Matchers.is(false));
+        String refused = "";
+        try {
+            new Socket("localhost", port).close();
+        } catch (final ConnectException ex) {
+            refused = ex.getMessage();
+        }
+        MatcherAssert.assertThat("A listener is still open", refused, Matchers.not(""));
+    }
+
+    private static String response(final Socket socket) throws Exception {
+        final InputStream input = socket.getInputStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[1024];
+        while (true) {
+            final int size = input.read(chunk);
+            if (size < 0) {
+                break;
+            }
+            bytes.write(chunk, 0, size);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.Histogram;
+import org.elegantobjects.jpages.App1.Metrics;
+import org.elegantobjects.jpages.App1.MetricsPage;
+import org.elegantobjects.jpages.App1.PageWithRoutes;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the Metrics.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class MetricsTest {
+
+    private static final int PORT = 12351;
+
+    @Test
+    public void testHistogramKeepsQuantiles() {
+        final Histogram histogram = new Histogram();
+        for (long nanos = 1L; nanos <= 1000L; ++nanos) {
+            histogram.record(nanos * 1000L);
+        }
+        MatcherAssert.assertThat(histogram.count(), Matchers.equalTo(1000L));
+        MatcherAssert.assertThat(
+            (double) histogram.quantile(0.5), Matchers.closeTo(500000.0, 125000.0)
+        );
+        MatcherAssert.assertThat(
+            (double) histogram.quantile(0.99), Matchers.closeTo(990000.0, 250000.0)
+        );
+        final StringBuilder text = new StringBuilder(0);
+        histogram.printTo(text, "x_seconds", "X");
+        MatcherAssert.assertThat(text.toString(), Matchers.containsString("# TYPE x_seconds histogram\n"));
+        MatcherAssert.assertThat(text.toString(), Matchers.containsString("x_seconds_bucket{le=\"0.000001024\"} 1\n"));
+        MatcherAssert.assertThat(text.toString(), Matchers.containsString("x_seconds_bucket{le=\"0.001048576\"} 1000\n"));
+        MatcherAssert.assertThat(text.toString(), Matchers.containsString("x_seconds_bucket{le=\"+Inf\"} 1000\n"));
+        MatcherAssert.assertThat(text.toString(), Matchers.containsString("x_seconds_sum 0.5005\n"));
+        MatcherAssert.assertThat(text.toString(), Matchers.endsWith("x_seconds_count 1000\n"));
+    }
+
+    @Test
+    public void testCountsRequestsOfApp() throws Exception {
+        final Metrics metrics = new Metrics();
+        final Thread thread = new Thread(
+            () -> {
+                final App app = new App(
+                    new PageWithRoutes(
+                        "/metrics",
+                        new MetricsPage(metrics),
+                        new TextPage("Hello, world!")
+                    ),
+                    2,
+                    metrics
+                );
+                try {
+                    app.start(MetricsTest.PORT);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        try {
+            for (int attempt = 0; attempt < 3; ++attempt) {
+                MetricsTest.get("/");
+            }
+            final String response = MetricsTest.get("/metrics");
+            MatcherAssert.assertThat(
+                response,
+                Matchers.containsString("Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n")
+            );
+            MatcherAssert.assertThat(response, Matchers.containsString("\njpages_requests_total 4\n"));
+            MatcherAssert.assertThat(response, Matchers.containsString("\njpages_requests_inflight 1\n"));
+            MatcherAssert.assertThat(response, Matchers.containsString("\njpages_parse_seconds_count 4\n"));
+            MatcherAssert.assertThat(response, Matchers.containsString("\njpages_page_seconds_count 3\n"));
+            MatcherAssert.assertThat(response, Matchers.containsString("\njpages_write_seconds_count 3\n"));
+        } finally {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    private static String get(final String path) throws Exception {
+        try (final Socket socket = new Socket("localhost", MetricsTest.PORT)) {
+            socket.getOutputStream().write(
+                String.format("GET %s HTTP/1.1\r\nConnection: close\r\n\r\n", path)
+                    .getBytes(StandardCharsets.US_ASCII)
+            );
+            final InputStream input = socket.getInputStream();
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[4096];
+            while (true) {
+                final int size = input.read(chunk);
+                if (size < 0) {
+                    break;
+                }
+                bytes.write(chunk, 0, size);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.ByteBufferOutput;
+import org.elegantobjects.jpages.App1.SimpleTextOutput;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The benchmark of building a response in SimpleTextOutput and in
+ * ByteBufferOutput, for a few body sizes.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+
+    @Param({"1024", "102400", "10485760"})
+    public int size;
+
+    private TextPage page;
+
+    private ByteBuffer buffer;
+
+    private final OutputStream sink = new OutputStream() {
+        @Override
+        public void write(final int chr) {
+            // discard
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int off, final int len) {
+            // discard
+        }
+    };
+
+    @Setup
+    public void setup() {
+        final StringBuilder body = new StringBuilder(this.size);
+        while (body.length() < this.size) {
+            body.append('x');
+        }
+        this.page = new TextPage(body.toString());
+        this.buffer = ByteBuffer.allocateDirect(this.size + 1024);
+    }
+
+    @Benchmark
+    public void simpleTextOutput() throws IOException {
+        this.page.printTo(new SimpleTextOutput("")).writeTo(this.sink);
+    }
+
+    @Benchmark
+    public void byteBufferOutput() throws IOException {
+        this.page.printTo(new ByteBufferOutput(this.buffer)).writeTo(this.sink);
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.elegantobjects.jpages.App1.ByteBufferOutput;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.OutputWithLength;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.PageWithCompression;
+import org.elegantobjects.jpages.App1.SimpleTextOutput;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the PageWithCompression.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class PageWithCompressionTest {
+
+    private static final String TEXT = new String(new char[4096]).replace("\0", "Hello, world! ");
+
+    @Test
+    public void testCompressesWithGzip() throws Exception {
+        final byte[] response = PageWithCompressionTest.print(
+            new PageWithCompression(new TextPage(PageWithCompressionTest.TEXT))
+                .with("Accept-Encoding", "gzip, deflate, br")
+        );
+        final String head = PageWithCompressionTest.head(response);
+        MatcherAssert.assertThat(head, Matchers.containsString("Content-Encoding: gzip\r\n"));
+        MatcherAssert.assertThat(head, Matchers.containsString("Vary: Accept-Encoding\r\n"));
+        final int length = response.length - head.length();
+        MatcherAssert.assertThat(
+            head, Matchers.containsString(String.format("Content-Length: %d\r\n", length))
+        );
+        MatcherAssert.assertThat(
+            PageWithCompressionTest.inflated(
+                new GZIPInputStream(new ByteArrayInputStream(response, head.length(), length))
+            ),
+            Matchers.equalTo(PageWithCompressionTest.TEXT)
+        );
+    }
+
+    @Test
+    public void testPrefersDeflateWhenAskedTo() throws Exception {
+        final byte[] response = PageWithCompressionTest.print(
+            new PageWithCompression(new TextPage(PageWithCompressionTest.TEXT))
+                .with("accept-encoding", "gzip;q=0.5, deflate")
+        );
+        final String head = PageWithCompressionTest.head(response);
+        MatcherAssert.assertThat(head, Matchers.containsString("Content-Encoding: deflate\r\n"));
+        MatcherAssert.assertThat(
+            PageWithCompressionTest.inflated(
+                new InflaterInputStream(
+                    new ByteArrayInputStream(
+                        response, head.length(), response.length - head.length()
+                    )
+                )
+            ),
+            Matchers.equalTo(PageWithCompressionTest.TEXT)
+        );
+    }
+
+    @Test
+    public void testSkipsTinyAndUnwantedBodies() throws Exception {
+        MatcherAssert.assertThat(
+            new String(
+                PageWithCompressionTest.print(
+                    new PageWithCompression(new TextPage("Hello, world!"))
+                        .with("Accept-Encoding", "gzip")
+                ),
+                StandardCharsets.UTF_8
+            ),
+            Matchers.allOf(
+                Matchers.not(Matchers.containsString("Content-Encoding")),
+                Matchers.containsString("Content-Length: 13\r\n"),
+                Matchers.endsWith("\r\n\r\nHello, world!")
+            )
+        );
+        MatcherAssert.assertThat(
+            new String(
+                PageWithCompressionTest.print(
+                    new PageWithCompression(new TextPage(PageWithCompressionTest.TEXT))
+                        .with("Accept-Encoding", "identity, gzip;q=0")
+                ),
+                StandardCharsets.UTF_8
+            ),
+            Matchers.endsWith(PageWithCompressionTest.TEXT)
+        );
+        MatcherAssert.assertThat(
+            new PageWithCompression(new TextPage(PageWithCompressionTest.TEXT))
+                .with("Accept-Encoding", "gzip")
+                .printTo(new SimpleTextOutput(""))
+                .toString(),
+            Matchers.endsWith(PageWithCompressionTest.TEXT)
+        );
+    }
+
+    @Test
+    public void testCachesConstantPage() throws Exception {
+        final Page page = new PageWithCompression(
+            new TextPage(PageWithCompressionTest.TEXT), 256, true
+        );
+        final byte[] first = PageWithCompressionTest.print(page.with("Accept-Encoding", "gzip"));
+        final byte[] second = PageWithCompressionTest.print(page.with("Accept-Encoding", "gzip"));
+        MatcherAssert.assertThat(second, Matchers.equalTo(first));
+        MatcherAssert.assertThat(
+            PageWithCompressionTest.head(second),
+            Matchers.containsString("Content-Encoding: gzip\r\n")
+        );
+    }
+
+    @Test
+    public void testLetsPageEncodeItself() throws Exception {
+        final String response = new String(
+            PageWithCompressionTest.print(
+                new PageWithCompression(new EncodedPage(""))
+                    .with("Accept-Encoding", "gzip, br")
+            ),
+            StandardCharsets.UTF_8
+        );
+        MatcherAssert.assertThat(response, Matchers.containsString("Content-Encoding: br\r\n"));
+        MatcherAssert.assertThat(response, Matchers.not(Matchers.containsString("gzip\r\n")));
+        MatcherAssert.assertThat(
+            response, Matchers.endsWith(String.format("\r\n\r\n%s", PageWithCompressionTest.TEXT))
+        );
+    }
+
+    private static byte[] print(final Page page) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        page.printTo(new OutputWithLength(new ByteBufferOutput())).writeTo(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static String head(final byte[] response) {
+        final String text = new String(response, StandardCharsets.ISO_8859_1);
+        return text.substring(0, text.indexOf("\r\n\r\n") + 4);
+    }
+
+    private static String inflated(final InputStream input) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[4096];
+        while (true) {
+            final int size = input.read(chunk);
+            if (size < 0) {
+                break;
+            }
+            bytes.write(chunk, 0, size);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The page that sends its body as if it was encoded with Brotli,
+     * when the client accepts it.
+     */
+    private static final class EncodedPage implements Page {
+
+        private final String accepted;
+
+        EncodedPage(final String encodings) {
+            this.accepted = encodings;
+        }
+
+        @Override
+        public Page with(final String key, final String value) {
+            if ("Accept-Encoding".equals(key)) {
+                return new EncodedPage(value);
+            }
+            return this;
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            Output out = output;
+            if (this.accepted.contains("br")) {
+                out = out.with("Content-Encoding", "br");
+            }
+            return out.with("X-Body", PageWithCompressionTest.TEXT);
+        }
+    }
+}
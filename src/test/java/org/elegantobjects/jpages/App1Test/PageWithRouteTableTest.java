@@ -0,0 +1,126 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.PageWithRouteTable;
+import org.elegantobjects.jpages.App1.Route;
+import org.elegantobjects.jpages.App1.Session;
+import org.elegantobjects.jpages.App1.SimpleTextOutput;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the PageWithRouteTable.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class PageWithRouteTableTest {
+
+    private final Page table = new PageWithRouteTable(
+        new TextPage("Not found!"),
+        new Route("/", new TextPage("home")),
+        new Route("/books", new TextPage("all books")),
+        new Route("GET", "/books/{id}", new Echo("X-Param-id")),
+        new Route("DELETE", "/books/{id}", new TextPage("deleted")),
+        new Route("/books/new", new TextPage("new book")),
+        new Route("/books/{id}/pages/{page}", new Echo("X-Param-page")),
+        new Route("/static/*", new Echo("X-Path")),
+        new Route("/a/b/c", new TextPage("abc")),
+        new Route("/a/{x}/d", new Echo("X-Param-x"))
+    );
+
+    @Test
+    public void testRoutesExactPaths() throws Exception {
+        MatcherAssert.assertThat(this.body("GET /"), Matchers.equalTo("home"));
+        MatcherAssert.assertThat(this.body("GET /books/"), Matchers.equalTo("all books"));
+        MatcherAssert.assertThat(this.body("GET /books/new"), Matchers.equalTo("new book"));
+    }
+
+    @Test
+    public void testRoutesParams() throws Exception {
+        MatcherAssert.assertThat(this.body("GET /books/42"), Matchers.equalTo("42"));
+        MatcherAssert.assertThat(
+            this.body("GET /books/42/pages/7?x=1"), Matchers.equalTo("7")
+        );
+        MatcherAssert.assertThat(this.body("GET /a/b/d"), Matchers.equalTo("b"));
+        MatcherAssert.assertThat(this.body("GET /a/b/c"), Matchers.equalTo("abc"));
+    }
+
+    @Test
+    public void testRoutesByMethod() throws Exception {
+        MatcherAssert.assertThat(this.body("DELETE /books/42"), Matchers.equalTo("deleted"));
+        MatcherAssert.assertThat(this.body("POST /books/42"), Matchers.equalTo("Not found!"));
+    }
+
+    @Test
+    public void testRoutesPrefixes() throws Exception {
+        MatcherAssert.assertThat(
+            this.body("GET /static/css/site.css"), Matchers.equalTo("/static/css/site.css")
+        );
+        MatcherAssert.assertThat(this.body("GET /nothing"), Matchers.equalTo("Not found!"));
+    }
+
+    private String body(final String line) {
+        final String response = new Session(this.table)
+            .with(line + " HTTP/1.1\r\n\r\n")
+            .printTo(new SimpleTextOutput(""))
+            .toString();
+        return response.substring(response.indexOf("\r\n\r\n") + 4);
+    }
+
+    /**
+     * The page that prints the value of one key.
+     */
+    private static final class Echo implements Page {
+        private final String key;
+        private final String value;
+
+        Echo(final String key) {
+            this(key, "");
+        }
+
+        Echo(final String key, final String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Page with(final String name, final String val) {
+            if (this.key.equals(name)) {
+                return new Echo(this.key, val);
+            }
+            return this;
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            return new TextPage(this.value).printTo(output);
+        }
+    }
+}
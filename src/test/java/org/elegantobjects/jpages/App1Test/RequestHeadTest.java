@@ -0,0 +1,314 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.elegantobjects.jpages.App1.BadRequest;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.PageWithCompression;
+import org.elegantobjects.jpages.App1.PageWithRoutes;
+import org.elegantobjects.jpages.App1.RequestHead;
+import org.elegantobjects.jpages.App1.SelectivePage;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the RequestHead.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class RequestHeadTest {
+
+    @Test
+    public void testParsesHeadSplitAcrossReads() throws Exception {
+        final byte[] bytes = (
+            "GET /books?id=42 HTTP/1.1\r\nHost: a:8080\r\nAccept:  text/plain \r\n\r\nNEXT"
+        ).getBytes(StandardCharsets.US_ASCII);
+        final RequestHead head = new RequestHead();
+        final ByteBuffer buffer = ByteBuffer.allocate(1);
+        int idx = 0;
+        boolean done = false;
+        while (!done) {
+            buffer.clear();
+            buffer.put(bytes[idx]);
+            buffer.flip();
+            ++idx;
+            done = head.parse(buffer);
+        }
+        MatcherAssert.assertThat(
+            new String(bytes, idx, bytes.length - idx, StandardCharsets.US_ASCII),
+            Matchers.equalTo("NEXT")
+        );
+        final Map<String, String> pairs = new HashMap<>(0);
+        head.into(new Recording(pairs));
+        MatcherAssert.assertThat(pairs, Matchers.hasEntry("X-Method", "GET"));
+        MatcherAssert.assertThat(pairs, Matchers.hasEntry("X-Path", "/books"));
+        MatcherAssert.assertThat(pairs, Matchers.hasEntry("X-Query", "id=42"));
+        MatcherAssert.assertThat(pairs, Matchers.hasEntry("X-Protocol", "HTTP/1.1"));
+        MatcherAssert.assertThat(pairs, Matchers.hasEntry("Host", "a:8080"));
+        MatcherAssert.assertThat(pairs, Matchers.hasEntry("Accept", "text/plain"));
+        MatcherAssert.assertThat(head.persistent(), Matchers.is(true));
+    }
+
+    @Test
+    public void testLeavesPipelinedRequestInBuffer() throws Exception {
+        final ByteBuffer buffer = ByteBuffer.wrap(
+            "GET /a HTTP/1.0\r\n\r\nGET /b HTTP/1.1\r\nConnection: close\r\n\r\n"
+                .getBytes(StandardCharsets.US_ASCII)
+        );
+        final RequestHead head = new RequestHead();
+        MatcherAssert.assertThat(head.parse(buffer), Matchers.is(true));
+        MatcherAssert.assertThat(head.persistent(), Matchers.is(false));
+        head.reset();
+        MatcherAssert.assertThat(head.parse(buffer), Matchers.is(true));
+        MatcherAssert.assertThat(head.persistent(), Matchers.is(false));
+        final Map<String, String> pairs = new HashMap<>(0);
+        head.into(new Recording(pairs));
+        MatcherAssert.assertThat(pairs, Matchers.hasEntry("X-Path", "/b"));
+    }
+
+    @Test
+    public void testRefusesHeadersSpoofingRequestLine() throws Exception {
+        for (final String name : new String[] {"X-Path", "x-method", "X-QUERY", "X-Protocol"}) {
+            String status = "";
+            try {
+                new RequestHead().parse(
+                    ByteBuffer.wrap(
+                        String.format("GET /public.txt HTTP/1.1\r\n%s: /secret.txt\r\n\r\n", name)
+                            .getBytes(StandardCharsets.US_ASCII)
+                    )
+                );
+            } catch (final BadRequest ex) {
+                status = ex.status();
+            }
+            MatcherAssert.assertThat(name, status, Matchers.startsWith("400"));
+        }
+    }
+
+    @Test
+    public void testRefusesAddedHeadersSpoofingRequestLine() throws Exception {
+        for (final String name : new String[] {"x-path", "X-Method", "x-query", "X-PROTOCOL"}) {
+            final RequestHead head = new RequestHead();
+            head.start("GET", "/public.txt", "HTTP/2.0");
+            String status = "";
+            try {
+                head.add(name, "/secret.txt");
+            } catch (final BadRequest ex) {
+                status = ex.status();
+            }
+            MatcherAssert.assertThat(name, status, Matchers.startsWith("400"));
+            MatcherAssert.assertThat(head.header("X-Path"), Matchers.equalTo("/public.txt"));
+        }
+    }
+
+    @Test
+    public void testRefusesTooLongHeader() throws Exception {
+        final RequestHead head = new RequestHead(64, 100);
+        head.parse(ByteBuffer.wrap("GET / HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII)));
+        final StringBuilder big = new StringBuilder("Cookie: ");
+        while (big.length() < 100) {
+            big.append('x');
+        }
+        String status = "";
+        try {
+            head.parse(ByteBuffer.wrap(big.toString().getBytes(StandardCharsets.US_ASCII)));
+        } catch (final BadRequest ex) {
+            status = ex.status();
+        }
+        MatcherAssert.assertThat(status, Matchers.startsWith("431"));
+    }
+
+    @Test
+    public void testRefusesTooManyHeaders() throws Exception {
+        final RequestHead head = new RequestHead(8192, 2);
+        String status = "";
+        try {
+            head.parse(
+                ByteBuffer.wrap(
+                    "GET / HTTP/1.1\r\nA: 1\r\nB: 2\r\nC: 3\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII)
+                )
+            );
+        } catch (final BadRequest ex) {
+            status = ex.status();
+        }
+        MatcherAssert.assertThat(status, Matchers.startsWith("431"));
+    }
+
+    @Test
+    public void testRefusesHeaderWithoutColon() throws Exception {
+        String status = "";
+        try {
+            new RequestHead().parse(
+                ByteBuffer.wrap(
+                    "GET / HTTP/1.1\r\nnonsense\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+                )
+            );
+        } catch (final BadRequest ex) {
+            status = ex.status();
+        }
+        MatcherAssert.assertThat(status, Matchers.startsWith("400"));
+    }
+
+    @Test
+    public void testInternsKnownHeaderNames() throws Exception {
+        final RequestHead head = new RequestHead();
+        final ByteBuffer buffer = ByteBuffer.wrap(
+            (
+                "GET /a HTTP/1.1\r\nhost: a\r\nACCEPT-ENCODING : gzip\r\nX-Custom: 1\r\n\r\n"
+                + "GET /b HTTP/1.1\r\nHost: b\r\nx-custom: 2\r\n\r\n"
+            ).getBytes(StandardCharsets.US_ASCII)
+        );
+        head.parse(buffer);
+        final Map<String, String> first = new HashMap<>(0);
+        head.into(new Recording(first));
+        MatcherAssert.assertThat(first, Matchers.hasEntry("Host", "a"));
+        MatcherAssert.assertThat(first, Matchers.hasEntry("Accept-Encoding", "gzip"));
+        MatcherAssert.assertThat(first, Matchers.hasEntry("X-Custom", "1"));
+        MatcherAssert.assertThat(head.header("accept-encoding"), Matchers.equalTo("gzip"));
+        final String host = RequestHeadTest.name(first, "Host");
+        final String method = RequestHeadTest.value(first, "X-Method");
+        head.reset();
+        head.parse(buffer);
+        final Map<String, String> second = new HashMap<>(0);
+        head.into(new Recording(second));
+        MatcherAssert.assertThat(RequestHeadTest.name(second, "Host") == host, Matchers.is(true));
+        MatcherAssert.assertThat(RequestHeadTest.value(second, "X-Method") == method, Matchers.is(true));
+        MatcherAssert.assertThat(second, Matchers.hasEntry("x-custom", "2"));
+        MatcherAssert.assertThat(head.header("Accept-Encoding"), Matchers.equalTo(""));
+        MatcherAssert.assertThat(head.header("X-CUSTOM"), Matchers.equalTo("2"));
+        MatcherAssert.assertThat(head.header("Host"), Matchers.equalTo("b"));
+    }
+
+    @Test
+    public void testFeedsSelectivePageOnlyWhatItWants() throws Exception {
+        final RequestHead head = new RequestHead();
+        head.parse(
+            ByteBuffer.wrap(
+                "GET /a?x=1 HTTP/1.1\r\nHost: a\r\nCookie: c=1\r\nAccept: */*\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII)
+            )
+        );
+        final Map<String, String> pairs = new HashMap<>(0);
+        head.into(new Selective(new Recording(pairs), "X-Path", "cookie"));
+        MatcherAssert.assertThat(pairs.size(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(pairs, Matchers.hasEntry("X-Path", "/a"));
+        MatcherAssert.assertThat(pairs, Matchers.hasEntry("Cookie", "c=1"));
+        MatcherAssert.assertThat(head.header("Accept"), Matchers.equalTo("*/*"));
+        MatcherAssert.assertThat(head.header("X-Query"), Matchers.equalTo("x=1"));
+    }
+
+    @Test
+    public void testTellsWhichKeysPagesWant() {
+        final SelectivePage routes = new PageWithRoutes(
+            "/a", new TextPage("a"), new TextPage("b")
+        );
+        MatcherAssert.assertThat(routes.wants("X-Path"), Matchers.is(true));
+        MatcherAssert.assertThat(routes.wants("Host"), Matchers.is(false));
+        final SelectivePage zipped = new PageWithCompression(routes);
+        MatcherAssert.assertThat(zipped.wants("Accept-Encoding"), Matchers.is(true));
+        MatcherAssert.assertThat(zipped.wants("X-Path"), Matchers.is(true));
+        MatcherAssert.assertThat(zipped.wants("Cookie"), Matchers.is(false));
+        MatcherAssert.assertThat(
+            new PageWithCompression(new Recording(new HashMap<>(0))).wants("Cookie"),
+            Matchers.is(true)
+        );
+    }
+
+    private static String name(final Map<String, String> pairs, final String name) {
+        for (final String key : pairs.keySet()) {
+            if (key.equals(name)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static String value(final Map<String, String> pairs, final String name) {
+        return pairs.get(name);
+    }
+
+    /**
+     * The page that wants only some of the keys.
+     */
+    private static final class Selective implements SelectivePage {
+        private final Page page;
+        private final String[] keys;
+
+        Selective(final Page page, final String... keys) {
+            this.page = page;
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean wants(final String key) {
+            for (final String candidate : this.keys) {
+                if (candidate.equalsIgnoreCase(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Page with(final String key, final String value) {
+            return new Selective(this.page.with(key, value), this.keys);
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            return output;
+        }
+    }
+
+    /**
+     * The page that remembers what it was given.
+     */
+    private static final class Recording implements Page {
+        private final Map<String, String> pairs;
+
+        Recording(final Map<String, String> pairs) {
+            this.pairs = pairs;
+        }
+
+        @Override
+        public Page with(final String key, final String value) {
+            this.pairs.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Output printTo(final Output output) {
+            return output;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.App1;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the ResourcePage, through App1.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class ResourcePageTest {
+
+    @Test
+    public void testServesResourcesInParallelAndStaysUp() throws Exception {
+        final int port = 12359;
+        final App1 app = new App1(new App1.Session(Echo::new), 4);
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(port);
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        final ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> responses = new ArrayList<>(0);
+            for (int idx = 0; idx < 16; ++idx) {
+                final int request = idx;
+                responses.add(
+                    clients.submit(() -> ResourcePageTest.fetch(port, "id=" + request))
+                );
+            }
+            for (int idx = 0; idx < responses.size(); ++idx) {
+                MatcherAssert.assertThat(
+                    responses.get(idx).get(5L, TimeUnit.SECONDS),
+                    Matchers.endsWith(String.format("\r\n\r\nquery=id=%d", idx))
+                );
+            }
+        } finally {
+            clients.shutdown();
+        }
+        // The old server gave up after a second without requests
+        TimeUnit.MILLISECONDS.sleep(1500L);
+        MatcherAssert.assertThat(
+            ResourcePageTest.fetch(port, "late"), Matchers.endsWith("query=late")
+        );
+        app.stop(Duration.ofSeconds(1L));
+        thread.join(1000L);
+        MatcherAssert.assertThat(thread.isAlive(), Matchers.is(false));
+    }
+
+    private static String fetch(final int port, final String query) throws Exception {
+        try (final Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(
+                String.format("GET /echo?%s HTTP/1.1\r\nConnection: close\r\n\r\n", query)
+                    .getBytes(StandardCharsets.US_ASCII)
+            );
+            final InputStream input = socket.getInputStream();
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[1024];
+            while (true) {
+                final int size = input.read(chunk);
+                if (size < 0) {
+                    break;
+                }
+                bytes.write(chunk, 0, size);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * The resource that keeps its pairs in a map, which is not thread-safe.
+     */
+    private static final class Echo implements App1.Resource {
+        private final Map<String, String> params = new HashMap<>(0);
+
+        @Override
+        public App1.Resource define(final String name, final String value) {
+            this.params.put(name, value);
+            return this;
+        }
+
+        @Override
+        public void printTo(final App1.Output output) throws IOException {
+            final String body = "query=" + this.params.get("X-Query");
+            output.print("Content-Type", "text/plain");
+            output.print("X-Body", body);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.PageWithRouteTable;
+import org.elegantobjects.jpages.App1.PageWithRoutes;
+import org.elegantobjects.jpages.App1.Route;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The benchmark of routing among 10, 100 and 1000 routes, with a chain
+ * of PageWithRoutes and with a PageWithRouteTable.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int routes;
+
+    private Page chain;
+
+    private Page table;
+
+    private String first;
+
+    @Setup
+    public void setup() {
+        Page chain = new TextPage("Not found!");
+        final List<Route> routes = new ArrayList<>(this.routes);
+        for (int idx = 0; idx < this.routes; ++idx) {
+            final Page page = new TextPage(Integer.toString(idx));
+            chain = new PageWithRoutes(String.format("/section%d/items", idx), page, chain);
+            routes.add(new Route(String.format("/section%d/items", idx), page));
+        }
+        this.chain = chain;
+        this.first = String.format("/section%d/items", this.routes - 1);
+        this.table = new PageWithRouteTable(routes, new TextPage("Not found!"));
+    }
+
+    @Benchmark
+    public Page chainFirst() {
+        return this.chain.with("X-Method", "GET").with("X-Path", this.first);
+    }
+
+    @Benchmark
+    public Page chainLast() {
+        return this.chain.with("X-Method", "GET").with("X-Path", "/section0/items");
+    }
+
+    @Benchmark
+    public Page tableFirst() {
+        return this.table.with("X-Method", "GET").with("X-Path", this.first);
+    }
+
+    @Benchmark
+    public Page tableLast() {
+        return this.table.with("X-Method", "GET").with("X-Path", "/section0/items");
+    }
+}
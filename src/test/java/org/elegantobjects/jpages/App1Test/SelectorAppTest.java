@@ -0,0 +1,155 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.PageWithRoutes;
+import org.elegantobjects.jpages.App1.SelectorApp;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the SelectorApp.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class SelectorAppTest {
+
+    @Test
+    public void testManyConnectionsOnFewLoops() throws Exception {
+        final int port = 12346;
+        final Thread thread = new Thread(
+            () -> {
+                final SelectorApp app = new SelectorApp(
+                    new TextPage("Hello, world!"), 2
+                );
+                try {
+                    app.start(port);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    System.out.println(ex.getMessage());
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+
+        // Hold all the connections open at once, far more than loops
+        final List<Socket> sockets = new ArrayList<>(0);
+        for (int idx = 0; idx < 200; ++idx) {
+            sockets.add(new Socket("localhost", port));
+        }
+        for (final Socket socket : sockets) {
+            socket.getOutputStream().write(
+                "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+        }
+        for (final Socket socket : sockets) {
+            MatcherAssert.assertThat(
+                SelectorAppTest.response(socket),
+                Matchers.endsWith("\r\n\r\nHello, world!")
+            );
+            socket.close();
+        }
+        thread.interrupt();
+        thread.join();
+    }
+
+    @Test
+    public void testKeepsLoopWhenPageThrows() throws Exception {
+        final int port = 12365;
+        final Page broken = new Page() {
+            @Override
+            public Page with(final String key, final String value) {
+                return this;
+            }
+
+            @Override
+            public Output printTo(final Output output) {
+                throw new IllegalStateException("The page is broken");
+            }
+        };
+        final Thread thread = new Thread(
+            () -> {
+                final SelectorApp app = new SelectorApp(
+                    new PageWithRoutes("/broken", broken, new TextPage("fine")), 1
+                );
+                try {
+                    app.start(port);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        try (final Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(
+                "GET /broken HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+            MatcherAssert.assertThat(
+                SelectorAppTest.response(socket),
+                Matchers.startsWith("HTTP/1.1 500 Internal Server Error\r\n")
+            );
+        }
+        try (final Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(
+                "GET /other HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+            MatcherAssert.assertThat(
+                SelectorAppTest.response(socket),
+                Matchers.endsWith("\r\n\r\nfine")
+            );
+        }
+        thread.interrupt();
+        thread.join();
+    }
+
+    private static String response(final Socket socket) throws Exception {
+        final InputStream input = socket.getInputStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.BadRequest;
+import org.elegantobjects.jpages.App1.KeyValuePage;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.RequestHead;
+import org.elegantobjects.jpages.App1.Session;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The benchmark of parsing a typical browser request in Session,
+ * from a String and from a reused RequestHead.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionBenchmark {
+
+    private static final String REQUEST = String.join(
+        "\r\n",
+        "GET /index.html?lang=en HTTP/1.1",
+        "Host: www.example.com",
+        "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0",
+        "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8",
+        "Accept-Language: en-US,en;q=0.5",
+        "Accept-Encoding: gzip, deflate, br",
+        "Connection: keep-alive",
+        "Cookie: session=0123456789abcdef; theme=dark",
+        "Upgrade-Insecure-Requests: 1",
+        "",
+        ""
+    );
+
+    private Session constant;
+
+    private Session pairs;
+
+    private ByteBuffer bytes;
+
+    private RequestHead head;
+
+    @Setup
+    public void setup() {
+        this.constant = new Session(new TextPage("Hello, world!"));
+        this.pairs = new Session(new KeyValuePage());
+        this.bytes = ByteBuffer.wrap(
+            SessionBenchmark.REQUEST.getBytes(StandardCharsets.ISO_8859_1)
+        );
+        this.head = new RequestHead();
+    }
+
+    @Benchmark
+    public Page fromString() {
+        return this.constant.with(SessionBenchmark.REQUEST);
+    }
+
+    @Benchmark
+    public Page fromStringToPairs() {
+        return this.pairs.with(SessionBenchmark.REQUEST);
+    }
+
+    @Benchmark
+    public Page fromReusedHead() throws BadRequest {
+        this.head.reset();
+        this.head.parse(this.bytes.duplicate());
+        return this.constant.with(this.head);
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.Admission;
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.Metrics;
+import org.elegantobjects.jpages.App1.Output;
+import org.elegantobjects.jpages.App1.Page;
+import org.elegantobjects.jpages.App1.PageWithRoutes;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.elegantobjects.jpages.App1.VirtualThreads;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of App.stop().
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class StopTest {
+
+    @Test
+    public void testFinishesRequestsInFlight() throws Exception {
+        final App app = new App(StopTest.page(500L));
+        final Thread thread = StopTest.run(app);
+        final int port = app.port();
+        try (final Socket socket = StopTest.send(port, "/slow")) {
+            TimeUnit.MILLISECONDS.sleep(100L);
+            final long start = System.nanoTime();
+            app.stop(Duration.ofSeconds(5L));
+            MatcherAssert.assertThat(
+                System.nanoTime() - start, Matchers.lessThan(TimeUnit.SECONDS.toNanos(2L))
+            );
+            thread.join(1000L);
+            MatcherAssert.assertThat(thread.isAlive(), Matchers.is(false));
+            MatcherAssert.assertThat(StopTest.response(socket), Matchers.endsWith("slow"));
+        } finally {
+            app.stop(Duration.ZERO);
+        }
+        String refused = "";
+        try {
+            new Socket("localhost", port).close();
+        } catch (final ConnectException ex) {
+            refused = ex.getMessage();
+        }
+        MatcherAssert.assertThat("The listener is still open", refused, Matchers.not(""));
+    }
+
+    @Test
+    public void testClosesIdleConnections() throws Exception {
+        final App app = new App(StopTest.page(0L), new VirtualThreads());
+        final Thread thread = StopTest.run(app);
+        try (final Socket socket = StopTest.send(app.port(), "/")) {
+            final InputStream input = socket.getInputStream();
+            final byte[] chunk = new byte[4096];
+            MatcherAssert.assertThat(input.read(chunk), Matchers.greaterThan(0));
+            final long start = System.nanoTime();
+            app.stop(Duration.ofSeconds(5L));
+            MatcherAssert.assertThat(
+                System.nanoTime() - start, Matchers.lessThan(TimeUnit.SECONDS.toNanos(1L))
+            );
+            MatcherAssert.assertThat(input.read(chunk), Matchers.equalTo(-1));
+        } finally {
+            app.stop(Duration.ZERO);
+        }
+        thread.join();
+    }
+
+    @Test
+    public void testCutsOffSlowRequestsAtDeadline() throws Exception {
+        final App app = new App(StopTest.page(10000L));
+        final Thread thread = StopTest.run(app);
+        try (final Socket socket = StopTest.send(app.port(), "/slow")) {
+            TimeUnit.MILLISECONDS.sleep(100L);
+            final long start = System.nanoTime();
+            app.stop(Duration.ofMillis(200L));
+            MatcherAssert.assertThat(
+                System.nanoTime() - start, Matchers.lessThan(TimeUnit.SECONDS.toNanos(2L))
+            );
+            thread.join(1000L);
+            MatcherAssert.assertThat(thread.isAlive(), Matchers.is(false));
+            // The request is cut off, so nothing comes back
+            MatcherAssert.assertThat(StopTest.response(socket), Matchers.equalTo(""));
+        } finally {
+            app.stop(Duration.ZERO);
+        }
+    }
+
+    @Test
+    public void testStopsWithFullQueue() throws Exception {
+        final App app = new App(
+            StopTest.page(10000L), 1, new Metrics(),
+            new Admission(Integer.MAX_VALUE, 1, Integer.MAX_VALUE)
+        );
+        final Thread thread = StopTest.run(app);
+        final Socket busy = StopTest.send(app.port(), "/slow");
+        final Socket queued = StopTest.send(app.port(), "/slow");
+        try {
+            TimeUnit.MILLISECONDS.sleep(100L);
+            final long start = System.nanoTime();
+            app.stop(Duration.ofMillis(200L));
+            MatcherAssert.assertThat(
+                System.nanoTime() - start, Matchers.lessThan(TimeUnit.SECONDS.toNanos(2L))
+            );
+            thread.join(1000L);
+            MatcherAssert.assertThat(thread.isAlive(), Matchers.is(false));
+        } finally {
+            app.stop(Duration.ZERO);
+            busy.close();
+            queued.close();
+        }
+    }
+
+    @Test
+    public void testLetsGoOfWorkerThatSwallowsInterrupt() throws Exception {
+        final App app = new App(
+            new Page() {
+                @Override
+                public Page with(final String key, final String value) {
+                    return this;
+                }
+
+                @Override
+                public Output printTo(final Output output) {
+                    // Longer than a second, the timeout of accept, so the
+                    // interrupt comes while the page is still printed
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(2000L);
+                    } catch (final InterruptedException ex) {
+                        // The page forgets the interrupt, as some pages do
+                    }
+                    return new TextPage("done").printTo(output);
+                }
+            },
+            1
+        );
+        final Thread thread = StopTest.run(app);
+        try (final Socket socket = new Socket("localhost", app.port())) {
+            socket.getOutputStream().write(
+                "GET / HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+            TimeUnit.MILLISECONDS.sleep(100L);
+            thread.interrupt();
+            MatcherAssert.assertThat(StopTest.response(socket), Matchers.endsWith("done"));
+            thread.join(5000L);
+            MatcherAssert.assertThat(thread.isAlive(), Matchers.is(false));
+        } finally {
+            app.stop(Duration.ZERO);
+        }
+    }
+
+    private static Page page(final long delay) {
+        return new PageWithRoutes(
+            "/slow",
+            new Page() {
+                @Override
+                public Page with(final String key, final String value) {
+                    return this;
+                }
+
+                @Override
+                public Output printTo(final Output output) {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(delay);
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new TextPage("slow").printTo(output);
+                }
+            },
+            new TextPage("fast")
+        );
+    }
+
+    private static Thread run(final App app) throws Exception {
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(0);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        while (app.port() == 0 && thread.isAlive()) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        return thread;
+    }
+
+    private static Socket send(final int port, final String path) throws Exception {
+        final Socket socket = new Socket("localhost", port);
+        socket.getOutputStream().write(
+            String.format("GET %s HTTP/1.1\r\n\r\n", path).getBytes(StandardCharsets.US_ASCII)
+        );
+        return socket;
+    }
+
+    private static String response(final Socket socket) throws Exception {
+        final InputStream input = socket.getInputStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[4096];
+        while (true) {
+            final int size = input.read(chunk);
+            if (size < 0) {
+                break;
+            }
+            bytes.write(chunk, 0, size);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
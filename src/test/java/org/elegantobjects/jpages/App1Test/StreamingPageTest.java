@@ -0,0 +1,330 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.ByteBufferOutput;
+import org.elegantobjects.jpages.App1.ChunkedBody;
+import org.elegantobjects.jpages.App1.ChunkedOutput;
+import org.elegantobjects.jpages.App1.OutputWithLength;
+import org.elegantobjects.jpages.App1.PageWithCompression;
+import org.elegantobjects.jpages.App1.PageWithContentType;
+import org.elegantobjects.jpages.App1.PageWithRoutes;
+import org.elegantobjects.jpages.App1.StreamingPage;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the StreamingPage, ChunkedOutput and DeflatingOutput.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class StreamingPageTest {
+
+    @Test
+    public void testSendsEveryRowBeforeTakingTheNext() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final Iterable<String> rows = () -> new Iterator<String>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return this.row < 3;
+            }
+
+            @Override
+            public String next() {
+                if (this.row > 0) {
+                    MatcherAssert.assertThat(
+                        new String(stream.toByteArray(), StandardCharsets.US_ASCII),
+                        Matchers.endsWith(String.format("\r\nrow%d\r\n", this.row - 1))
+                    );
+                }
+                ++this.row;
+                return String.format("row%d", this.row - 1);
+            }
+        };
+        new StreamingPage(rows).printTo(
+            new ChunkedOutput(new ByteBufferOutput(), stream)
+        ).writeTo(stream);
+        MatcherAssert.assertThat(
+            new String(stream.toByteArray(), StandardCharsets.US_ASCII),
+            Matchers.equalTo(
+                String.join(
+                    "\r\n",
+                    "HTTP/1.1 200 OK",
+                    "Content-Type: text/plain",
+                    "Transfer-Encoding: chunked",
+                    "",
+                    "4", "row0", "4", "row1", "4", "row2", "0", "", ""
+                )
+            )
+        );
+    }
+
+    @Test
+    public void testSkipsEmptyRowsAndLength() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new ChunkedOutput(new ByteBufferOutput(), stream)
+            .with("Content-Length", "5")
+            .with("X-Body", "")
+            .with("X-Body", "\u00e9t\u00e9")
+            .writeTo(stream);
+        final String response = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+        MatcherAssert.assertThat(response, Matchers.not(Matchers.containsString("Content-Length")));
+        MatcherAssert.assertThat(response, Matchers.endsWith("\r\n\r\n5\r\n\u00e9t\u00e9\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    public void testCompressesEveryRowBeforeTakingTheNext() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final Iterable<String> rows = () -> new Iterator<String>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return this.row < 3;
+            }
+
+            @Override
+            public String next() {
+                if (this.row > 0) {
+                    MatcherAssert.assertThat(
+                        StreamingPageTest.inflated(stream.toByteArray()),
+                        Matchers.endsWith(String.format("row%d", this.row - 1))
+                    );
+                }
+                ++this.row;
+                return String.format("row%d", this.row - 1);
+            }
+        };
+        new PageWithCompression(new StreamingPage(rows))
+            .with("Accept-Encoding", "gzip")
+            .printTo(new ChunkedOutput(new ByteBufferOutput(), stream))
+            .writeTo(stream);
+        final String response = new String(stream.toByteArray(), StandardCharsets.US_ASCII);
+        MatcherAssert.assertThat(response, Matchers.containsString("Content-Encoding: gzip\r\n"));
+        MatcherAssert.assertThat(response, Matchers.endsWith("\r\n0\r\n\r\n"));
+        MatcherAssert.assertThat(
+            StreamingPageTest.inflated(stream.toByteArray()),
+            Matchers.equalTo("row0row1row2")
+        );
+    }
+
+    @Test
+    public void testJoinsRowsForOtherOutputs() throws Exception {
+        MatcherAssert.assertThat(
+            new StreamingPage(Arrays.asList("a", "bc", "d"))
+                .printTo(new OutputWithLength(new ByteBufferOutput())).toString(),
+            Matchers.endsWith("Content-Length: 4\r\n\r\nabcd")
+        );
+    }
+
+    @Test
+    public void testRefusesTooManyRowsForOtherOutputs() throws Exception {
+        MatcherAssert.assertThat(
+            new StreamingPage(Arrays.asList("a", "bc", "d"), "text/plain", 3)
+                .printTo(new OutputWithLength(new ByteBufferOutput())).toString(),
+            Matchers.startsWith("HTTP/1.1 500 Internal Server Error\r\n")
+        );
+        final Iterable<String> endless = () -> {
+            throw new AssertionError("The rows must not be taken");
+        };
+        MatcherAssert.assertThat(
+            new StreamingPage(endless, "text/event-stream", 0)
+                .printTo(new OutputWithLength(new ByteBufferOutput())).toString(),
+            Matchers.startsWith("HTTP/1.1 500 Internal Server Error\r\n")
+        );
+    }
+
+    @Test
+    public void testAppStreamsOnPersistentConnection() throws Exception {
+        final int port = 12357;
+        final App app = new App(
+            new PageWithRoutes(
+                "/rows",
+                new StreamingPage(Arrays.asList("one,", "two,", "three")),
+                new TextPage("done")
+            ),
+            2
+        );
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(port);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+        try (final Socket socket = new Socket("localhost", port)) {
+            final OutputStream output = socket.getOutputStream();
+            final InputStream input = socket.getInputStream();
+            output.write("GET /rows HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            MatcherAssert.assertThat(
+                StreamingPageTest.head(input),
+                Matchers.containsString("Transfer-Encoding: chunked\r\n")
+            );
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final InputStream chunks = new ChunkedBody(input);
+            int chr;
+            while ((chr = chunks.read()) >= 0) {
+                body.write(chr);
+            }
+            MatcherAssert.assertThat(
+                new String(body.toByteArray(), StandardCharsets.US_ASCII),
+                Matchers.equalTo("one,two,three")
+            );
+            output.write(
+                "GET /next HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+            MatcherAssert.assertThat(
+                StreamingPageTest.head(input),
+                Matchers.containsString("Content-Length: 4\r\n")
+            );
+        }
+        app.stop(Duration.ofSeconds(1L));
+        thread.join(1000L);
+    }
+
+    @Test
+    public void testAppStreamsTypedPage() throws Exception {
+        final App app = new App(
+            new PageWithContentType(
+                new StreamingPage(Arrays.asList("x,", "y"), "text/plain", 0),
+                "text/csv"
+            ),
+            2
+        );
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(0);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        try {
+            while (app.port() == 0 && thread.isAlive()) {
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+            try (final Socket socket = new Socket("localhost", app.port())) {
+                socket.getOutputStream().write(
+                    "GET / HTTP/1.1\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII)
+                );
+                final InputStream input = socket.getInputStream();
+                MatcherAssert.assertThat(
+                    StreamingPageTest.head(input),
+                    Matchers.allOf(
+                        Matchers.startsWith("HTTP/1.1 200 OK\r\n"),
+                        Matchers.containsString("Transfer-Encoding: chunked\r\n")
+                    )
+                );
+                final ByteArrayOutputStream body = new ByteArrayOutputStream();
+                final InputStream chunks = new ChunkedBody(input);
+                int chr;
+                while ((chr = chunks.read()) >= 0) {
+                    body.write(chr);
+                }
+                MatcherAssert.assertThat(
+                    new String(body.toByteArray(), StandardCharsets.US_ASCII),
+                    Matchers.equalTo("x,y")
+                );
+            }
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    /**
+     * Everything inflated so far from the chunks of the response.
+     */
+    private static String inflated(final byte[] response) {
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try {
+            final InputStream input = new ByteArrayInputStream(response);
+            StreamingPageTest.head(input);
+            final InputStream chunks = new ChunkedBody(input);
+            try {
+                int chr;
+                while ((chr = chunks.read()) >= 0) {
+                    gzip.write(chr);
+                }
+            } catch (final IOException ex) {
+                // The last chunk isn't there yet while the rows are printed
+            }
+            final Inflater inflater = new Inflater(true);
+            // The gzip header of ten bytes goes before the deflated rows
+            inflater.setInput(gzip.toByteArray(), 10, gzip.size() - 10);
+            final byte[] buffer = new byte[256];
+            int len;
+            while ((len = inflater.inflate(buffer)) > 0) {
+                body.write(buffer, 0, len);
+            }
+            inflater.end();
+        } catch (final Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String head(final InputStream input) throws Exception {
+        final StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            final int chr = input.read();
+            if (chr < 0) {
+                break;
+            }
+            head.append((char) chr);
+        }
+        return head.toString();
+    }
+}
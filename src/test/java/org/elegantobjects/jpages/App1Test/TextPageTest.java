@@ -23,6 +23,8 @@
  */
 package org.elegantobjects.jpages.App1Test;
 
+import java.nio.charset.StandardCharsets;
+
 import org.elegantobjects.jpages.App1.*;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -51,4 +53,17 @@ public final class TextPageTest {
         );
     }
 
+    @Test
+    public void testCountsBytesOfBody() throws Exception {
+        // ASCII, Cyrillic, CJK, a pair of surrogates and a lone one
+        final String text = "Hi, \u041f\u0440\u0438\u0432\u0435\u0442 \u4f60\u597d "
+            + "\ud83d\ude00 \ud83d";
+        MatcherAssert.assertThat(
+            new TextPage(text).printTo(new SimpleTextOutput("")).toString(),
+            Matchers.containsString(
+                String.format("Content-Length: %d", text.getBytes(StandardCharsets.UTF_8).length)
+            )
+        );
+    }
+
 }
@@ -0,0 +1,228 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.elegantobjects.jpages.App1.Admission;
+import org.elegantobjects.jpages.App1.App;
+import org.elegantobjects.jpages.App1.Listeners;
+import org.elegantobjects.jpages.App1.Metrics;
+import org.elegantobjects.jpages.App1.TextPage;
+import org.elegantobjects.jpages.App1.Timeouts;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the deadlines of App connections.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class TimeoutsTest {
+
+    @Test
+    public void testCutsOffSlowlorisHead() throws Exception {
+        final Metrics metrics = new Metrics();
+        final App app = TimeoutsTest.app(metrics, 2);
+        final Thread thread = TimeoutsTest.run(app);
+        try (final Socket socket = new Socket("localhost", app.port())) {
+            final OutputStream output = socket.getOutputStream();
+            final byte[] head = "GET / HTTP/1.1\r\nHost: localhost\r\n".getBytes(StandardCharsets.US_ASCII);
+            final long start = System.nanoTime();
+            // A byte every 50ms, each one well within any idle timeout
+            try {
+                for (final byte data : head) {
+                    output.write(data);
+                    output.flush();
+                    TimeUnit.MILLISECONDS.sleep(50L);
+                }
+            } catch (final IOException ex) {
+                // The server closed the connection already
+            }
+            MatcherAssert.assertThat(TimeoutsTest.response(socket), Matchers.equalTo(""));
+            MatcherAssert.assertThat(
+                System.nanoTime() - start, Matchers.lessThan(TimeUnit.MILLISECONDS.toNanos(1500L))
+            );
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+        // Accepts that timed out are counted there too
+        final String text = metrics.printTo(new StringBuilder()).toString();
+        final int start = text.indexOf("\njpages_timeouts_total ") + "\njpages_timeouts_total ".length();
+        MatcherAssert.assertThat(
+            Long.parseLong(text.substring(start, text.indexOf('\n', start))),
+            Matchers.greaterThanOrEqualTo(1L)
+        );
+    }
+
+    @Test
+    public void testClosesIdleConnection() throws Exception {
+        final App app = TimeoutsTest.app(new Metrics(), 2);
+        final Thread thread = TimeoutsTest.run(app);
+        try (final Socket socket = new Socket("localhost", app.port())) {
+            socket.getOutputStream().write(
+                "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+            final long start = System.nanoTime();
+            MatcherAssert.assertThat(
+                TimeoutsTest.response(socket), Matchers.endsWith("hello")
+            );
+            MatcherAssert.assertThat(
+                System.nanoTime() - start,
+                Matchers.allOf(
+                    Matchers.greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200L)),
+                    Matchers.lessThan(TimeUnit.MILLISECONDS.toNanos(1500L))
+                )
+            );
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testCutsOffSlowBody() throws Exception {
+        final App app = TimeoutsTest.app(new Metrics(), 2);
+        final Thread thread = TimeoutsTest.run(app);
+        try (final Socket socket = new Socket("localhost", app.port())) {
+            socket.getOutputStream().write(
+                "POST / HTTP/1.1\r\nContent-Length: 10\r\n\r\nabc".getBytes(StandardCharsets.US_ASCII)
+            );
+            final long start = System.nanoTime();
+            MatcherAssert.assertThat(TimeoutsTest.response(socket), Matchers.equalTo(""));
+            MatcherAssert.assertThat(
+                System.nanoTime() - start, Matchers.lessThan(TimeUnit.MILLISECONDS.toNanos(1500L))
+            );
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testKeepsBodyThatKeepsComing() throws Exception {
+        final App app = TimeoutsTest.app(new Metrics(), 2);
+        final Thread thread = TimeoutsTest.run(app);
+        try (final Socket socket = new Socket("localhost", app.port())) {
+            final OutputStream output = socket.getOutputStream();
+            output.write(
+                "POST / HTTP/1.1\r\nContent-Length: 10\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+            // A second in all, much longer than the deadline of a read
+            for (int idx = 0; idx < 10; ++idx) {
+                TimeUnit.MILLISECONDS.sleep(100L);
+                output.write('x');
+            }
+            // The body is skipped in full, and the connection is kept for more
+            output.write(
+                "GET / HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+            MatcherAssert.assertThat(
+                TimeoutsTest.response(socket).split("HTTP/1.1 200 OK\r\n", -1).length,
+                Matchers.equalTo(3)
+            );
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testFreesWorkerForOthers() throws Exception {
+        final App app = TimeoutsTest.app(new Metrics(), 1);
+        final Thread thread = TimeoutsTest.run(app);
+        try (final Socket silent = new Socket("localhost", app.port());
+             final Socket socket = new Socket("localhost", app.port())) {
+            silent.getOutputStream().write('G');
+            socket.getOutputStream().write(
+                "GET / HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
+            );
+            MatcherAssert.assertThat(
+                TimeoutsTest.response(socket), Matchers.endsWith("hello")
+            );
+        } finally {
+            app.stop(Duration.ofSeconds(1L));
+            thread.join();
+        }
+    }
+
+    private static App app(final Metrics metrics, final int threads) {
+        return new App(
+            new TextPage("hello"), threads, metrics, new Admission(), new Listeners(),
+            new Timeouts(
+                Duration.ofMillis(200L), Duration.ofMillis(300L),
+                Duration.ofMillis(300L), Duration.ofMillis(300L)
+            )
+        );
+    }
+
+    private static Thread run(final App app) throws Exception {
+        final Thread thread = new Thread(
+            () -> {
+                try {
+                    app.start(0);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        );
+        thread.start();
+        while (app.port() == 0 && thread.isAlive()) {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        return thread;
+    }
+
+    private static String response(final Socket socket) throws Exception {
+        final InputStream input = socket.getInputStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[4096];
+        while (true) {
+            final int size;
+            try {
+                size = input.read(chunk);
+            } catch (final SocketException ex) {
+                break;
+            }
+            if (size < 0) {
+                break;
+            }
+            bytes.write(chunk, 0, size);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2019 Yegor Bugayenko
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.elegantobjects.jpages.App1Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elegantobjects.jpages.App1.Deadline;
+import org.elegantobjects.jpages.App1.Wheel;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * The test of the Wheel and its deadlines.
+ *
+ * @author Yegor Bugayenko (yegor256@gmail.com)
+ * @since 0.1
+ */
+public final class WheelTest {
+
+    @Test
+    public void testExpiresArmedDeadline() throws Exception {
+        try (final Wheel wheel = new Wheel(Duration.ofMillis(10L), 8)) {
+            final CountDownLatch done = new CountDownLatch(1);
+            final long start = System.nanoTime();
+            wheel.deadline(done::countDown).arm(TimeUnit.MILLISECONDS.toNanos(50L));
+            MatcherAssert.assertThat(done.await(1L, TimeUnit.SECONDS), Matchers.is(true));
+            MatcherAssert.assertThat(
+                System.nanoTime() - start,
+                Matchers.greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50L))
+            );
+        }
+    }
+
+    @Test
+    public void testNeverExpiresDisarmedDeadline() throws Exception {
+        try (final Wheel wheel = new Wheel(Duration.ofMillis(10L), 8)) {
+            final AtomicInteger fired = new AtomicInteger();
+            final Deadline deadline = wheel.deadline(fired::incrementAndGet);
+            deadline.arm(TimeUnit.MILLISECONDS.toNanos(30L));
+            deadline.disarm();
+            TimeUnit.MILLISECONDS.sleep(150L);
+            MatcherAssert.assertThat(fired.get(), Matchers.equalTo(0));
+        }
+    }
+
+    @Test
+    public void testPostponesDeadlineArmedAgain() throws Exception {
+        try (final Wheel wheel = new Wheel(Duration.ofMillis(10L), 8)) {
+            final AtomicInteger fired = new AtomicInteger();
+            final Deadline deadline = wheel.deadline(fired::incrementAndGet);
+            // Every time before it expires, for longer than the ring goes
+            for (int idx = 0; idx < 20; ++idx) {
+                deadline.arm(TimeUnit.MILLISECONDS.toNanos(60L));
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+            MatcherAssert.assertThat(fired.get(), Matchers.equalTo(0));
+            TimeUnit.MILLISECONDS.sleep(200L);
+            MatcherAssert.assertThat(fired.get(), Matchers.equalTo(1));
+        }
+    }
+
+    @Test
+    public void testExpiresDeadlinesBeyondTheRing() throws Exception {
+        try (final Wheel wheel = new Wheel(Duration.ofMillis(10L), 4)) {
+            final CountDownLatch done = new CountDownLatch(1);
+            final long start = System.nanoTime();
+            wheel.deadline(done::countDown).arm(TimeUnit.MILLISECONDS.toNanos(200L));
+            MatcherAssert.assertThat(done.await(1L, TimeUnit.SECONDS), Matchers.is(true));
+            MatcherAssert.assertThat(
+                System.nanoTime() - start,
+                Matchers.greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200L))
+            );
+        }
+    }
+
+    @Test
+    public void testExpiresManyDeadlines() throws Exception {
+        try (final Wheel wheel = new Wheel(Duration.ofMillis(5L), 64)) {
+            final int total = 10000;
+            final CountDownLatch done = new CountDownLatch(total);
+            for (int idx = 0; idx < total; ++idx) {
+                wheel.deadline(done::countDown).arm(
+                    TimeUnit.MILLISECONDS.toNanos(idx % 300)
+                );
+            }
+            MatcherAssert.assertThat(done.await(5L, TimeUnit.SECONDS), Matchers.is(true));
+        }
+    }
+}